@@ -0,0 +1,129 @@
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import misc.FileUtils;
+import misc.ISub;
+import misc.ISubCandidateIndex;
+import misc.ISubMatcher;
+
+import org.semanticweb.owl.align.AlignmentException;
+
+import fr.inrialpes.exmo.ontowrap.LoadedOntology;
+import fr.inrialpes.exmo.ontowrap.OntowrapException;
+
+/**
+ * Measures the recall and the savings of the blocking of ISubMatcher (ISubCandidateIndex) against brute force on the modules of a folder. For each pair
+ * of modules all pairs of classes are scored by ISub (brute force), and then only the candidates found by the index for each class, at a number of
+ * thresholds. The recall is the share of the pairs of classes scoring at least the threshold by brute force that are also found among the candidates,
+ * and the candidates are given as a share of all pairs of classes.
+ * @author audunvennesland
+ *
+ */
+public class CandidateIndexBenchmark {
+
+	/**
+	 * Test method
+	 * @param args The path to the folder holding the modules, optionally followed by the thresholds (0.7 0.8 0.85 0.9 0.95 by default)
+	 * @throws AlignmentException
+	 * @throws OntowrapException
+	 */
+	public static void main(String[] args) throws AlignmentException, OntowrapException {
+
+		if (args.length == 0) {
+			System.out.println("Usage: CandidateIndexBenchmark moduleFolder [threshold ...]");
+			return;
+		}
+
+		double[] thresholds = { 0.7, 0.8, 0.85, 0.9, 0.95 };
+		if (args.length > 1) {
+			thresholds = new double[args.length - 1];
+			for (int t = 0; t < thresholds.length; t++) {
+				thresholds[t] = Double.parseDouble(args[t + 1]);
+			}
+		}
+
+		//the lower-cased class names of each module
+		List<String[]> modules = new ArrayList<String[]>();
+		for (File moduleFile : FileUtils.listOntologyFiles(new File(args[0]))) {
+			LoadedOntology<?> module = (LoadedOntology<?>) ISubMatcher.loadOntology(moduleFile.getAbsoluteFile().toURI());
+			List<String> names = new ArrayList<String>();
+			for (Object cls : module.getClasses()) {
+				String name = module.getEntityName(cls);
+				if (name != null) {
+					names.add(name.toLowerCase());
+				}
+			}
+			modules.add(names.toArray(new String[names.size()]));
+		}
+
+		ISub isub = new ISub();
+
+		//score all pairs of classes of all pairs of modules once
+		long pairs = 0;
+		List<double[][]> scores = new ArrayList<double[][]>();
+		long start = System.nanoTime();
+		for (int m1 = 0; m1 < modules.size(); m1++) {
+			for (int m2 = m1 + 1; m2 < modules.size(); m2++) {
+				String[] names1 = modules.get(m1);
+				String[] names2 = modules.get(m2);
+				double[][] pairScores = new double[names2.length][names1.length];
+				for (int j = 0; j < names2.length; j++) {
+					for (int i = 0; i < names1.length; i++) {
+						pairScores[j][i] = isub.score(names1[i], names2[j]);
+					}
+				}
+				scores.add(pairScores);
+				pairs += (long) names1.length * names2.length;
+			}
+		}
+		long bruteForceTime = System.nanoTime() - start;
+
+		System.out.println(modules.size() + " modules, " + pairs + " pairs of classes, brute force " + String.format("%.1f", bruteForceTime / 1e6) + " ms");
+		System.out.println("\nthreshold\tmatches\tfound\trecall\tcandidates\tshare\ttime (ms)\tspeedup");
+
+		for (double threshold : thresholds) {
+
+			long matches = 0;
+			long found = 0;
+			long candidates = 0;
+
+			start = System.nanoTime();
+			int pair = 0;
+			for (int m1 = 0; m1 < modules.size(); m1++) {
+				for (int m2 = m1 + 1; m2 < modules.size(); m2++) {
+					String[] names1 = modules.get(m1);
+					String[] names2 = modules.get(m2);
+					ISubCandidateIndex index = new ISubCandidateIndex(names1);
+					for (int j = 0; j < names2.length; j++) {
+						for (int i : index.getCandidates(names2[j], threshold)) {
+							candidates++;
+							if (isub.score(names1[i], names2[j]) >= threshold) {
+								found++;
+							}
+						}
+					}
+				}
+			}
+			long blockingTime = System.nanoTime() - start;
+
+			//the matches of brute force are counted outside the timing
+			for (double[][] pairScores : scores) {
+				for (double[] row : pairScores) {
+					for (double score : row) {
+						if (score >= threshold) {
+							matches++;
+						}
+					}
+				}
+			}
+
+			System.out.println(threshold + "\t" + matches + "\t" + found + "\t" + String.format("%.4f", matches == 0 ? 1.0 : (double) found / matches) + "\t"
+					+ candidates + "\t" + String.format("%.4f", (double) candidates / pairs) + "\t" + String.format("%.1f", blockingTime / 1e6) + "\t"
+					+ String.format("%.1fx", (double) bruteForceTime / blockingTime));
+		}
+	}
+
+}
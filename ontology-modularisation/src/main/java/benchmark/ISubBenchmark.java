@@ -0,0 +1,157 @@
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import misc.FileUtils;
+import misc.ISub;
+import misc.ISubMatcher;
+import misc.ISubScorer;
+import modularisation.ModuleMetrics;
+
+import org.semanticweb.owl.align.AlignmentException;
+
+import fr.inrialpes.exmo.ontowrap.LoadedOntology;
+import fr.inrialpes.exmo.ontowrap.OntowrapException;
+
+/**
+ * Compares ISub.score with the allocation-free ISubScorer on the class names of the modules of a folder. First the scores of all pairs of class names
+ * (as given and lower-cased) and of a set of special names are checked to be bit for bit the same, then each scorer scores all pairs of lower-cased class
+ * names of all pairs of modules, as ISubMatcher does, for a number of rounds after a warm-up round, reporting the best throughput and the bytes allocated
+ * per score by the thread (with com.sun.management.ThreadMXBean, as for ModuleMetrics).
+ * @author audunvennesland
+ *
+ */
+public class ISubBenchmark {
+
+	//names testing the edge cases of the normalisation
+	static final String[] specialNames = { "", ".", "_ _", "a", "ab", "abc", "A.B_C D", "Stra\u00dfe", "STRASSE", "\u0130stanbul", "istanbul", "\u03a3\u039f\u03a6\u039f\u03a3", "\u03c3\u03bf\u03c6\u03bf\u03c2",
+			"CodeTypeType", "typecodetype" };
+
+	//the sum of the scores, kept so that the scoring is not optimised away
+	static double checksum = 0;
+
+	/**
+	 * Test method
+	 * @param args The path to the folder holding the modules, optionally followed by the number of rounds to time (after one warm-up round)
+	 * @throws AlignmentException
+	 * @throws OntowrapException
+	 */
+	public static void main(String[] args) throws AlignmentException, OntowrapException {
+
+		if (args.length == 0) {
+			System.out.println("Usage: ISubBenchmark moduleFolder [rounds]");
+			return;
+		}
+
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		//the class names of each module, as given and lower-cased
+		List<String[]> modules = new ArrayList<String[]>();
+		List<String[]> lowerCaseModules = new ArrayList<String[]>();
+		List<String> allNames = new ArrayList<String>();
+		for (File moduleFile : FileUtils.listOntologyFiles(new File(args[0]))) {
+			LoadedOntology<?> module = (LoadedOntology<?>) ISubMatcher.loadOntology(moduleFile.getAbsoluteFile().toURI());
+			List<String> names = new ArrayList<String>();
+			for (Object cls : module.getClasses()) {
+				String name = module.getEntityName(cls);
+				if (name != null) {
+					names.add(name);
+				}
+			}
+			String[] moduleNames = names.toArray(new String[names.size()]);
+			String[] lowerCaseNames = new String[moduleNames.length];
+			for (int i = 0; i < moduleNames.length; i++) {
+				lowerCaseNames[i] = moduleNames[i].toLowerCase();
+			}
+			modules.add(moduleNames);
+			lowerCaseModules.add(lowerCaseNames);
+			allNames.addAll(names);
+		}
+
+		ISub isub = new ISub();
+		ISubScorer scorer = new ISubScorer();
+
+		//check the scores of all pairs of names
+		for (String name : specialNames) {
+			allNames.add(name);
+		}
+		long checked = 0;
+		long different = 0;
+		for (String name1 : allNames) {
+			for (String name2 : allNames) {
+				for (int lowerCase = 0; lowerCase < 2; lowerCase++) {
+					String s1 = lowerCase == 0 ? name1 : name1.toLowerCase();
+					String s2 = lowerCase == 0 ? name2 : name2.toLowerCase();
+					double expected = isub.score(s1, s2);
+					double score = scorer.score(s1, s2);
+					checked++;
+					if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(score)) {
+						if (different++ < 10) {
+							System.out.println("Different scores of " + s1 + " and " + s2 + ": " + expected + " (ISub) and " + score + " (ISubScorer)");
+						}
+					}
+				}
+			}
+		}
+		System.out.println(checked + " pairs of names checked, " + different + " with different scores");
+
+		long pairs = 0;
+		for (int m1 = 0; m1 < lowerCaseModules.size(); m1++) {
+			for (int m2 = m1 + 1; m2 < lowerCaseModules.size(); m2++) {
+				pairs += (long) lowerCaseModules.get(m1).length * lowerCaseModules.get(m2).length;
+			}
+		}
+
+		System.out.println("\nscorer\tpairs\tbest time (ms)\tscores/s\tbytes/score");
+
+		long isubTime = time("ISub", isub, lowerCaseModules, pairs, rounds);
+		long scorerTime = time("ISubScorer", scorer, lowerCaseModules, pairs, rounds);
+
+		System.out.println("speedup\t" + String.format("%.2fx", (double) isubTime / scorerTime));
+	}
+
+	/**
+	 * Times a scorer on all pairs of names of all pairs of modules and prints its best throughput and the bytes it allocates per score
+	 * @return The best time of a round in nanoseconds
+	 */
+	private static long time(String scorerName, ISub scorer, List<String[]> modules, long pairs, int rounds) {
+
+		long bestTime = Long.MAX_VALUE;
+		long allocated = 0;
+
+		for (int round = 0; round <= rounds; round++) {
+
+			long startBytes = ModuleMetrics.getAllocatedBytes();
+			long start = System.nanoTime();
+
+			for (int m1 = 0; m1 < modules.size(); m1++) {
+				for (int m2 = m1 + 1; m2 < modules.size(); m2++) {
+					String[] names1 = modules.get(m1);
+					String[] names2 = modules.get(m2);
+					for (int j = 0; j < names2.length; j++) {
+						for (int i = 0; i < names1.length; i++) {
+							checksum += scorer.score(names1[i], names2[j]);
+						}
+					}
+				}
+			}
+
+			long time = System.nanoTime() - start;
+			long endBytes = ModuleMetrics.getAllocatedBytes();
+
+			//the warm-up round is not counted
+			if (round > 0) {
+				bestTime = Math.min(bestTime, time);
+				allocated = startBytes < 0 ? -1 : Math.max(allocated, endBytes - startBytes);
+			}
+		}
+
+		System.out.println(scorerName + "\t" + pairs + "\t" + String.format("%.1f", bestTime / 1e6) + "\t" + String.format("%.0f", pairs / (bestTime / 1e9)) + "\t"
+				+ (allocated < 0 ? "n/a" : String.format("%.1f", (double) allocated / pairs)));
+
+		return bestTime;
+	}
+
+}
@@ -0,0 +1,134 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import misc.FileUtils;
+import modularisation.ModuleNetworkDependencyManager;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+import org.semanticweb.owlapi.util.AutoIRIMapper;
+
+/**
+ * Compares the import closures and load times of the modules of an ontology network when the dependencies are created without and with the import
+ * minimisation. The network is copied to two temporary folders, the dependencies are created in each, and then each module is loaded with its imports
+ * by the OWL API as a consumer of the network would load it.
+ * @author audunvennesland
+ *
+ */
+public class ImportMinimisationBenchmark {
+
+	/**
+	 * Test method
+	 * @param args The path to the folder holding the modules of the network, optionally followed by "cover" for also choosing a minimal cover of owning
+	 * modules and by the number of rounds to time (after one warm-up round)
+	 * @throws OWLOntologyCreationException
+	 * @throws OWLOntologyStorageException
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws OWLOntologyCreationException, OWLOntologyStorageException, IOException {
+
+		if (args.length == 0) {
+			System.out.println("Usage: ImportMinimisationBenchmark networkFolder [cover] [rounds]");
+			return;
+		}
+
+		boolean cover = false;
+		int rounds = 5;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("cover")) {
+				cover = true;
+			} else {
+				rounds = Integer.parseInt(args[i]);
+			}
+		}
+
+		int parallelism = Runtime.getRuntime().availableProcessors();
+
+		File fullFolder = copyNetwork(new File(args[0]), "network-full");
+		File minimisedFolder = copyNetwork(new File(args[0]), "network-minimised");
+
+		ModuleNetworkDependencyManager.createAllDependencies(fullFolder.getPath(), parallelism);
+
+		ModuleNetworkDependencyManager.setMinimiseImports(true);
+		ModuleNetworkDependencyManager.setMinimalCover(cover);
+		try {
+			ModuleNetworkDependencyManager.createAllDependencies(minimisedFolder.getPath(), parallelism);
+		} finally {
+			ModuleNetworkDependencyManager.setMinimiseImports(false);
+			ModuleNetworkDependencyManager.setMinimalCover(false);
+		}
+
+		System.out.println("\nmodule\tclosure (modules)\tclosure (axioms)\tload full (ms)\tload minimised (ms)\tspeedup");
+
+		long fullTotal = 0;
+		long minimisedTotal = 0;
+
+		for (File fullFile : FileUtils.listOntologyFiles(fullFolder)) {
+
+			File minimisedFile = new File(minimisedFolder, fullFile.getName());
+
+			long fullTime = Long.MAX_VALUE;
+			long minimisedTime = Long.MAX_VALUE;
+			OWLOntology full = null;
+			OWLOntology minimised = null;
+
+			//keep the best of a number of rounds to reduce the influence of JIT compilation and garbage collection
+			for (int round = 0; round <= rounds; round++) {
+
+				long start = System.nanoTime();
+				full = load(fullFile);
+				fullTime = Math.min(fullTime, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				minimised = load(minimisedFile);
+				minimisedTime = Math.min(minimisedTime, System.nanoTime() - start);
+			}
+
+			fullTotal += fullTime;
+			minimisedTotal += minimisedTime;
+
+			System.out.println(fullFile.getName() + "\t" + full.getImportsClosure().size() + " -> " + minimised.getImportsClosure().size() + "\t"
+					+ getAxiomCount(full) + " -> " + getAxiomCount(minimised) + "\t" + String.format("%.1f", fullTime / 1e6) + "\t"
+					+ String.format("%.1f", minimisedTime / 1e6) + "\t" + String.format("%.2fx", (double) fullTime / minimisedTime));
+		}
+
+		System.out.println("total\t\t\t" + String.format("%.1f", fullTotal / 1e6) + "\t" + String.format("%.1f", minimisedTotal / 1e6) + "\t"
+				+ String.format("%.2fx", (double) fullTotal / minimisedTotal));
+	}
+
+	/**
+	 * Loads a module with its imports into a new manager resolving the imports from the folder of the module
+	 */
+	private static OWLOntology load(File moduleFile) throws OWLOntologyCreationException {
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		manager.addIRIMapper(new AutoIRIMapper(moduleFile.getAbsoluteFile().getParentFile(), false));
+		return manager.loadOntologyFromOntologyDocument(moduleFile);
+	}
+
+	private static int getAxiomCount(OWLOntology module) {
+		int count = 0;
+		for (OWLOntology ont : module.getImportsClosure()) {
+			count += ont.getAxiomCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Copies the ontology files of a network folder to a new temporary folder
+	 */
+	private static File copyNetwork(File networkFolder, String prefix) throws IOException {
+		File folder = Files.createTempDirectory(prefix).toFile();
+		for (File moduleFile : FileUtils.listOntologyFiles(networkFolder)) {
+			Files.copy(moduleFile.toPath(), new File(folder, moduleFile.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return folder;
+	}
+
+}
@@ -0,0 +1,118 @@
+package benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import misc.FileUtils;
+import misc.OntologyScan;
+import misc.StringDictionary;
+import modularisation.ModuleNetworkIndex;
+
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+/**
+ * Reports the memory used by the index of an ontology network (ModuleNetworkIndex), and by the scans of its module files with the classes held as
+ * strings, as the scans held them before the StringDictionary, and as IDs in one shared dictionary. The retained heap is measured after garbage
+ * collection, so the numbers are estimates, and the footprint of the dictionary is compared with that of the same strings as String objects.
+ * @author audunvennesland
+ *
+ */
+public class IndexMemoryBenchmark {
+
+	/**
+	 * Test method
+	 * @param args The path to the folder holding the modules of the network
+	 * @throws OWLOntologyCreationException
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws OWLOntologyCreationException, IOException {
+
+		if (args.length == 0) {
+			System.out.println("Usage: IndexMemoryBenchmark networkFolder");
+			return;
+		}
+
+		File networkFolder = new File(args[0]);
+
+		//a warm-up round, so that the classes and static caches used are not counted
+		new ModuleNetworkIndex(networkFolder);
+		scanAsStrings(networkFolder);
+		scanAsIDs(networkFolder);
+
+		//each structure is kept until all are measured, so that none is collected while another one is measured
+		long start = getUsedMemory();
+		ModuleNetworkIndex index = new ModuleNetworkIndex(networkFolder);
+		long indexHeap = getUsedMemory() - start;
+
+		start = getUsedMemory();
+		List<Object> stringScans = scanAsStrings(networkFolder);
+		long stringScanHeap = getUsedMemory() - start;
+
+		start = getUsedMemory();
+		List<OntologyScan> idScans = scanAsIDs(networkFolder);
+		long idScanHeap = getUsedMemory() - start;
+
+		StringDictionary dictionary = index.getDictionary();
+		long stringFootprint = 0;
+		for (int id = 0; id < dictionary.size(); id++) {
+			stringFootprint += StringDictionary.getStringFootprint(dictionary.get(id));
+		}
+
+		System.out.println("Memory of the index of " + networkFolder);
+		System.out.println("index (retained heap)\t" + format(indexHeap));
+		System.out.println("scans with the classes as strings (retained heap)\t" + format(stringScanHeap));
+		System.out.println("scans with the classes as IDs in a shared dictionary (retained heap)\t" + format(idScanHeap));
+		System.out.println("dictionary of the index: " + dictionary.size() + " strings\t" + format(dictionary.getMemoryFootprint()) + " (as String objects: "
+				+ format(stringFootprint) + ")");
+		System.out.println(stringScans.size() / 2 + " of " + idScans.size() + " module files scanned");
+	}
+
+	/**
+	 * Scans the module files and keeps their classes and superclasses as strings
+	 */
+	private static List<Object> scanAsStrings(File networkFolder) throws IOException {
+		List<Object> scans = new ArrayList<Object>();
+		for (File moduleFile : FileUtils.listOntologyFiles(networkFolder)) {
+			OntologyScan scan = OntologyScan.scan(moduleFile);
+			if (scan != null) {
+				Set<String> classes = scan.getClasses();
+				Map<String, Set<String>> parents = scan.getParents();
+				scans.add(classes);
+				scans.add(parents);
+			}
+		}
+		return scans;
+	}
+
+	/**
+	 * Scans the module files with the classes as IDs in one dictionary
+	 */
+	private static List<OntologyScan> scanAsIDs(File networkFolder) throws IOException {
+		StringDictionary dictionary = new StringDictionary();
+		List<OntologyScan> scans = new ArrayList<OntologyScan>();
+		for (File moduleFile : FileUtils.listOntologyFiles(networkFolder)) {
+			OntologyScan scan = OntologyScan.scan(moduleFile, dictionary);
+			if (scan != null) {
+				scans.add(scan);
+			}
+		}
+		return scans;
+	}
+
+	private static long getUsedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static String format(long bytes) {
+		return String.format("%.1f KB", bytes / 1024.0);
+	}
+
+}
@@ -0,0 +1,102 @@
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import misc.OntologySnapshot;
+import modularisation.ClassHierarchy;
+import modularisation.IndexedLocalityExtractor;
+import modularisation.ModuleExtractor;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
+import uk.ac.manchester.cs.owlapi.modularity.SyntacticLocalityModuleExtractor;
+
+/**
+ * Compares extracting the locality-based (STAR) modules of an ontology with the OWL API SyntacticLocalityModuleExtractor against the IndexedLocalityExtractor,
+ * and checks that both give the same modules.
+ * @author audunvennesland
+ *
+ */
+public class LocalityBenchmark {
+
+	/**
+	 * Test method
+	 * @param args The path to the ontology file, optionally followed by the seed signatures (class names) to extract modules for. If no seed signatures are
+	 * given, a module is extracted for every class of the ontology.
+	 * @throws OWLOntologyCreationException
+	 */
+	public static void main(String[] args) throws OWLOntologyCreationException {
+
+		if (args.length == 0) {
+			System.out.println("Usage: LocalityBenchmark ontologyFile [seedSignature ...]");
+			return;
+		}
+
+		File ontoFile = new File(args[0]);
+
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		OWLOntology onto = OntologySnapshot.load(manager, ontoFile);
+		ClassHierarchy hierarchy = ClassHierarchy.load(ontoFile, onto, false);
+
+		List<Set<OWLEntity>> seedSigs = new ArrayList<Set<OWLEntity>>();
+		if (args.length > 1) {
+			for (int i = 1; i < args.length; i++) {
+				seedSigs.add(ModuleExtractor.expandSeedSignature(onto, hierarchy, Collections.singleton(args[i])));
+			}
+		} else {
+			for (OWLClass cls : onto.getClassesInSignature()) {
+				Set<OWLEntity> seedSig = new HashSet<OWLEntity>();
+				seedSig.add(cls);
+				seedSig.addAll(hierarchy.getSubClasses(cls, manager.getOWLDataFactory()));
+				seedSigs.add(seedSig);
+			}
+		}
+
+		long start = System.nanoTime();
+		SyntacticLocalityModuleExtractor owlapiExtractor = new SyntacticLocalityModuleExtractor(manager, onto, ModuleType.STAR);
+		long owlapiSetup = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		IndexedLocalityExtractor indexedExtractor = new IndexedLocalityExtractor(onto, ModuleType.STAR);
+		long indexedSetup = System.nanoTime() - start;
+
+		long owlapiTime = 0;
+		long indexedTime = 0;
+		int identical = 0;
+
+		for (Set<OWLEntity> seedSig : seedSigs) {
+
+			start = System.nanoTime();
+			Set<OWLAxiom> owlapiModule = owlapiExtractor.extract(seedSig);
+			owlapiTime += System.nanoTime() - start;
+
+			start = System.nanoTime();
+			Set<OWLAxiom> indexedModule = indexedExtractor.extract(seedSig);
+			indexedTime += System.nanoTime() - start;
+
+			if (owlapiModule.equals(indexedModule)) {
+				identical++;
+			} else {
+				System.out.println("Different modules for " + seedSig + ": " + owlapiModule.size() + " (OWL API) vs " + indexedModule.size() + " (indexed) axioms");
+			}
+		}
+
+		System.out.println("engine\tsetup (ms)\textraction (ms)");
+		System.out.println("owlapi\t" + String.format("%.1f", owlapiSetup / 1e6) + "\t" + String.format("%.1f", owlapiTime / 1e6));
+		System.out.println("indexed\t" + String.format("%.1f", indexedSetup / 1e6) + "\t" + String.format("%.1f", indexedTime / 1e6));
+		System.out.println(identical + " of " + seedSigs.size() + " modules identical");
+	}
+
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import misc.OntologySnapshot;
+import modularisation.ModuleNetworkDependencyManager;
+import modularisation.ModuleNetworkLoader;
+import modularisation.OutlierDetector;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+/**
+ * Compares finding the outlier classes of ontology modules with the StructuralReasoner against the OutlierDetector working on the asserted axioms,
+ * and checks that both give the same outlier classes.
+ * @author audunvennesland
+ *
+ */
+public class OutlierBenchmark {
+
+	/**
+	 * Test method
+	 * @param args The paths to the ontology module files, or to folders holding ontology modules, optionally followed by the number of rounds to time
+	 * (after one warm-up round)
+	 * @throws OWLOntologyCreationException
+	 */
+	public static void main(String[] args) throws OWLOntologyCreationException {
+
+		if (args.length == 0) {
+			System.out.println("Usage: OutlierBenchmark ontologyFile|folder ... [rounds]");
+			return;
+		}
+
+		int rounds = 10;
+		List<File> moduleFiles = new ArrayList<File>();
+		List<OWLOntology> modules = new ArrayList<OWLOntology>();
+
+		for (String arg : args) {
+			File file = new File(arg);
+			if (file.isDirectory()) {
+				//the modules of a folder are loaded together, each module parsed once
+				for (Map.Entry<File, OWLOntology> module : ModuleNetworkLoader.loadNetwork(file, Runtime.getRuntime().availableProcessors()).entrySet()) {
+					moduleFiles.add(module.getKey());
+					modules.add(module.getValue());
+				}
+			} else if (file.exists()) {
+				OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+				moduleFiles.add(file);
+				modules.add(OntologySnapshot.load(manager, file));
+			} else {
+				rounds = Integer.parseInt(arg);
+			}
+		}
+
+		long reasonerTime = 0;
+		long assertedTime = 0;
+		int identical = 0;
+
+		for (int round = 0; round <= rounds; round++) {
+			for (int i = 0; i < modules.size(); i++) {
+
+				long start = System.nanoTime();
+				Set<OWLClass> reasonerOutliers = ModuleNetworkDependencyManager.findOutliersWithReasoner(modules.get(i));
+				long reasonerModuleTime = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				Set<OWLClass> assertedOutliers = OutlierDetector.findOutliers(modules.get(i));
+				long assertedModuleTime = System.nanoTime() - start;
+
+				//the first round warms up the JVM and checks the results
+				if (round == 0) {
+					if (reasonerOutliers.equals(assertedOutliers)) {
+						identical++;
+					} else {
+						System.out.println("Different outliers for " + moduleFiles.get(i) + ": " + reasonerOutliers.size() + " (reasoner) vs " + assertedOutliers.size() + " (asserted) classes");
+					}
+				} else {
+					reasonerTime += reasonerModuleTime;
+					assertedTime += assertedModuleTime;
+				}
+			}
+		}
+
+		System.out.println("detector\ttime per round (ms)");
+		System.out.println("reasoner\t" + String.format("%.1f", reasonerTime / 1e6 / Math.max(1, rounds)));
+		System.out.println("asserted\t" + String.format("%.1f", assertedTime / 1e6 / Math.max(1, rounds)));
+		System.out.println(identical + " of " + modules.size() + " modules with identical outliers");
+	}
+
+}
@@ -0,0 +1,97 @@
+package benchmark;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import modularisation.ModuleNetworkLoader;
+import modularisation.NamespaceRewriter;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.util.OWLEntityRenamer;
+
+/**
+ * Compares renaming all entities of a module with one OWLEntityRenamer call per entity against the one-pass NamespaceRewriter.
+ * @author audunvennesland
+ *
+ */
+public class RenameBenchmark {
+
+	static final int runs = 5;
+
+	/**
+	 * Test method
+	 * @param args An optional path to the folder holding the modules to rename
+	 * @throws OWLOntologyCreationException
+	 */
+	public static void main(String[] args) throws OWLOntologyCreationException {
+
+		String ontologyModules = args.length > 0 ? args[0] : "./test-files/modules/output-modules";
+
+		System.out.println("module\taxioms\tentities\trenamer (ms)\trewriter (ms)\tspeedup\tidentical");
+
+		//the modules are loaded together, each module parsed once
+		Map<File, OWLOntology> modules = ModuleNetworkLoader.loadNetwork(new File(ontologyModules), Runtime.getRuntime().availableProcessors());
+
+		for (Map.Entry<File, OWLOntology> entry : modules.entrySet()) {
+
+			File moduleFile = entry.getKey();
+			OWLOntology module = entry.getValue();
+			OWLOntologyManager manager = module.getOWLOntologyManager();
+			IRI ontologyIRI = IRI.create("http://www.project-best.eu/owl/airm-mod/renamed-" + moduleFile.getName());
+
+			long renamerTime = Long.MAX_VALUE;
+			long rewriterTime = Long.MAX_VALUE;
+			Set<OWLAxiom> renamed = null;
+			Set<OWLAxiom> rewritten = null;
+
+			//keep the best of a number of runs to reduce the influence of JIT compilation and garbage collection
+			for (int i = 0; i < runs; i++) {
+
+				long start = System.nanoTime();
+				renamed = renameEntities(module.getAxioms(), ontologyIRI);
+				renamerTime = Math.min(renamerTime, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				rewritten = NamespaceRewriter.rewrite(module.getAxioms(), ontologyIRI, manager.getOWLDataFactory());
+				rewriterTime = Math.min(rewriterTime, System.nanoTime() - start);
+			}
+
+			System.out.println(moduleFile.getName() + "\t" + module.getAxiomCount() + "\t" + module.getSignature().size() + "\t"
+					+ String.format("%.1f", renamerTime / 1e6) + "\t" + String.format("%.1f", rewriterTime / 1e6) + "\t"
+					+ String.format("%.1fx", (double) renamerTime / rewriterTime) + "\t" + renamed.equals(rewritten));
+		}
+	}
+
+	/**
+	 * Renames the entities of a set of axioms one by one, as done by the ModuleExtractor before the NamespaceRewriter was introduced.
+	 * @param axioms The axioms whose entities are renamed
+	 * @param ontologyIRI The IRI of the ontology module
+	 * @return The renamed axioms
+	 * @throws OWLOntologyCreationException
+	 */
+	private static Set<OWLAxiom> renameEntities(Set<OWLAxiom> axioms, IRI ontologyIRI) throws OWLOntologyCreationException {
+
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		OWLOntology onto = manager.createOntology(axioms, ontologyIRI);
+
+		OWLEntityRenamer renamer = new OWLEntityRenamer(manager, Collections.singleton(onto));
+
+		for (OWLEntity e : onto.getSignature()) {
+			List<OWLOntologyChange> changeIRI = renamer.changeIRI(e, IRI.create(ontologyIRI.toString() + "#" + e.getIRI().getFragment()));
+			manager.applyChanges(changeIRI);
+		}
+
+		return onto.getAxioms();
+	}
+
+}
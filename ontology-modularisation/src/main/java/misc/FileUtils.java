@@ -0,0 +1,99 @@
+package misc;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class provides helper-methods for files, such as computing content hashes used for detecting when cached data derived from a file is outdated.
+ * @author audunvennesland
+ *
+ */
+public class FileUtils {
+
+	//the file extensions of ontology documents
+	static final Set<String> ontologyExtensions = new HashSet<String>(Arrays.asList("owl", "rdf", "xml", "ttl", "owx", "ofn", "omn"));
+
+	/**
+	 * Computes the SHA-256 hash of the content of a file
+	 * @param file The file to hash
+	 * @return The hash as a hexadecimal string
+	 * @throws IOException
+	 */
+	public static String contentHash(File file) throws IOException {
+
+		MessageDigest digest = null;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[65536];
+			int read = 0;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Computes the SHA-256 hash of a string, encoded as UTF-8
+	 * @param content The string to hash
+	 * @return The hash as a hexadecimal string
+	 * @throws IOException
+	 */
+	public static String contentHash(String content) throws IOException {
+
+		try {
+			return toHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes("UTF-8")));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hash = new StringBuilder();
+		for (byte b : bytes) {
+			hash.append(String.format("%02x", b));
+		}
+		return hash.toString();
+	}
+
+	/**
+	 * Lists the ontology files in a folder, leaving out subfolders and other files such as the snapshots stored next to the ontology files
+	 * @param folder The folder holding the ontology files
+	 * @return The ontology files, in the order given by File.listFiles()
+	 */
+	public static File[] listOntologyFiles(File folder) {
+
+		return folder.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.isFile() && isOntologyFile(file.getName());
+			}
+		});
+	}
+
+	/**
+	 * Checks whether a file name has the extension of an ontology document
+	 * @param fileName The file name
+	 * @return true if the file is an ontology document
+	 */
+	public static boolean isOntologyFile(String fileName) {
+		return ontologyExtensions.contains(fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase());
+	}
+
+}
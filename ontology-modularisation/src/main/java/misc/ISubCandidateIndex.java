@@ -0,0 +1,229 @@
+package misc;
+
+import java.util.Arrays;
+
+/**
+ * An in-memory inverted index of the trigrams (substrings of three characters) of a set of names, finding the names that can reach an ISub score
+ * threshold with a given name (blocking), so that only those candidates have to be scored by ISub.score instead of all names.
+ * The names are normalised the way ISub.score normalises them (lower-cased, without '.', '_' and ' '). A name is a candidate only when it cannot be
+ * ruled out from how ISub computes the score:
+ * - ISub only counts common substrings of more than two characters, and the first one it finds is a substring of both normalised names. Two names not
+ *   sharing a trigram therefore have no common substrings, and then score at most 0.2 (from the common prefix alone), or 1.0 when both are empty.
+ * - The characters of the common substrings are matched one to one, so the length of the common substrings is at most the number of characters the
+ *   two names have in common (counted with repetitions). The score grows with the length of the common substrings, so the score these characters would
+ *   give, together with the common prefix of the names, is an upper bound of the score.
+ * The candidates are the names sharing a trigram with the name and having an upper bound reaching the threshold, so for thresholds above 0.2 no name
+ * scoring at least the threshold is left out. For lower thresholds all names are candidates.
+ * The index is not thread-safe.
+ * @author audunvennesland
+ *
+ */
+public class ISubCandidateIndex {
+
+	//the highest score of two names without common substrings, from a common prefix of four characters
+	static final double maxScoreWithoutCommon = 0.2;
+
+	//the names as given (for the common prefix), and their normalised characters in order and in sorted order
+	private final String[] names;
+	private final char[][] normalised;
+	private final char[][] sortedChars;
+
+	//the names having each trigram, by trigram ID, in the order of the names
+	private final StringDictionary trigrams = new StringDictionary();
+	private int[][] postings = new int[256][];
+	private int[] postingSizes = new int[256];
+
+	//the names normalised to the empty string, which score 1.0 with each other
+	private final int[] emptyNames;
+
+	//the query a name was last seen in, so each candidate is checked once per query
+	private final int[] seen;
+	private int query = 0;
+
+	/**
+	 * Indexes a set of names
+	 * @param names The names, lower-cased as they are given to ISub.score
+	 */
+	public ISubCandidateIndex(String[] names) {
+
+		this.names = names;
+		normalised = new char[names.length][];
+		sortedChars = new char[names.length][];
+		seen = new int[names.length];
+
+		int[] empty = new int[names.length];
+		int numEmpty = 0;
+
+		for (int i = 0; i < names.length; i++) {
+			normalised[i] = normalise(names[i]);
+			sortedChars[i] = normalised[i].clone();
+			Arrays.sort(sortedChars[i]);
+
+			if (normalised[i].length == 0) {
+				empty[numEmpty++] = i;
+			}
+
+			for (int k = 0; k + 3 <= normalised[i].length; k++) {
+				int trigram = trigrams.getID(new String(normalised[i], k, 3));
+				//a name is posted once for each of its trigrams
+				if (trigram < postingSizes.length && postingSizes[trigram] > 0 && postings[trigram][postingSizes[trigram] - 1] == i) {
+					continue;
+				}
+				post(trigram, i);
+			}
+		}
+
+		emptyNames = Arrays.copyOf(empty, numEmpty);
+	}
+
+	/**
+	 * Returns the indexed names that can reach a score threshold with a name
+	 * @param name The name, lower-cased as it is given to ISub.score, to be scored as the second name against the indexed names
+	 * @param threshold The score threshold
+	 * @return The positions of the candidate names in the indexed names, in increasing order
+	 */
+	public int[] getCandidates(String name, double threshold) {
+
+		if (threshold <= maxScoreWithoutCommon) {
+			int[] all = new int[names.length];
+			for (int i = 0; i < all.length; i++) {
+				all[i] = i;
+			}
+			return all;
+		}
+
+		char[] chars = normalise(name);
+		if (chars.length == 0) {
+			return emptyNames.clone();
+		}
+
+		char[] sorted = chars.clone();
+		Arrays.sort(sorted);
+
+		int[] candidates = new int[16];
+		int numCandidates = 0;
+
+		query++;
+		for (int k = 0; k + 3 <= chars.length; k++) {
+			int trigram = trigrams.lookup(new String(chars, k, 3));
+			if (trigram < 0) {
+				continue;
+			}
+			for (int p = 0; p < postingSizes[trigram]; p++) {
+				int i = postings[trigram][p];
+				if (seen[i] == query) {
+					continue;
+				}
+				seen[i] = query;
+
+				int common = getCommonCharacters(sortedChars[i], sorted);
+				int prefix = getCommonPrefix(names[i], name);
+				if (score(common, normalised[i].length, chars.length, prefix) >= threshold) {
+					if (numCandidates == candidates.length) {
+						candidates = Arrays.copyOf(candidates, numCandidates * 2);
+					}
+					candidates[numCandidates++] = i;
+				}
+			}
+		}
+
+		candidates = Arrays.copyOf(candidates, numCandidates);
+		Arrays.sort(candidates);
+
+		return candidates;
+	}
+
+	/**
+	 * Returns the score ISub gives two names from the length of their common substrings, as computed at the end of ISub.score
+	 * @param common The total length of the common substrings
+	 * @param length1 The length of the first normalised name
+	 * @param length2 The length of the second normalised name
+	 * @param prefix The length of the common prefix of the names
+	 * @return The score
+	 */
+	static double score(double common, int length1, int length2, int prefix) {
+
+		if (length1 == 0 && length2 == 0) {
+			return 1;
+		}
+		if (length1 == 0 || length2 == 0) {
+			return 0;
+		}
+
+		double commonality = (2*common)/(length1+length2);
+		double winklerImprovement = Math.min(4, prefix)*0.1*(1-commonality);
+
+		double unmatched1 = (length1 - common)/length1;
+		double unmatched2 = (length2 - common)/length2;
+
+		//the Hamacher product of the unmatched parts
+		double sum = unmatched1 + unmatched2;
+		double product = unmatched1 * unmatched2;
+		double dissimilarity = (sum-product) == 0 ? 0 : product/(0.6+(1-0.6)*(sum-product));
+
+		return (commonality - dissimilarity + winklerImprovement + 1)/2;
+	}
+
+	/**
+	 * Returns the number of characters two strings have in common, counted with repetitions, from their characters in sorted order
+	 */
+	private static int getCommonCharacters(char[] sorted1, char[] sorted2) {
+
+		int common = 0;
+		for (int i = 0, j = 0; i < sorted1.length && j < sorted2.length; ) {
+			if (sorted1[i] == sorted2[j]) {
+				common++;
+				i++;
+				j++;
+			} else if (sorted1[i] < sorted2[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		//common substrings are longer than two characters
+		return common > 2 ? common : 0;
+	}
+
+	private static int getCommonPrefix(String s1, String s2) {
+		int n = Math.min(s1.length(), s2.length());
+		int i = 0;
+		while (i < n && s1.charAt(i) == s2.charAt(i)) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the characters of a name as normalised by ISub.score: lower-cased, without '.', '_' and ' '
+	 */
+	static char[] normalise(String name) {
+
+		String lowerCase = name.toLowerCase();
+		char[] chars = new char[lowerCase.length()];
+		int length = 0;
+		for (int i = 0; i < lowerCase.length(); i++) {
+			char c = lowerCase.charAt(i);
+			if (c != '.' && c != '_' && c != ' ') {
+				chars[length++] = c;
+			}
+		}
+
+		return length == chars.length ? chars : Arrays.copyOf(chars, length);
+	}
+
+	private void post(int trigram, int name) {
+
+		if (trigram == postings.length) {
+			postings = Arrays.copyOf(postings, trigram * 2);
+			postingSizes = Arrays.copyOf(postingSizes, trigram * 2);
+		}
+		if (postings[trigram] == null) {
+			postings[trigram] = new int[4];
+		} else if (postingSizes[trigram] == postings[trigram].length) {
+			postings[trigram] = Arrays.copyOf(postings[trigram], postingSizes[trigram] * 2);
+		}
+		postings[trigram][postingSizes[trigram]++] = name;
+	}
+
+}
@@ -1,13 +1,26 @@
 package misc;
 
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import org.semanticweb.owl.align.Alignment;
 import org.semanticweb.owl.align.AlignmentException;
 import org.semanticweb.owl.align.AlignmentProcess;
 
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
 import fr.inrialpes.exmo.align.impl.ObjectAlignment;
+import fr.inrialpes.exmo.ontowrap.LoadedOntology;
 import fr.inrialpes.exmo.ontowrap.OntowrapException;
+import fr.inrialpes.exmo.ontowrap.owlapi30.OWLAPI3Ontology;
 
 /**
  * This string matcher implements the iSub string matching algorithm written by Stolios et al in the paper "A String Metric for Ontology Alignment".
@@ -16,24 +29,123 @@ import fr.inrialpes.exmo.ontowrap.OntowrapException;
  */
 public class ISubMatcher extends ObjectAlignment implements AlignmentProcess {
 
-	ISub isubMatcher = new ISub();
+	static final String formalism = "OWL2.0";
+	static final String formalismURI = "http://www.w3.org/2002/07/owl#";
+
+	ISub isubMatcher = new ISubScorer();
+
+	/**
+	 * Initialises the alignment with two ontologies. Ontologies given as file URIs are loaded through their snapshots (see OntologySnapshot) 
+	 * instead of being parsed by the Alignment API, other arguments are handled by ObjectAlignment.
+	 * @param onto1 The first ontology (a LoadedOntology or a URI)
+	 * @param onto2 The second ontology (a LoadedOntology or a URI)
+	 * @throws AlignmentException
+	 */
+	public void init(Object onto1, Object onto2) throws AlignmentException {
+		super.init(loadOntology(onto1), loadOntology(onto2));
+	}
+
+	/**
+	 * Loads an ontology given as a file URI (e.g. file:test-files/modules/aircraft.owl) from its snapshot and wraps it as a LoadedOntology, in the same way as the
+	 * OWL API 3 ontology factory of the Alignment API does.
+	 * @param onto The ontology (a URI)
+	 * @return The loaded ontology, or onto itself if it is not a file URI
+	 * @throws AlignmentException
+	 */
+	public static Object loadOntology(Object onto) throws AlignmentException {
+
+		if (!(onto instanceof URI) || !"file".equals(((URI) onto).getScheme())) {
+			return onto;
+		}
+
+		URI uri = (URI) onto;
+		File ontoFile = getFile(uri);
+
+		try {
+			//a manager with its own data factory, as ontologies may be loaded on several threads
+			OWLOntology ontology = OntologySnapshot.load(OWLManager.createOWLOntologyManager(new OWLDataFactoryImpl()), ontoFile);
+
+			OWLAPI3Ontology loaded = new OWLAPI3Ontology();
+			loaded.setFormalism(formalism);
+			loaded.setFormURI(new URI(formalismURI));
+			loaded.setOntology(ontology);
+			loaded.setFile(uri);
+			if (!ontology.getOntologyID().isAnonymous()) {
+				loaded.setURI(ontology.getOntologyID().getOntologyIRI().toURI());
+			}
+
+			return loaded;
+		} catch (OWLOntologyCreationException e) {
+			throw new AlignmentException("Cannot load " + uri, e);
+		} catch (URISyntaxException e) {
+			throw new AlignmentException("Invalid formalism URI", e);
+		}
+	}
+
+	/**
+	 * Returns the file of a file URI, which may be relative to the working folder (e.g. file:test-files/modules/aircraft.owl)
+	 * @param uri The file URI
+	 * @return The file
+	 */
+	static File getFile(URI uri) {
+		return uri.isOpaque() ? new File(uri.getSchemeSpecificPart()) : new File(uri);
+	}
 
+	/**
+	 * Matches the classes of the two ontologies, adding a cell with the ISub score of each pair of classes. When the parameters have a "threshold",
+	 * only the pairs of classes that can score at least the threshold are scored and added, so the alignment cut at the threshold is the same.
+	 * @param alignment Not used
+	 * @param param The parameters of the matching, optionally with a "threshold"
+	 * @throws AlignmentException
+	 */
 	public void align(Alignment alignment, Properties param) throws AlignmentException {
 
 		try {
-			// Match classes
-			for ( Object cl2: ontology2().getClasses() ){
-				for ( Object cl1: ontology1().getClasses() ){
+			//the lower-cased names of the classes are built once, instead of again for every pair of classes
+			List<Object> classes1 = new ArrayList<Object>(ontology1().getClasses());
+			String[] names1 = getLowerCaseNames(ontology1(), classes1);
+			List<Object> classes2 = new ArrayList<Object>(ontology2().getClasses());
+			String[] names2 = getLowerCaseNames(ontology2(), classes2);
+
+			String threshold = param == null ? null : param.getProperty("threshold");
+
+			if (threshold == null) {
+				// Match classes
+				for (int j = 0; j < classes2.size(); j++) {
+					for (int i = 0; i < classes1.size(); i++) {
+
+						// add mapping into alignment object 
+						addAlignCell(classes1.get(i), classes2.get(j), "=", isubMatcher.score(names1[i], names2[j]));
+					}
 
-					// add mapping into alignment object 
-					addAlignCell(cl1,cl2, "=", iSubScore(cl1,cl2));  
 				}
+			} else {
+				//only the pairs of classes that can reach the threshold are scored (see ISubCandidateIndex)
+				double minScore = Double.parseDouble(threshold);
 
+				ISubCandidateIndex candidates = new ISubCandidateIndex(names1);
+
+				for (int j = 0; j < classes2.size(); j++) {
+					for (int i : candidates.getCandidates(names2[j], minScore)) {
+						addAlignCell(classes1.get(i), classes2.get(j), "=", isubMatcher.score(names1[i], names2[j]));
+					}
+				}
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
 	}
 
+	/**
+	 * Returns the lower-cased names of a list of entities
+	 */
+	private static String[] getLowerCaseNames(LoadedOntology<?> ontology, List<Object> entities) throws OntowrapException {
+		String[] names = new String[entities.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = ontology.getEntityName(entities.get(i)).toLowerCase();
+		}
+		return names;
+	}
+
 	/**
 	 * This method returns a measure computed from two input OWL entities (processed as strings) using iSub algorithm (Stolios et al, 2005)
 	 * @param o1 object representing an OWL entitiy
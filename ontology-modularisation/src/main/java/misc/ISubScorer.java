@@ -0,0 +1,179 @@
+package misc;
+
+import java.util.Locale;
+
+/**
+ * The ISub string metric computed without allocating: the same algorithm as ISub.score, giving the same scores (bit for bit), but working on the
+ * characters of the names in char arrays instead of on strings. The names are lower-cased and normalised (without '.', '_' and ' ') in one pass into the
+ * arrays, and each common substring found is cut out of the arrays by moving the characters after it, instead of building new strings. The arrays are
+ * kept per thread and reused, so the scorer can be shared by several threads.
+ * Names that are not ASCII, or lower-cased in a locale with special rules for ASCII letters, are lower-cased by String.toLowerCase() as ISub does,
+ * which allocates when the names are not already lower-cased.
+ * @author audunvennesland
+ *
+ */
+public class ISubScorer extends ISub {
+
+	//the characters of the two names being scored, kept by each thread and grown when a longer name is scored
+	private static final ThreadLocal<char[][]> buffers = new ThreadLocal<char[][]>() {
+		protected char[][] initialValue() {
+			return new char[][] { new char[64], new char[64] };
+		}
+	};
+
+	//whether the default locale lower-cases the ASCII letters as Character.toLowerCase() does (not Turkish, Azeri or Lithuanian)
+	private static final boolean asciiLowerCase = !Locale.getDefault().getLanguage().matches("tr|az|lt");
+
+	/**
+	 * Returns the ISub score of two names, the same as ISub.score
+	 * @param st1 The first name
+	 * @param st2 The second name
+	 * @return The score, from 0 to 1, or -1 if a name is null
+	 */
+	public double score(String st1, String st2) {
+
+		if (st1 == null || st2 == null) return -1;
+
+		char[][] chars = buffers.get();
+		int l1 = normalise(st1, chars, 0);
+		int l2 = normalise(st2, chars, 1);
+		char[] s1 = chars[0];
+		char[] s2 = chars[1];
+
+		int L1 = l1;
+		int L2 = l2;
+
+		if ((L1 == 0) && (L2 == 0)) return 1;
+		if ((L1 == 0) || (L2 == 0)) return 0;
+
+		double common = 0;
+		int best = 2;
+
+		while (l1 > 0 && l2 > 0 && best != 0) {
+			best = 0; // the best substring length so far
+
+			int startS2 = 0;
+			int endS2 = 0;
+			int startS1 = 0;
+			int endS1 = 0;
+
+			//the same search as ISub.score, which does not always find the longest common substring
+			for (int i = 0; (i < l1) && (l1 - i > best); i++) {
+				int j = 0;
+				while (l2 - j > best) {
+					int k = i;
+					for (; (j < l2) && (s1[k] != s2[j]); j++);
+
+					if (j != l2) { // we have found a starting point
+						int p = j;
+						for (j++, k++; (j < l2) && (k < l1) && (s1[k] == s2[j]); j++, k++);
+						if (k - i > best) {
+							best = k - i;
+							startS1 = i;
+							endS1 = k;
+							startS2 = p;
+							endS2 = j;
+						}
+					}
+				}
+			}
+
+			//cut the substring out of both names
+			System.arraycopy(s1, endS1, s1, startS1, l1 - endS1);
+			l1 -= endS1 - startS1;
+			System.arraycopy(s2, endS2, s2, startS2, l2 - endS2);
+			l2 -= endS2 - startS2;
+
+			if (best > 2)
+				common += best;
+			else
+				best = 0;
+		}
+
+		//the rest is computed as in ISub.score, in the same order of operations
+		double commonality = (2*common)/(L1+L2);
+
+		int prefix = 0;
+		int n = Math.min(st1.length(), st2.length());
+		while (prefix < n && st1.charAt(prefix) == st2.charAt(prefix)) {
+			prefix++;
+		}
+		double commonPrefixLength = Math.min(4, prefix);
+		double winklerImprovement = commonPrefixLength*0.1*(1-commonality);
+
+		double unmatchedS1 = (L1 - common)/L1;
+		double unmatchedS2 = (L2 - common)/L2;
+
+		//Hamacher product
+		double suma = unmatchedS1 + unmatchedS2;
+		double product = unmatchedS1 * unmatchedS2;
+		double p = 0.6;
+		double dissimilarity;
+		if ((suma-product) == 0)
+			dissimilarity = 0;
+		else
+			dissimilarity = (product)/(p+(1-p)*(suma-product));
+
+		double result = commonality - dissimilarity + winklerImprovement;
+		return (result+1)/2;
+	}
+
+	/**
+	 * Lower-cases a name and removes '.', '_' and ' ' from it, as ISub.score does, into an array of the thread
+	 * @param name The name
+	 * @param chars The arrays of the thread, grown if the name is longer than its array
+	 * @param buffer The array to normalise the name into, 0 or 1
+	 * @return The length of the normalised name
+	 */
+	private static int normalise(String name, char[][] chars, int buffer) {
+
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c >= 0x80 || !asciiLowerCase) {
+				return removeSeparators(name.toLowerCase(), chars, buffer);
+			}
+		}
+
+		char[] normalised = getBuffer(chars, buffer, name.length());
+		int length = 0;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			if (c != '.' && c != '_' && c != ' ') {
+				normalised[length++] = c;
+			}
+		}
+
+		return length;
+	}
+
+	/**
+	 * Removes '.', '_' and ' ' from a lower-cased name into an array of the thread
+	 */
+	private static int removeSeparators(String lowerCase, char[][] chars, int buffer) {
+
+		char[] normalised = getBuffer(chars, buffer, lowerCase.length());
+		int length = 0;
+		for (int i = 0; i < lowerCase.length(); i++) {
+			char c = lowerCase.charAt(i);
+			if (c != '.' && c != '_' && c != ' ') {
+				normalised[length++] = c;
+			}
+		}
+
+		return length;
+	}
+
+	/**
+	 * Returns an array of the thread holding at least a number of characters, replacing it by a longer array if needed
+	 */
+	private static char[] getBuffer(char[][] chars, int buffer, int length) {
+		if (chars[buffer].length < length) {
+			chars[buffer] = new char[Math.max(length, chars[buffer].length * 2)];
+		}
+		return chars[buffer];
+	}
+
+}
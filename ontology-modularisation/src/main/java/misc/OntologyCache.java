@@ -0,0 +1,145 @@
+package misc;
+
+import java.net.URI;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.semanticweb.owl.align.AlignmentException;
+
+/**
+ * A cache of the ontologies loaded for the Alignment API (ISubMatcher.loadOntology), so that the matchers of a run comparing many pairs of ontologies
+ * share one loaded copy of each ontology instead of loading both ontologies of every pair. The loaded ontologies are only read by the matchers, and can
+ * be shared by matchers on different threads: an ontology requested by several threads at the same time is loaded once, by the first of them.
+ * The cache holds ontologies up to a capacity, measured as the total size of their files, and evicts the least recently used ontologies beyond that.
+ * An evicted ontology is loaded again if it is requested later.
+ * @author audunvennesland
+ *
+ */
+public class OntologyCache {
+
+	private final long capacity;
+
+	//the loading or loaded ontologies in the order of their last use, and the total size of their files
+	private final LinkedHashMap<URI, CachedOntology> ontologies = new LinkedHashMap<URI, CachedOntology>(16, 0.75f, true);
+	private long size = 0;
+
+	private int numLoads = 0;
+	private int numEvictions = 0;
+
+	/**
+	 * Creates a cache
+	 * @param capacity The total size (in bytes) of the files of the ontologies held. The most recently used ontology is held even if its file is larger.
+	 */
+	public OntologyCache(long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns an ontology given as a file URI, loading it if it is not in the cache
+	 * @param uri The file URI of the ontology
+	 * @return The loaded ontology
+	 * @throws AlignmentException
+	 */
+	public Object get(final URI uri) throws AlignmentException {
+
+		CachedOntology ontology;
+		boolean load = false;
+
+		synchronized (this) {
+			ontology = ontologies.get(uri);
+			if (ontology == null) {
+				ontology = new CachedOntology(ISubMatcher.getFile(uri).length(), new FutureTask<Object>(new Callable<Object>() {
+					public Object call() throws Exception {
+						return ISubMatcher.loadOntology(uri);
+					}
+				}));
+				ontologies.put(uri, ontology);
+				size += ontology.size;
+				numLoads++;
+				load = true;
+				evict();
+			}
+		}
+
+		//the ontology is loaded outside the lock, so that other ontologies can be loaded meanwhile
+		if (load) {
+			ontology.loaded.run();
+		}
+
+		try {
+			return ontology.loaded.get();
+		} catch (ExecutionException e) {
+			synchronized (this) {
+				if (ontologies.get(uri) == ontology) {
+					ontologies.remove(uri);
+					size -= ontology.size;
+				}
+			}
+			if (e.getCause() instanceof AlignmentException) {
+				throw (AlignmentException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new AlignmentException("Cannot load " + uri, (Exception) e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AlignmentException("Loading of " + uri + " was interrupted", e);
+		}
+	}
+
+	/**
+	 * Evicts the least recently used ontologies until the ontologies held fit within the capacity, keeping the most recently used one
+	 */
+	private void evict() {
+		Iterator<CachedOntology> eldest = ontologies.values().iterator();
+		while (size > capacity && ontologies.size() > 1) {
+			CachedOntology ontology = eldest.next();
+			eldest.remove();
+			size -= ontology.size;
+			numEvictions++;
+		}
+	}
+
+	/**
+	 * Returns the number of times an ontology has been loaded, counting an ontology loaded again after being evicted
+	 * @return The number of loads
+	 */
+	public synchronized int getLoadCount() {
+		return numLoads;
+	}
+
+	/**
+	 * Returns the number of ontologies evicted from the cache
+	 * @return The number of evictions
+	 */
+	public synchronized int getEvictionCount() {
+		return numEvictions;
+	}
+
+	/**
+	 * Returns the total size of the files of the ontologies held
+	 * @return The size in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * An ontology being loaded or loaded, and the size of its file
+	 */
+	private static class CachedOntology {
+
+		final long size;
+		final FutureTask<Object> loaded;
+
+		CachedOntology(long size, FutureTask<Object> loaded) {
+			this.size = size;
+			this.loaded = loaded;
+		}
+	}
+
+}
@@ -0,0 +1,764 @@
+package misc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A lightweight scan of an ontology file, reading the ontology IRI, the import declarations, the classes and the named superclasses of each class
+ * (the named classes and named conjuncts of intersections in subclass and equivalent class statements) without building OWL API objects.
+ * RDF/XML files are read with a StAX stream reader and OWL functional syntax files with a line scanner. The scan covers the way the OWL API writes
+ * ontologies, which in RDF/XML types every class as owl:Class: a file using a construct the scan does not cover (e.g. rdf:Description or blank node IDs
+ * in RDF/XML, an IRI that cannot be resolved, or another syntax) is reported as not scanned, and should be loaded by the OWL API instead. So is an
+ * RDF/XML file using a class it does not type as owl:Class (e.g. as a superclass or in a restriction), since the scan would miss the class. In
+ * functional syntax the classes are also read from the class expressions of the class axioms, class assertions and domains and ranges.
+ * The scanned classes are kept as IDs in a StringDictionary, which the scans of all modules in a network can share so that each class IRI is stored once.
+ * @author audunvennesland
+ *
+ */
+public class OntologyScan {
+
+	static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+	static final String RDFS = "http://www.w3.org/2000/01/rdf-schema#";
+	static final String OWL = "http://www.w3.org/2002/07/owl#";
+	static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+	static final String thing = OWL + "Thing";
+	static final String nothing = OWL + "Nothing";
+
+	//the properties whose values in RDF/XML are classes (or, for data properties, datatypes)
+	static final Set<String> classProperties = new HashSet<String>(Arrays.asList(RDFS + "subClassOf", OWL + "equivalentClass", OWL + "disjointWith",
+			OWL + "complementOf", OWL + "someValuesFrom", OWL + "allValuesFrom", OWL + "onClass", RDFS + "domain", RDFS + "range", OWL + "intersectionOf",
+			OWL + "unionOf", OWL + "disjointUnionOf"));
+
+	static final Charset utf8 = Charset.forName("UTF-8");
+
+	static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+
+	static {
+		//OWL API files declare entities in an internal DTD, external entities are never needed
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+	}
+
+	private final StringDictionary dictionary;
+
+	private String ontologyIRI;
+	private final List<String> imports = new ArrayList<String>();
+
+	//the classes and the named superclasses of each class while the file is being scanned
+	private Set<String> classes = new LinkedHashSet<String>();
+	private Map<String, Set<String>> parents = new HashMap<String, Set<String>>();
+
+	//the IDs in the dictionary of the classes, and of each class and superclass pair (class ID, superclass ID, class ID, ...), once the file is scanned
+	private int[] classIDs;
+	private int[] parentIDs;
+
+	private OntologyScan(StringDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Scans an ontology file, with the class IRIs in a dictionary of their own
+	 * @param ontoFile The ontology file
+	 * @return The scan, or null if the file uses a syntax or construct the scan does not cover
+	 * @throws IOException
+	 */
+	public static OntologyScan scan(File ontoFile) throws IOException {
+		return scan(ontoFile, new StringDictionary());
+	}
+
+	/**
+	 * Scans an ontology file, with the class IRIs in a dictionary that may be shared by the scans of other files (on the same thread)
+	 * @param ontoFile The ontology file
+	 * @param dictionary The dictionary the class IRIs are added to
+	 * @return The scan, or null if the file uses a syntax or construct the scan does not cover
+	 * @throws IOException
+	 */
+	public static OntologyScan scan(File ontoFile, StringDictionary dictionary) throws IOException {
+
+		InputStream in = new BufferedInputStream(new FileInputStream(ontoFile));
+
+		try {
+			//the syntax is told by the first character that is not white space
+			in.mark(4096);
+			int c;
+			do {
+				c = in.read();
+			} while (c != -1 && Character.isWhitespace(c));
+			in.reset();
+
+			OntologyScan scan = new OntologyScan(dictionary);
+
+			boolean scanned = false;
+			if (c == '<') {
+				scanned = scan.scanRDFXML(in, ontoFile);
+			} else if (c == 'P' || c == 'O') {
+				scanned = scan.scanFunctional(in);
+			}
+
+			if (!scanned) {
+				return null;
+			}
+
+			scan.compact();
+			return scan;
+
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the ontology IRI
+	 * @return The ontology IRI, or null for an anonymous ontology
+	 */
+	public String getOntologyIRI() {
+		return ontologyIRI;
+	}
+
+	/**
+	 * Returns the IRIs of the imported ontologies
+	 * @return The imported ontology IRIs, in the order of the file
+	 */
+	public List<String> getImports() {
+		return imports;
+	}
+
+	/**
+	 * Returns the classes of the ontology: the declared classes, and owl:Thing and owl:Nothing if they are used
+	 * @return The class IRIs
+	 */
+	public Set<String> getClasses() {
+		Set<String> classIRIs = new LinkedHashSet<String>();
+		for (int id : classIDs) {
+			classIRIs.add(dictionary.get(id));
+		}
+		return classIRIs;
+	}
+
+	/**
+	 * Returns the named superclasses of each class having any
+	 * @return The superclass IRIs by class IRI
+	 */
+	public Map<String, Set<String>> getParents() {
+		Map<String, Set<String>> parentIRIs = new HashMap<String, Set<String>>();
+		for (int i = 0; i < parentIDs.length; i += 2) {
+			String child = dictionary.get(parentIDs[i]);
+			if (!parentIRIs.containsKey(child)) {
+				parentIRIs.put(child, new HashSet<String>());
+			}
+			parentIRIs.get(child).add(dictionary.get(parentIDs[i + 1]));
+		}
+		return parentIRIs;
+	}
+
+	/**
+	 * Returns the dictionary holding the class IRIs of the scan
+	 * @return The dictionary
+	 */
+	public StringDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Returns the classes of the ontology as IDs in the dictionary
+	 * @return The class IDs
+	 */
+	public int[] getClassIDs() {
+		return classIDs;
+	}
+
+	/**
+	 * Returns the named superclasses of the classes as pairs of IDs in the dictionary
+	 * @return The class ID and superclass ID of each pair, one pair after another
+	 */
+	public int[] getParentIDs() {
+		return parentIDs;
+	}
+
+	/**
+	 * Replaces the classes and superclasses read from the file by their IDs in the dictionary
+	 */
+	private void compact() {
+
+		classIDs = new int[classes.size()];
+		int i = 0;
+		for (String cls : classes) {
+			classIDs[i++] = dictionary.getID(cls);
+		}
+
+		int pairs = 0;
+		for (Set<String> classParents : parents.values()) {
+			pairs += classParents.size();
+		}
+
+		parentIDs = new int[2 * pairs];
+		i = 0;
+		for (Map.Entry<String, Set<String>> classParents : parents.entrySet()) {
+			int child = dictionary.getID(classParents.getKey());
+			for (String parent : classParents.getValue()) {
+				parentIDs[i++] = child;
+				parentIDs[i++] = dictionary.getID(parent);
+			}
+		}
+
+		classes = null;
+		parents = null;
+	}
+
+	private void addParent(String child, String parent) {
+		Set<String> classParents = parents.get(child);
+		if (classParents == null) {
+			classParents = new HashSet<String>();
+			parents.put(child, classParents);
+		}
+		classParents.add(parent);
+	}
+
+	/**
+	 * Adds a class used in a statement, which for owl:Thing and owl:Nothing is not declared
+	 */
+	private void useClass(String iri) {
+		if (iri.equals(thing) || iri.equals(nothing)) {
+			classes.add(iri);
+		}
+	}
+
+	/**
+	 * Scans an RDF/XML file
+	 * @return false if the file uses a construct the scan does not cover
+	 */
+	private boolean scanRDFXML(InputStream in, File ontoFile) throws IOException {
+
+		try {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+
+			try {
+				String base = ontoFile.toURI().toString();
+
+				//the element depth, and the class, property and class expression being read at depth 1, 2 and 3 (and deeper for intersections)
+				int depth = 0;
+				String subject = null;
+				String subjectType = null;
+				String property = null;
+
+				//the depth of the intersection collection whose members are the named conjuncts of the class expression being read, -1 if none
+				int conjunctDepth = -1;
+
+				//the elements from the root to the current element
+				List<String> path = new ArrayList<String>();
+
+				//the IRIs used as classes (or datatypes), which must be typed as owl:Class (or rdfs:Datatype) somewhere in the file
+				Set<String> usedClasses = new HashSet<String>();
+				Set<String> datatypes = new HashSet<String>();
+
+				while (reader.hasNext()) {
+
+					int event = reader.next();
+
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						depth++;
+
+						String element = reader.getNamespaceURI() + reader.getLocalName();
+						String parent = path.isEmpty() ? null : path.get(path.size() - 1);
+						path.add(element);
+						String about = getIRI(reader, "about", base);
+						String resource = getIRI(reader, "resource", base);
+
+						if (reader.getAttributeValue(RDF, "nodeID") != null) {
+							return false;
+						}
+
+						if (depth == 1) {
+							if (!element.equals(RDF + "RDF")) {
+								return false;
+							}
+							String xmlBase = reader.getAttributeValue("http://www.w3.org/XML/1998/namespace", "base");
+							if (xmlBase != null) {
+								base = xmlBase;
+							}
+
+						} else if (depth == 2) {
+							if (element.equals(RDF + "Description")) {
+								//the OWL API writes statements about owl:Thing and owl:Nothing, which are not declared, as untyped descriptions
+								if (about == null || !(about.equals(thing) || about.equals(nothing))) {
+									return false;
+								}
+								element = OWL + "Class";
+							}
+							subjectType = element;
+							subject = about;
+							useClass(element);
+
+							if (element.equals(RDFS + "Datatype")) {
+								datatypes.add(about);
+							} else if (!isVocabulary(element)) {
+								//an individual typed by the class
+								usedClasses.add(element);
+							}
+
+							if (element.equals(OWL + "Ontology")) {
+								ontologyIRI = about;
+							} else if (element.equals(OWL + "Class")) {
+								if (about == null) {
+									return false;
+								}
+								classes.add(about);
+							} else if (about == null && !element.equals(OWL + "Axiom") && !element.equals(OWL + "AllDisjointClasses")
+									&& !element.equals(OWL + "AllDifferent") && !element.equals(OWL + "AllDisjointProperties")) {
+								//anonymous subjects other than annotated axioms and n-ary axioms (e.g. general class axioms)
+								return false;
+							}
+
+						} else if (depth == 3) {
+							property = element;
+
+							if (subjectType.equals(OWL + "Ontology") && element.equals(OWL + "imports") && resource != null) {
+								imports.add(resource);
+							} else if (subjectType.equals(OWL + "Class") && resource != null) {
+								if (element.equals(RDFS + "subClassOf")) {
+									addParent(subject, resource);
+									useClass(resource);
+								} else if (element.equals(OWL + "equivalentClass")) {
+									addParent(subject, resource);
+									addParent(resource, subject);
+									useClass(resource);
+								} else if (element.equals(RDF + "type") && !resource.equals(OWL + "Class")) {
+									return false;
+								}
+							} else if (resource != null) {
+								useClass(resource);
+							}
+
+							if (resource != null && !isVocabulary(resource) && !subjectType.equals(OWL + "AnnotationProperty")
+									&& (classProperties.contains(element) || element.equals(RDF + "type"))) {
+								usedClasses.add(resource);
+							}
+
+						} else {
+							boolean superClass = subjectType.equals(OWL + "Class") && (property.equals(RDFS + "subClassOf") || property.equals(OWL + "equivalentClass"));
+
+							if (superClass && (depth == 4 || depth == conjunctDepth + 1)) {
+								//a superclass, or a member of an intersection of a superclass
+								if (about != null) {
+									addParent(subject, about);
+									useClass(about);
+									if (depth == 4 && property.equals(OWL + "equivalentClass")) {
+										addParent(about, subject);
+									}
+								}
+							} else if (superClass && element.equals(OWL + "intersectionOf") && parent.equals(OWL + "Class")
+									&& (depth == 5 || depth == conjunctDepth + 2)) {
+								//the members of an intersection of a superclass, or of a nested intersection, are also superclasses
+								conjunctDepth = depth;
+							}
+
+							if (element.equals(OWL + "intersectionOf") || element.equals(OWL + "unionOf") || element.equals(OWL + "oneOf")
+									|| element.equals(OWL + "members") || element.equals(OWL + "distinctMembers") || element.equals(OWL + "propertyChainAxiom")) {
+								String parseType = reader.getAttributeValue(RDF, "parseType");
+								if (parseType == null || !parseType.equals("Collection")) {
+									return false;
+								}
+							}
+
+							if (resource != null) {
+								useClass(resource);
+								if (classProperties.contains(element) && !isVocabulary(resource)) {
+									usedClasses.add(resource);
+								}
+							}
+							if (about != null && !isVocabulary(about)
+									&& (classProperties.contains(parent) || (parent.equals(OWL + "members") && subjectType.equals(OWL + "AllDisjointClasses")))) {
+								usedClasses.add(about);
+							}
+						}
+
+					} else if (event == XMLStreamConstants.END_ELEMENT) {
+						if (depth == conjunctDepth) {
+							//the end of a (nested) intersection
+							conjunctDepth = depth > 5 ? depth - 2 : -1;
+						}
+						path.remove(path.size() - 1);
+						depth--;
+					}
+				}
+
+				for (String cls : usedClasses) {
+					if (!classes.contains(cls) && !datatypes.contains(cls)) {
+						return false;
+					}
+				}
+
+			} finally {
+				reader.close();
+			}
+
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not scan " + ontoFile + ": " + e.getMessage(), e);
+		} catch (IllegalArgumentException e) {
+			//an IRI or base IRI that is not a valid URI
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks whether an IRI is in the RDF, RDFS, OWL or XML Schema vocabulary, such as the built-in classes and datatypes
+	 */
+	private static boolean isVocabulary(String iri) {
+		return iri.startsWith(RDF) || iri.startsWith(RDFS) || iri.startsWith(OWL) || iri.startsWith(XSD);
+	}
+
+	/**
+	 * Returns an rdf:about or rdf:resource IRI (or the IRI given by rdf:ID) of the current element, resolved against the base IRI
+	 */
+	private static String getIRI(XMLStreamReader reader, String attribute, String base) {
+
+		String value = reader.getAttributeValue(RDF, attribute);
+
+		if (value == null && attribute.equals("about")) {
+			String id = reader.getAttributeValue(RDF, "ID");
+			if (id != null) {
+				value = "#" + id;
+			}
+		}
+
+		if (value == null || value.indexOf(':') > 0) {
+			return value;
+		}
+
+		return URI.create(base).resolve(value).toString();
+	}
+
+	/**
+	 * Scans an OWL functional syntax file, one statement (which may span several lines) at a time
+	 * @return false if the file uses a construct the scan does not cover
+	 */
+	private boolean scanFunctional(InputStream in) throws IOException {
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, utf8));
+
+		Map<String, String> prefixes = new HashMap<String, String>();
+		StringBuilder statement = new StringBuilder();
+		boolean inOntology = false;
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+
+			String trimmed = line.trim();
+			if (statement.length() == 0 && (trimmed.isEmpty() || trimmed.startsWith("#"))) {
+				continue;
+			}
+
+			if (!inOntology && trimmed.startsWith("Ontology(")) {
+				//the ontology header, the remaining statements are inside it
+				inOntology = true;
+				List<Object> header = parseFunctional(trimmed.substring("Ontology(".length()), prefixes);
+				if (header == null) {
+					return false;
+				}
+				if (!header.isEmpty() && header.get(0) instanceof String) {
+					ontologyIRI = (String) header.get(0);
+				}
+				continue;
+			}
+
+			statement.append(line).append('\n');
+
+			int balance = getBalance(statement);
+			if (balance > 0) {
+				continue;
+			}
+
+			String text = statement.toString().trim();
+			statement.setLength(0);
+
+			if (text.equals(")")) {
+				//the end of the ontology
+				continue;
+			}
+
+			List<Object> parsed = parseFunctional(text, prefixes);
+			if (parsed == null || parsed.size() != 1 || !(parsed.get(0) instanceof List)) {
+				return false;
+			}
+
+			@SuppressWarnings("unchecked")
+			List<Object> expression = (List<Object>) parsed.get(0);
+			String keyword = (String) expression.get(0);
+
+			if (keyword.equals("Prefix")) {
+				continue;
+			}
+
+			useClassExpression(expression);
+			addClasses(keyword, getArguments(expression));
+
+			if (keyword.equals("Import")) {
+				imports.add((String) expression.get(1));
+			} else if (keyword.equals("Declaration")) {
+				Object entity = getArguments(expression).get(0);
+				if (entity instanceof List && ((List<?>) entity).get(0).equals("Class")) {
+					classes.add((String) ((List<?>) entity).get(1));
+				}
+			} else if (keyword.equals("SubClassOf")) {
+				List<Object> arguments = getArguments(expression);
+				Object subClass = arguments.get(0);
+				if (subClass instanceof String) {
+					addConjuncts((String) subClass, arguments.get(1));
+				}
+			} else if (keyword.equals("EquivalentClasses")) {
+				List<Object> arguments = getArguments(expression);
+				for (Object cls : arguments) {
+					if (cls instanceof String) {
+						for (Object other : arguments) {
+							if (!other.equals(cls)) {
+								addConjuncts((String) cls, other);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		return inOntology;
+	}
+
+	/**
+	 * Adds the classes of the class expressions of a functional syntax axiom
+	 */
+	private void addClasses(String keyword, List<Object> arguments) {
+		if (keyword.equals("SubClassOf") || keyword.equals("EquivalentClasses") || keyword.equals("DisjointClasses") || keyword.equals("DisjointUnion")) {
+			for (Object argument : arguments) {
+				addClasses(argument);
+			}
+		} else if (keyword.equals("ClassAssertion") || keyword.equals("HasKey")) {
+			addClasses(arguments.get(0));
+		} else if (keyword.equals("ObjectPropertyDomain") || keyword.equals("ObjectPropertyRange") || keyword.equals("DataPropertyDomain")) {
+			addClasses(arguments.get(1));
+		}
+	}
+
+	/**
+	 * Adds the classes of a functional syntax class expression
+	 */
+	private void addClasses(Object classExpression) {
+		if (classExpression instanceof String) {
+			classes.add((String) classExpression);
+			return;
+		}
+		if (!(classExpression instanceof List)) {
+			return;
+		}
+
+		List<?> expression = (List<?>) classExpression;
+		String keyword = (String) expression.get(0);
+
+		if (keyword.equals("ObjectIntersectionOf") || keyword.equals("ObjectUnionOf")) {
+			for (int i = 1; i < expression.size(); i++) {
+				addClasses(expression.get(i));
+			}
+		} else if (keyword.equals("ObjectComplementOf")) {
+			addClasses(expression.get(1));
+		} else if (keyword.equals("ObjectSomeValuesFrom") || keyword.equals("ObjectAllValuesFrom")) {
+			addClasses(expression.get(2));
+		} else if ((keyword.equals("ObjectMinCardinality") || keyword.equals("ObjectMaxCardinality") || keyword.equals("ObjectExactCardinality")) && expression.size() > 3) {
+			addClasses(expression.get(3));
+		}
+	}
+
+	/**
+	 * Adds the named conjuncts of a class expression as superclasses of a class
+	 */
+	private void addConjuncts(String child, Object classExpression) {
+		if (classExpression instanceof String) {
+			addParent(child, (String) classExpression);
+		} else if (((List<?>) classExpression).get(0).equals("ObjectIntersectionOf")) {
+			List<?> operands = (List<?>) classExpression;
+			for (int i = 1; i < operands.size(); i++) {
+				addConjuncts(child, operands.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Adds owl:Thing and owl:Nothing if they are used in an expression
+	 */
+	private void useClassExpression(Object classExpression) {
+		if (classExpression instanceof String) {
+			useClass((String) classExpression);
+		} else {
+			for (Object operand : (List<?>) classExpression) {
+				if (operand instanceof String || operand instanceof List) {
+					useClassExpression(operand);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the arguments of a functional syntax expression, leaving out its annotations
+	 */
+	private static List<Object> getArguments(List<Object> expression) {
+		List<Object> arguments = new ArrayList<Object>();
+		for (int i = 1; i < expression.size(); i++) {
+			Object argument = expression.get(i);
+			if (!(argument instanceof List && ((List<?>) argument).get(0).equals("Annotation"))) {
+				arguments.add(argument);
+			}
+		}
+		return arguments;
+	}
+
+	/**
+	 * Returns the number of opened and not yet closed parentheses of a statement, outside of literals and full IRIs
+	 */
+	private static int getBalance(CharSequence text) {
+		int balance = 0;
+		boolean literal = false;
+		boolean iri = false;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (literal) {
+				if (c == '\\') {
+					i++;
+				} else if (c == '"') {
+					literal = false;
+				}
+			} else if (iri) {
+				iri = c != '>';
+			} else if (c == '"') {
+				literal = true;
+			} else if (c == '<') {
+				iri = true;
+			} else if (c == '(') {
+				balance++;
+			} else if (c == ')') {
+				balance--;
+			}
+		}
+		return balance;
+	}
+
+	/**
+	 * Parses functional syntax into nested lists, where the first element of a list is its keyword, IRIs (full or abbreviated) are expanded to strings
+	 * and literals are left out. Prefix declarations are added to the prefixes.
+	 * @return The parsed expressions, or null if an abbreviated IRI has an unknown prefix
+	 */
+	private static List<Object> parseFunctional(String text, Map<String, String> prefixes) {
+
+		List<List<Object>> stack = new ArrayList<List<Object>>();
+		List<Object> top = new ArrayList<Object>();
+		stack.add(top);
+
+		int i = 0;
+		while (i < text.length()) {
+			char c = text.charAt(i);
+
+			if (Character.isWhitespace(c) || c == '=') {
+				i++;
+			} else if (c == '(') {
+				List<Object> expression = new ArrayList<Object>();
+				List<Object> current = stack.get(stack.size() - 1);
+				//the keyword was read as a token before the parenthesis
+				if (current.isEmpty() || !(current.get(current.size() - 1) instanceof Keyword)) {
+					return null;
+				}
+				expression.add(((Keyword) current.remove(current.size() - 1)).name);
+				current.add(expression);
+				stack.add(expression);
+				i++;
+			} else if (c == ')') {
+				if (stack.size() == 1) {
+					//the end of the ontology
+					i++;
+					continue;
+				}
+				List<Object> expression = stack.remove(stack.size() - 1);
+				if (expression.get(0).equals("Prefix") && expression.size() == 3) {
+					prefixes.put((String) expression.get(1), (String) expression.get(2));
+				}
+				i++;
+			} else if (c == '<') {
+				int end = text.indexOf('>', i);
+				if (end == -1) {
+					return null;
+				}
+				stack.get(stack.size() - 1).add(text.substring(i + 1, end));
+				i = end + 1;
+			} else if (c == '"') {
+				//a literal, with an optional language tag or datatype
+				i++;
+				while (i < text.length() && text.charAt(i) != '"') {
+					i += text.charAt(i) == '\\' ? 2 : 1;
+				}
+				i++;
+				if (text.startsWith("^^", i)) {
+					i += 2;
+				}
+				while (i < text.length() && !Character.isWhitespace(text.charAt(i)) && text.charAt(i) != ')' && text.charAt(i) != '<') {
+					i++;
+				}
+			} else {
+				int end = i;
+				while (end < text.length() && !Character.isWhitespace(text.charAt(end)) && "()<>\"=".indexOf(text.charAt(end)) == -1) {
+					end++;
+				}
+				String token = text.substring(i, end);
+				List<Object> current = stack.get(stack.size() - 1);
+
+				if (end < text.length() && text.charAt(end) == '(' ) {
+					current.add(new Keyword(token));
+				} else if (!current.isEmpty() && current.get(0).equals("Prefix")) {
+					//the prefix name of a prefix declaration
+					current.add(token.substring(0, token.length() - 1));
+				} else if (token.indexOf(':') != -1) {
+					String prefix = token.substring(0, token.indexOf(':'));
+					String namespace = prefixes.get(prefix);
+					if (namespace == null) {
+						return null;
+					}
+					current.add(namespace + token.substring(token.indexOf(':') + 1));
+				} else {
+					current.add(new Keyword(token));
+				}
+				i = end;
+			}
+		}
+
+		return top;
+	}
+
+	/**
+	 * A keyword of functional syntax, such as the name of an expression or an anonymous individual
+	 */
+	private static class Keyword {
+		final String name;
+
+		Keyword(String name) {
+			this.name = name;
+		}
+	}
+
+}
@@ -0,0 +1,1005 @@
+package misc;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.io.FileDocumentSource;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.ClassExpressionType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAnnotationPropertyDomainAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationValue;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLCardinalityRestriction;
+import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDataHasValue;
+import org.semanticweb.owlapi.model.OWLDataPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLDataPropertyDomainAxiom;
+import org.semanticweb.owlapi.model.OWLDataPropertyExpression;
+import org.semanticweb.owlapi.model.OWLDataPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLDataRange;
+import org.semanticweb.owlapi.model.OWLDeclarationAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLIndividual;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLNaryBooleanClassExpression;
+import org.semanticweb.owlapi.model.OWLNaryClassAxiom;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLObjectComplementOf;
+import org.semanticweb.owlapi.model.OWLObjectHasValue;
+import org.semanticweb.owlapi.model.OWLObjectOneOf;
+import org.semanticweb.owlapi.model.OWLObjectPropertyAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLObjectPropertyDomainAxiom;
+import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
+import org.semanticweb.owlapi.model.OWLObjectPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyFormat;
+import org.semanticweb.owlapi.model.OWLOntologyID;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.model.OWLQuantifiedRestriction;
+import org.semanticweb.owlapi.model.OWLSubAnnotationPropertyOfAxiom;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+import org.semanticweb.owlapi.model.OWLSubDataPropertyOfAxiom;
+import org.semanticweb.owlapi.model.OWLSubObjectPropertyOfAxiom;
+import org.semanticweb.owlapi.model.OWLUnaryPropertyAxiom;
+import org.semanticweb.owlapi.model.OWLInverseObjectPropertiesAxiom;
+import org.semanticweb.owlapi.model.PrefixManager;
+import org.semanticweb.owlapi.vocab.PrefixOWLOntologyFormat;
+
+/**
+ * A compact binary snapshot of a parsed ontology, used for loading an ontology without parsing its RDF/XML (or other) source file. All IRIs and strings are
+ * stored once in a string table and the axioms are encoded as integer codes referring to this table. The snapshot is stored in a snapshot folder apart from
+ * the ontology file (so loading never writes to the folder of the ontology), is memory-mapped when it is read, and is keyed by the content hash of the
+ * ontology file so that it is rebuilt when the file changes.
+ * Ontologies using constructs the snapshot format does not cover (e.g. anonymous individuals or complex data ranges) are simply parsed every time. For
+ * these a marker snapshot is stored, so that they are not encoded (and reported) again until the file changes.
+ * Imported ontologies are loaded by the manager as usual.
+ * @author audunvennesland
+ *
+ */
+public class OntologySnapshot {
+
+	static final String suffix = ".snapshot";
+	static final int magic = 0x4f534e50;
+	static final int version = 2;
+
+	//the folder of the snapshots, kept apart from the ontology files so that loading an ontology never writes to its folder
+	static File snapshotFolder = new File(System.getProperty("modularisation.snapshotdir", new File(System.getProperty("java.io.tmpdir"), "ontology-snapshots").getPath()));
+
+	static final Charset utf8 = Charset.forName("UTF-8");
+
+	//the axiom types and class expression types covered by the snapshot format, the code of each type is its position in the array
+	static final AxiomType<?>[] axiomTypes = {
+		AxiomType.DECLARATION, AxiomType.SUBCLASS_OF, AxiomType.EQUIVALENT_CLASSES, AxiomType.DISJOINT_CLASSES,
+		AxiomType.OBJECT_PROPERTY_DOMAIN, AxiomType.OBJECT_PROPERTY_RANGE, AxiomType.DATA_PROPERTY_DOMAIN, AxiomType.DATA_PROPERTY_RANGE,
+		AxiomType.SUB_OBJECT_PROPERTY, AxiomType.SUB_DATA_PROPERTY, AxiomType.INVERSE_OBJECT_PROPERTIES,
+		AxiomType.FUNCTIONAL_OBJECT_PROPERTY, AxiomType.INVERSE_FUNCTIONAL_OBJECT_PROPERTY, AxiomType.TRANSITIVE_OBJECT_PROPERTY,
+		AxiomType.SYMMETRIC_OBJECT_PROPERTY, AxiomType.FUNCTIONAL_DATA_PROPERTY,
+		AxiomType.CLASS_ASSERTION, AxiomType.OBJECT_PROPERTY_ASSERTION, AxiomType.DATA_PROPERTY_ASSERTION,
+		AxiomType.ANNOTATION_ASSERTION, AxiomType.SUB_ANNOTATION_PROPERTY_OF, AxiomType.ANNOTATION_PROPERTY_DOMAIN, AxiomType.ANNOTATION_PROPERTY_RANGE
+	};
+
+	static final ClassExpressionType[] classExpressionTypes = {
+		ClassExpressionType.OWL_CLASS, ClassExpressionType.OBJECT_INTERSECTION_OF, ClassExpressionType.OBJECT_UNION_OF,
+		ClassExpressionType.OBJECT_COMPLEMENT_OF, ClassExpressionType.OBJECT_ONE_OF,
+		ClassExpressionType.OBJECT_SOME_VALUES_FROM, ClassExpressionType.OBJECT_ALL_VALUES_FROM, ClassExpressionType.OBJECT_HAS_VALUE,
+		ClassExpressionType.OBJECT_MIN_CARDINALITY, ClassExpressionType.OBJECT_EXACT_CARDINALITY, ClassExpressionType.OBJECT_MAX_CARDINALITY,
+		ClassExpressionType.DATA_SOME_VALUES_FROM, ClassExpressionType.DATA_ALL_VALUES_FROM, ClassExpressionType.DATA_HAS_VALUE,
+		ClassExpressionType.DATA_MIN_CARDINALITY, ClassExpressionType.DATA_EXACT_CARDINALITY, ClassExpressionType.DATA_MAX_CARDINALITY
+	};
+
+	//the size of the string table of a marker snapshot, stored for an ontology using a construct the snapshot format does not cover
+	static final int notCovered = -1;
+
+	static final int CLASS = 0, OBJECT_PROPERTY = 1, DATA_PROPERTY = 2, ANNOTATION_PROPERTY = 3, NAMED_INDIVIDUAL = 4, DATATYPE = 5;
+
+	//annotation values
+	static final int VALUE_IRI = 0, VALUE_LITERAL = 1;
+
+	/**
+	 * Loads an ontology from its snapshot if there is an up-to-date snapshot in the snapshot folder, otherwise the ontology file is parsed
+	 * and a snapshot is stored for later runs. The loaded ontology has the ontology file as its document IRI, so it can be saved as if it was parsed.
+	 * @param manager The ontology manager in which the ontology is loaded
+	 * @param ontoFile The ontology file
+	 * @return The loaded ontology
+	 * @throws OWLOntologyCreationException
+	 */
+	public static OWLOntology load(OWLOntologyManager manager, File ontoFile) throws OWLOntologyCreationException {
+		return load(manager, ontoFile, new OWLOntologyLoaderConfiguration());
+	}
+
+	/**
+	 * Loads an ontology from its snapshot or ontology file as load(manager, ontoFile), with a loader configuration. The imports ignored by the configuration
+	 * are declared in the loaded ontology, but not loaded.
+	 * @param manager The ontology manager in which the ontology is loaded
+	 * @param ontoFile The ontology file
+	 * @param configuration The loader configuration
+	 * @return The loaded ontology
+	 * @throws OWLOntologyCreationException
+	 */
+	public static OWLOntology load(OWLOntologyManager manager, File ontoFile, OWLOntologyLoaderConfiguration configuration) throws OWLOntologyCreationException {
+
+		String hash = null;
+		try {
+			hash = FileUtils.contentHash(ontoFile);
+		} catch (IOException e) {
+			throw new OWLOntologyCreationException("Could not read " + ontoFile, e);
+		}
+
+		File snapshotFile = getSnapshotFile(ontoFile);
+
+		if (snapshotFile.exists()) {
+			try {
+				OWLOntology onto = read(manager, ontoFile, snapshotFile, hash, configuration);
+				if (onto != null) {
+					return onto;
+				}
+			} catch (UnsupportedConstructException e) {
+				//the file is known to use a construct the snapshot format does not cover, so it is parsed without trying to store a snapshot again
+				return manager.loadOntologyFromOntologyDocument(new FileDocumentSource(ontoFile), configuration);
+			} catch (IOException e) {
+				System.err.println("Could not read ontology snapshot " + snapshotFile + ", the ontology will be parsed: " + e.getMessage());
+			}
+		}
+
+		OWLOntology onto = manager.loadOntologyFromOntologyDocument(new FileDocumentSource(ontoFile), configuration);
+
+		try {
+			write(onto, hash, snapshotFile);
+		} catch (UnsupportedConstructException e) {
+			//a marker snapshot records that the file (with this content hash) is to be parsed in later runs
+			System.out.println("No snapshot of " + ontoFile + " (" + e.getMessage() + "), the ontology will be parsed");
+			try {
+				writeFile(snapshotFile, hash, null);
+			} catch (IOException e2) {
+				System.err.println("Could not store ontology snapshot " + snapshotFile + ": " + e2.getMessage());
+			}
+		} catch (IOException e) {
+			System.err.println("Could not store ontology snapshot " + snapshotFile + ": " + e.getMessage());
+		}
+
+		return onto;
+	}
+
+	/**
+	 * Returns the snapshot file of an ontology file in the snapshot folder, named after the ontology file and its path, so that ontology files with the same
+	 * name in different folders have different snapshots
+	 * @param ontoFile The ontology file
+	 * @return The snapshot file
+	 */
+	public static File getSnapshotFile(File ontoFile) {
+		String path = ontoFile.getAbsoluteFile().toURI().normalize().getPath();
+		return new File(snapshotFolder, ontoFile.getName() + "-" + String.format("%08x", path.hashCode()) + suffix);
+	}
+
+	/**
+	 * Sets the folder the snapshots are stored in, by default ontology-snapshots in the temporary folder. It can also be set with the system property
+	 * modularisation.snapshotdir.
+	 * @param folder The snapshot folder, created when the first snapshot is stored
+	 */
+	public static void setSnapshotFolder(File folder) {
+		snapshotFolder = folder;
+	}
+
+	/**
+	 * Writes a snapshot of an ontology. The snapshot is first written to a temporary file which then replaces the snapshot file, so that a snapshot being read
+	 * is never half-written.
+	 * @param onto The ontology
+	 * @param ontologyHash The content hash of the ontology file
+	 * @param snapshotFile The snapshot file
+	 * @throws IOException if the snapshot cannot be written or the ontology uses a construct not covered by the snapshot format
+	 */
+	public static void write(OWLOntology onto, String ontologyHash, File snapshotFile) throws IOException {
+
+		Encoder encoder = new Encoder();
+		encoder.writeOntology(onto);
+
+		writeFile(snapshotFile, ontologyHash, encoder);
+	}
+
+	/**
+	 * Writes a snapshot file from an encoded ontology, or a marker snapshot of an ontology not covered by the snapshot format if the encoder is null
+	 */
+	private static void writeFile(File snapshotFile, String ontologyHash, Encoder encoder) throws IOException {
+
+		File folder = snapshotFile.getAbsoluteFile().getParentFile();
+		folder.mkdirs();
+		File tmpFile = File.createTempFile(snapshotFile.getName(), ".tmp", folder);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+
+		try {
+			out.writeInt(magic);
+			out.writeInt(version);
+			writeString(out, ontologyHash);
+
+			if (encoder == null) {
+				out.writeInt(notCovered);
+			} else {
+				out.writeInt(encoder.strings.size());
+				for (String s : encoder.strings) {
+					writeString(out, s);
+				}
+
+				encoder.body.writeTo(out);
+			}
+		} finally {
+			out.close();
+		}
+
+		try {
+			Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	 * Reads the ontology from a snapshot file
+	 * @return The ontology, or null if the snapshot is outdated
+	 */
+	private static OWLOntology read(OWLOntologyManager manager, File ontoFile, File snapshotFile, String ontologyHash, OWLOntologyLoaderConfiguration configuration) throws IOException, OWLOntologyCreationException {
+
+		ByteBuffer in = null;
+
+		RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			file.close();
+		}
+
+		OWLOntology onto = null;
+
+		try {
+			if (in.getInt() != magic || in.getInt() != version) {
+				throw new IOException("Unsupported ontology snapshot version");
+			}
+
+			if (!readString(in).equals(ontologyHash)) {
+				return null;
+			}
+
+			int numStrings = in.getInt();
+			if (numStrings == notCovered) {
+				throw new UnsupportedConstructException("The ontology uses a construct not covered by the snapshot format");
+			}
+
+			String[] strings = new String[numStrings];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = readString(in);
+			}
+
+			Decoder decoder = new Decoder(in, strings, manager.getOWLDataFactory());
+			onto = decoder.readOntology(manager);
+			manager.setOntologyDocumentIRI(onto, IRI.create(ontoFile));
+
+			//the imported ontologies are loaded before the imports are declared, so that the manager links each imports declaration to the loaded ontology
+			List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+			for (IRI importIRI : decoder.imports) {
+				if (!manager.contains(importIRI) && !configuration.isIgnoredImport(importIRI)) {
+					manager.loadOntology(importIRI);
+				}
+				changes.add(new AddImport(onto, manager.getOWLDataFactory().getOWLImportsDeclaration(importIRI)));
+			}
+			manager.applyChanges(changes);
+
+			return onto;
+
+		} catch (BufferUnderflowException e) {
+			removeOntology(manager, onto);
+			throw new IOException("Truncated ontology snapshot", e);
+		} catch (IOException e) {
+			removeOntology(manager, onto);
+			throw e;
+		} catch (OWLOntologyCreationException e) {
+			removeOntology(manager, onto);
+			throw e;
+		}
+	}
+
+	private static void removeOntology(OWLOntologyManager manager, OWLOntology onto) {
+		if (onto != null) {
+			manager.removeOntology(onto);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(utf8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, utf8);
+	}
+
+	/**
+	 * Thrown when an ontology uses a construct the snapshot format does not cover, when it is encoded or when its marker snapshot is read
+	 */
+	static class UnsupportedConstructException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedConstructException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Encodes an ontology as integer codes, collecting the string table on the way
+	 */
+	private static class Encoder {
+
+		final List<String> strings = new ArrayList<String>();
+		final Map<String, Integer> stringIDs = new HashMap<String, Integer>();
+		final Map<AxiomType<?>, Integer> axiomCodes = new HashMap<AxiomType<?>, Integer>();
+		final Map<ClassExpressionType, Integer> classExpressionCodes = new HashMap<ClassExpressionType, Integer>();
+
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(body);
+
+		Encoder() {
+			for (int i = 0; i < axiomTypes.length; i++) {
+				axiomCodes.put(axiomTypes[i], i);
+			}
+			for (int i = 0; i < classExpressionTypes.length; i++) {
+				classExpressionCodes.put(classExpressionTypes[i], i);
+			}
+		}
+
+		void writeOntology(OWLOntology onto) throws IOException {
+
+			OWLOntologyID id = onto.getOntologyID();
+			writeOptionalIRI(id.getOntologyIRI());
+			writeOptionalIRI(id.getVersionIRI());
+
+			OWLOntologyFormat format = onto.getOWLOntologyManager().getOntologyFormat(onto);
+			writeOptionalString(format == null ? null : format.getClass().getName());
+
+			if (format instanceof PrefixOWLOntologyFormat) {
+				Map<String, String> prefixes = ((PrefixManager) format).getPrefixName2PrefixMap();
+				out.writeInt(prefixes.size());
+				for (Map.Entry<String, String> prefix : prefixes.entrySet()) {
+					writeStringID(prefix.getKey());
+					writeStringID(prefix.getValue());
+				}
+			} else {
+				out.writeInt(0);
+			}
+
+			out.writeInt(onto.getImportsDeclarations().size());
+			for (OWLImportsDeclaration importsDeclaration : onto.getImportsDeclarations()) {
+				writeIRI(importsDeclaration.getIRI());
+			}
+
+			writeAnnotations(onto.getAnnotations());
+
+			out.writeInt(onto.getAxiomCount());
+			for (OWLAxiom axiom : onto.getAxioms()) {
+				writeAxiom(axiom);
+			}
+		}
+
+		void writeAxiom(OWLAxiom axiom) throws IOException {
+
+			Integer code = axiomCodes.get(axiom.getAxiomType());
+			if (code == null) {
+				throw new UnsupportedConstructException("Unsupported axiom type " + axiom.getAxiomType());
+			}
+
+			out.writeByte(code);
+			writeAnnotations(axiom.getAnnotations());
+
+			AxiomType<?> type = axiom.getAxiomType();
+
+			if (type == AxiomType.DECLARATION) {
+				writeEntity(((OWLDeclarationAxiom) axiom).getEntity());
+			} else if (type == AxiomType.SUBCLASS_OF) {
+				writeClassExpression(((OWLSubClassOfAxiom) axiom).getSubClass());
+				writeClassExpression(((OWLSubClassOfAxiom) axiom).getSuperClass());
+			} else if (type == AxiomType.EQUIVALENT_CLASSES || type == AxiomType.DISJOINT_CLASSES) {
+				writeClassExpressions(((OWLNaryClassAxiom) axiom).getClassExpressions());
+			} else if (type == AxiomType.OBJECT_PROPERTY_DOMAIN) {
+				writeObjectProperty(((OWLObjectPropertyDomainAxiom) axiom).getProperty());
+				writeClassExpression(((OWLObjectPropertyDomainAxiom) axiom).getDomain());
+			} else if (type == AxiomType.OBJECT_PROPERTY_RANGE) {
+				writeObjectProperty(((OWLObjectPropertyRangeAxiom) axiom).getProperty());
+				writeClassExpression(((OWLObjectPropertyRangeAxiom) axiom).getRange());
+			} else if (type == AxiomType.DATA_PROPERTY_DOMAIN) {
+				writeDataProperty(((OWLDataPropertyDomainAxiom) axiom).getProperty());
+				writeClassExpression(((OWLDataPropertyDomainAxiom) axiom).getDomain());
+			} else if (type == AxiomType.DATA_PROPERTY_RANGE) {
+				writeDataProperty(((OWLDataPropertyRangeAxiom) axiom).getProperty());
+				writeDataRange(((OWLDataPropertyRangeAxiom) axiom).getRange());
+			} else if (type == AxiomType.SUB_OBJECT_PROPERTY) {
+				writeObjectProperty(((OWLSubObjectPropertyOfAxiom) axiom).getSubProperty());
+				writeObjectProperty(((OWLSubObjectPropertyOfAxiom) axiom).getSuperProperty());
+			} else if (type == AxiomType.SUB_DATA_PROPERTY) {
+				writeDataProperty(((OWLSubDataPropertyOfAxiom) axiom).getSubProperty());
+				writeDataProperty(((OWLSubDataPropertyOfAxiom) axiom).getSuperProperty());
+			} else if (type == AxiomType.INVERSE_OBJECT_PROPERTIES) {
+				writeObjectProperty(((OWLInverseObjectPropertiesAxiom) axiom).getFirstProperty());
+				writeObjectProperty(((OWLInverseObjectPropertiesAxiom) axiom).getSecondProperty());
+			} else if (type == AxiomType.FUNCTIONAL_DATA_PROPERTY) {
+				writeDataProperty((OWLDataPropertyExpression) ((OWLUnaryPropertyAxiom<?>) axiom).getProperty());
+			} else if (type == AxiomType.FUNCTIONAL_OBJECT_PROPERTY || type == AxiomType.INVERSE_FUNCTIONAL_OBJECT_PROPERTY
+					|| type == AxiomType.TRANSITIVE_OBJECT_PROPERTY || type == AxiomType.SYMMETRIC_OBJECT_PROPERTY) {
+				writeObjectProperty((OWLObjectPropertyExpression) ((OWLUnaryPropertyAxiom<?>) axiom).getProperty());
+			} else if (type == AxiomType.CLASS_ASSERTION) {
+				writeIndividual(((OWLClassAssertionAxiom) axiom).getIndividual());
+				writeClassExpression(((OWLClassAssertionAxiom) axiom).getClassExpression());
+			} else if (type == AxiomType.OBJECT_PROPERTY_ASSERTION) {
+				writeIndividual(((OWLObjectPropertyAssertionAxiom) axiom).getSubject());
+				writeObjectProperty(((OWLObjectPropertyAssertionAxiom) axiom).getProperty());
+				writeIndividual(((OWLObjectPropertyAssertionAxiom) axiom).getObject());
+			} else if (type == AxiomType.DATA_PROPERTY_ASSERTION) {
+				writeIndividual(((OWLDataPropertyAssertionAxiom) axiom).getSubject());
+				writeDataProperty(((OWLDataPropertyAssertionAxiom) axiom).getProperty());
+				writeLiteral(((OWLDataPropertyAssertionAxiom) axiom).getObject());
+			} else if (type == AxiomType.ANNOTATION_ASSERTION) {
+				OWLAnnotationAssertionAxiom ax = (OWLAnnotationAssertionAxiom) axiom;
+				if (!(ax.getSubject() instanceof IRI)) {
+					throw new UnsupportedConstructException("Unsupported annotation subject " + ax.getSubject());
+				}
+				writeIRI((IRI) ax.getSubject());
+				writeIRI(ax.getProperty().getIRI());
+				writeAnnotationValue(ax.getValue());
+			} else if (type == AxiomType.SUB_ANNOTATION_PROPERTY_OF) {
+				writeIRI(((OWLSubAnnotationPropertyOfAxiom) axiom).getSubProperty().getIRI());
+				writeIRI(((OWLSubAnnotationPropertyOfAxiom) axiom).getSuperProperty().getIRI());
+			} else if (type == AxiomType.ANNOTATION_PROPERTY_DOMAIN) {
+				writeIRI(((OWLAnnotationPropertyDomainAxiom) axiom).getProperty().getIRI());
+				writeIRI(((OWLAnnotationPropertyDomainAxiom) axiom).getDomain());
+			} else if (type == AxiomType.ANNOTATION_PROPERTY_RANGE) {
+				writeIRI(((OWLAnnotationPropertyRangeAxiom) axiom).getProperty().getIRI());
+				writeIRI(((OWLAnnotationPropertyRangeAxiom) axiom).getRange());
+			}
+		}
+
+		void writeClassExpression(OWLClassExpression ce) throws IOException {
+
+			Integer code = classExpressionCodes.get(ce.getClassExpressionType());
+			if (code == null) {
+				throw new UnsupportedConstructException("Unsupported class expression " + ce);
+			}
+
+			out.writeByte(code);
+
+			switch (ce.getClassExpressionType()) {
+			case OWL_CLASS:
+				writeIRI(ce.asOWLClass().getIRI());
+				break;
+			case OBJECT_INTERSECTION_OF:
+			case OBJECT_UNION_OF:
+				writeClassExpressions(((OWLNaryBooleanClassExpression) ce).getOperands());
+				break;
+			case OBJECT_COMPLEMENT_OF:
+				writeClassExpression(((OWLObjectComplementOf) ce).getOperand());
+				break;
+			case OBJECT_ONE_OF:
+				Set<OWLIndividual> individuals = ((OWLObjectOneOf) ce).getIndividuals();
+				out.writeInt(individuals.size());
+				for (OWLIndividual individual : individuals) {
+					writeIndividual(individual);
+				}
+				break;
+			case OBJECT_SOME_VALUES_FROM:
+			case OBJECT_ALL_VALUES_FROM:
+				writeObjectProperty((OWLObjectPropertyExpression) ((OWLQuantifiedRestriction<?, ?, ?>) ce).getProperty());
+				writeClassExpression((OWLClassExpression) ((OWLQuantifiedRestriction<?, ?, ?>) ce).getFiller());
+				break;
+			case OBJECT_HAS_VALUE:
+				writeObjectProperty(((OWLObjectHasValue) ce).getProperty());
+				writeIndividual(((OWLObjectHasValue) ce).getValue());
+				break;
+			case OBJECT_MIN_CARDINALITY:
+			case OBJECT_EXACT_CARDINALITY:
+			case OBJECT_MAX_CARDINALITY:
+				out.writeInt(((OWLCardinalityRestriction<?, ?, ?>) ce).getCardinality());
+				writeObjectProperty((OWLObjectPropertyExpression) ((OWLCardinalityRestriction<?, ?, ?>) ce).getProperty());
+				writeClassExpression((OWLClassExpression) ((OWLCardinalityRestriction<?, ?, ?>) ce).getFiller());
+				break;
+			case DATA_SOME_VALUES_FROM:
+			case DATA_ALL_VALUES_FROM:
+				writeDataProperty((OWLDataPropertyExpression) ((OWLQuantifiedRestriction<?, ?, ?>) ce).getProperty());
+				writeDataRange((OWLDataRange) ((OWLQuantifiedRestriction<?, ?, ?>) ce).getFiller());
+				break;
+			case DATA_HAS_VALUE:
+				writeDataProperty(((OWLDataHasValue) ce).getProperty());
+				writeLiteral(((OWLDataHasValue) ce).getValue());
+				break;
+			case DATA_MIN_CARDINALITY:
+			case DATA_EXACT_CARDINALITY:
+			case DATA_MAX_CARDINALITY:
+				out.writeInt(((OWLCardinalityRestriction<?, ?, ?>) ce).getCardinality());
+				writeDataProperty((OWLDataPropertyExpression) ((OWLCardinalityRestriction<?, ?, ?>) ce).getProperty());
+				writeDataRange((OWLDataRange) ((OWLCardinalityRestriction<?, ?, ?>) ce).getFiller());
+				break;
+			default:
+				throw new UnsupportedConstructException("Unsupported class expression " + ce);
+			}
+		}
+
+		void writeClassExpressions(Set<OWLClassExpression> classExpressions) throws IOException {
+			out.writeInt(classExpressions.size());
+			for (OWLClassExpression ce : classExpressions) {
+				writeClassExpression(ce);
+			}
+		}
+
+		void writeEntity(OWLEntity entity) throws IOException {
+			if (entity.isOWLClass()) {
+				out.writeByte(CLASS);
+			} else if (entity.isOWLObjectProperty()) {
+				out.writeByte(OBJECT_PROPERTY);
+			} else if (entity.isOWLDataProperty()) {
+				out.writeByte(DATA_PROPERTY);
+			} else if (entity.isOWLAnnotationProperty()) {
+				out.writeByte(ANNOTATION_PROPERTY);
+			} else if (entity.isOWLNamedIndividual()) {
+				out.writeByte(NAMED_INDIVIDUAL);
+			} else {
+				out.writeByte(DATATYPE);
+			}
+			writeIRI(entity.getIRI());
+		}
+
+		void writeObjectProperty(OWLObjectPropertyExpression property) throws IOException {
+			if (property.isAnonymous()) {
+				//an inverse property is stored as the negated (1-based) string ID of the named property
+				out.writeInt(-1 - stringID(property.getNamedProperty().getIRI().toString()));
+			} else {
+				writeIRI(property.asOWLObjectProperty().getIRI());
+			}
+		}
+
+		void writeDataProperty(OWLDataPropertyExpression property) throws IOException {
+			writeIRI(property.asOWLDataProperty().getIRI());
+		}
+
+		void writeDataRange(OWLDataRange range) throws IOException {
+			if (!range.isDatatype()) {
+				throw new UnsupportedConstructException("Unsupported data range " + range);
+			}
+			writeIRI(range.asOWLDatatype().getIRI());
+		}
+
+		void writeIndividual(OWLIndividual individual) throws IOException {
+			if (individual.isAnonymous()) {
+				throw new UnsupportedConstructException("Unsupported anonymous individual " + individual);
+			}
+			writeIRI(((OWLNamedIndividual) individual).getIRI());
+		}
+
+		void writeLiteral(OWLLiteral literal) throws IOException {
+			writeStringID(literal.getLiteral());
+			writeIRI(literal.getDatatype().getIRI());
+			writeStringID(literal.getLang());
+		}
+
+		void writeAnnotationValue(OWLAnnotationValue value) throws IOException {
+			if (value instanceof IRI) {
+				out.writeByte(VALUE_IRI);
+				writeIRI((IRI) value);
+			} else if (value instanceof OWLLiteral) {
+				out.writeByte(VALUE_LITERAL);
+				writeLiteral((OWLLiteral) value);
+			} else {
+				throw new UnsupportedConstructException("Unsupported annotation value " + value);
+			}
+		}
+
+		void writeAnnotations(Set<OWLAnnotation> annotations) throws IOException {
+			out.writeInt(annotations.size());
+			for (OWLAnnotation annotation : annotations) {
+				writeIRI(annotation.getProperty().getIRI());
+				writeAnnotationValue(annotation.getValue());
+				writeAnnotations(annotation.getAnnotations());
+			}
+		}
+
+		void writeIRI(IRI iri) throws IOException {
+			writeStringID(iri.toString());
+		}
+
+		void writeOptionalIRI(IRI iri) throws IOException {
+			writeOptionalString(iri == null ? null : iri.toString());
+		}
+
+		void writeOptionalString(String s) throws IOException {
+			out.writeInt(s == null ? -1 : stringID(s));
+		}
+
+		void writeStringID(String s) throws IOException {
+			out.writeInt(stringID(s));
+		}
+
+		int stringID(String s) {
+			Integer id = stringIDs.get(s);
+			if (id == null) {
+				id = strings.size();
+				strings.add(s);
+				stringIDs.put(s, id);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * Decodes an ontology from a (memory-mapped) snapshot, creating every IRI only once
+	 */
+	private static class Decoder {
+
+		final ByteBuffer in;
+		final String[] strings;
+		final IRI[] iris;
+		final OWLDataFactory df;
+
+		//the IRIs of the imported ontologies, which are left to the caller to load
+		final List<IRI> imports = new ArrayList<IRI>();
+
+		Decoder(ByteBuffer in, String[] strings, OWLDataFactory df) {
+			this.in = in;
+			this.strings = strings;
+			this.iris = new IRI[strings.length];
+			this.df = df;
+		}
+
+		OWLOntology readOntology(OWLOntologyManager manager) throws IOException, OWLOntologyCreationException {
+
+			IRI ontologyIRI = readOptionalIRI();
+			IRI versionIRI = readOptionalIRI();
+
+			OWLOntologyFormat format = createFormat(readOptionalString());
+			int numPrefixes = in.getInt();
+			for (int i = 0; i < numPrefixes; i++) {
+				String prefixName = readString();
+				String prefix = readString();
+				if (format instanceof PrefixOWLOntologyFormat) {
+					((PrefixOWLOntologyFormat) format).setPrefix(prefixName, prefix);
+				}
+			}
+
+			OWLOntology onto = manager.createOntology(ontologyIRI == null ? new OWLOntologyID() : new OWLOntologyID(ontologyIRI, versionIRI));
+
+			int numImports = in.getInt();
+			for (int i = 0; i < numImports; i++) {
+				imports.add(readIRI());
+			}
+
+			List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+
+			for (OWLAnnotation annotation : readAnnotations()) {
+				changes.add(new AddOntologyAnnotation(onto, annotation));
+			}
+
+			manager.applyChanges(changes);
+
+			int numAxioms = in.getInt();
+			Set<OWLAxiom> axioms = new HashSet<OWLAxiom>(numAxioms * 2);
+			for (int i = 0; i < numAxioms; i++) {
+				axioms.add(readAxiom());
+			}
+			manager.addAxioms(onto, axioms);
+
+			if (format != null) {
+				manager.setOntologyFormat(onto, format);
+			}
+
+			return onto;
+		}
+
+		OWLAxiom readAxiom() throws IOException {
+
+			int code = in.get();
+			if (code < 0 || code >= axiomTypes.length) {
+				throw new IOException("Unknown axiom code " + code);
+			}
+
+			Set<OWLAnnotation> annotations = readAnnotations();
+			AxiomType<?> type = axiomTypes[code];
+
+			if (type == AxiomType.DECLARATION) {
+				return df.getOWLDeclarationAxiom(readEntity(), annotations);
+			} else if (type == AxiomType.SUBCLASS_OF) {
+				OWLClassExpression sub = readClassExpression();
+				return df.getOWLSubClassOfAxiom(sub, readClassExpression(), annotations);
+			} else if (type == AxiomType.EQUIVALENT_CLASSES) {
+				return df.getOWLEquivalentClassesAxiom(readClassExpressions(), annotations);
+			} else if (type == AxiomType.DISJOINT_CLASSES) {
+				return df.getOWLDisjointClassesAxiom(readClassExpressions(), annotations);
+			} else if (type == AxiomType.OBJECT_PROPERTY_DOMAIN) {
+				OWLObjectPropertyExpression property = readObjectProperty();
+				return df.getOWLObjectPropertyDomainAxiom(property, readClassExpression(), annotations);
+			} else if (type == AxiomType.OBJECT_PROPERTY_RANGE) {
+				OWLObjectPropertyExpression property = readObjectProperty();
+				return df.getOWLObjectPropertyRangeAxiom(property, readClassExpression(), annotations);
+			} else if (type == AxiomType.DATA_PROPERTY_DOMAIN) {
+				OWLDataPropertyExpression property = readDataProperty();
+				return df.getOWLDataPropertyDomainAxiom(property, readClassExpression(), annotations);
+			} else if (type == AxiomType.DATA_PROPERTY_RANGE) {
+				OWLDataPropertyExpression property = readDataProperty();
+				return df.getOWLDataPropertyRangeAxiom(property, readDataRange(), annotations);
+			} else if (type == AxiomType.SUB_OBJECT_PROPERTY) {
+				OWLObjectPropertyExpression sub = readObjectProperty();
+				return df.getOWLSubObjectPropertyOfAxiom(sub, readObjectProperty(), annotations);
+			} else if (type == AxiomType.SUB_DATA_PROPERTY) {
+				OWLDataPropertyExpression sub = readDataProperty();
+				return df.getOWLSubDataPropertyOfAxiom(sub, readDataProperty(), annotations);
+			} else if (type == AxiomType.INVERSE_OBJECT_PROPERTIES) {
+				OWLObjectPropertyExpression first = readObjectProperty();
+				return df.getOWLInverseObjectPropertiesAxiom(first, readObjectProperty(), annotations);
+			} else if (type == AxiomType.FUNCTIONAL_OBJECT_PROPERTY) {
+				return df.getOWLFunctionalObjectPropertyAxiom(readObjectProperty(), annotations);
+			} else if (type == AxiomType.INVERSE_FUNCTIONAL_OBJECT_PROPERTY) {
+				return df.getOWLInverseFunctionalObjectPropertyAxiom(readObjectProperty(), annotations);
+			} else if (type == AxiomType.TRANSITIVE_OBJECT_PROPERTY) {
+				return df.getOWLTransitiveObjectPropertyAxiom(readObjectProperty(), annotations);
+			} else if (type == AxiomType.SYMMETRIC_OBJECT_PROPERTY) {
+				return df.getOWLSymmetricObjectPropertyAxiom(readObjectProperty(), annotations);
+			} else if (type == AxiomType.FUNCTIONAL_DATA_PROPERTY) {
+				return df.getOWLFunctionalDataPropertyAxiom(readDataProperty(), annotations);
+			} else if (type == AxiomType.CLASS_ASSERTION) {
+				OWLIndividual individual = readIndividual();
+				return df.getOWLClassAssertionAxiom(readClassExpression(), individual, annotations);
+			} else if (type == AxiomType.OBJECT_PROPERTY_ASSERTION) {
+				OWLIndividual subject = readIndividual();
+				OWLObjectPropertyExpression property = readObjectProperty();
+				return df.getOWLObjectPropertyAssertionAxiom(property, subject, readIndividual(), annotations);
+			} else if (type == AxiomType.DATA_PROPERTY_ASSERTION) {
+				OWLIndividual subject = readIndividual();
+				OWLDataPropertyExpression property = readDataProperty();
+				return df.getOWLDataPropertyAssertionAxiom(property, subject, readLiteral(), annotations);
+			} else if (type == AxiomType.ANNOTATION_ASSERTION) {
+				IRI subject = readIRI();
+				OWLAnnotationProperty property = df.getOWLAnnotationProperty(readIRI());
+				return df.getOWLAnnotationAssertionAxiom(property, subject, readAnnotationValue(), annotations);
+			} else if (type == AxiomType.SUB_ANNOTATION_PROPERTY_OF) {
+				OWLAnnotationProperty sub = df.getOWLAnnotationProperty(readIRI());
+				return df.getOWLSubAnnotationPropertyOfAxiom(sub, df.getOWLAnnotationProperty(readIRI()), annotations);
+			} else if (type == AxiomType.ANNOTATION_PROPERTY_DOMAIN) {
+				OWLAnnotationProperty property = df.getOWLAnnotationProperty(readIRI());
+				return df.getOWLAnnotationPropertyDomainAxiom(property, readIRI(), annotations);
+			} else {
+				OWLAnnotationProperty property = df.getOWLAnnotationProperty(readIRI());
+				return df.getOWLAnnotationPropertyRangeAxiom(property, readIRI(), annotations);
+			}
+		}
+
+		OWLClassExpression readClassExpression() throws IOException {
+
+			int code = in.get();
+			if (code < 0 || code >= classExpressionTypes.length) {
+				throw new IOException("Unknown class expression code " + code);
+			}
+
+			switch (classExpressionTypes[code]) {
+			case OWL_CLASS:
+				return df.getOWLClass(readIRI());
+			case OBJECT_INTERSECTION_OF:
+				return df.getOWLObjectIntersectionOf(readClassExpressions());
+			case OBJECT_UNION_OF:
+				return df.getOWLObjectUnionOf(readClassExpressions());
+			case OBJECT_COMPLEMENT_OF:
+				return df.getOWLObjectComplementOf(readClassExpression());
+			case OBJECT_ONE_OF:
+				int numIndividuals = in.getInt();
+				Set<OWLIndividual> individuals = new HashSet<OWLIndividual>();
+				for (int i = 0; i < numIndividuals; i++) {
+					individuals.add(readIndividual());
+				}
+				return df.getOWLObjectOneOf(individuals);
+			case OBJECT_SOME_VALUES_FROM: {
+				OWLObjectPropertyExpression property = readObjectProperty();
+				return df.getOWLObjectSomeValuesFrom(property, readClassExpression());
+			}
+			case OBJECT_ALL_VALUES_FROM: {
+				OWLObjectPropertyExpression property = readObjectProperty();
+				return df.getOWLObjectAllValuesFrom(property, readClassExpression());
+			}
+			case OBJECT_HAS_VALUE: {
+				OWLObjectPropertyExpression property = readObjectProperty();
+				return df.getOWLObjectHasValue(property, readIndividual());
+			}
+			case OBJECT_MIN_CARDINALITY: {
+				int cardinality = in.getInt();
+				OWLObjectPropertyExpression property = readObjectProperty();
+				return df.getOWLObjectMinCardinality(cardinality, property, readClassExpression());
+			}
+			case OBJECT_EXACT_CARDINALITY: {
+				int cardinality = in.getInt();
+				OWLObjectPropertyExpression property = readObjectProperty();
+				return df.getOWLObjectExactCardinality(cardinality, property, readClassExpression());
+			}
+			case OBJECT_MAX_CARDINALITY: {
+				int cardinality = in.getInt();
+				OWLObjectPropertyExpression property = readObjectProperty();
+				return df.getOWLObjectMaxCardinality(cardinality, property, readClassExpression());
+			}
+			case DATA_SOME_VALUES_FROM: {
+				OWLDataPropertyExpression property = readDataProperty();
+				return df.getOWLDataSomeValuesFrom(property, readDataRange());
+			}
+			case DATA_ALL_VALUES_FROM: {
+				OWLDataPropertyExpression property = readDataProperty();
+				return df.getOWLDataAllValuesFrom(property, readDataRange());
+			}
+			case DATA_HAS_VALUE: {
+				OWLDataPropertyExpression property = readDataProperty();
+				return df.getOWLDataHasValue(property, readLiteral());
+			}
+			case DATA_MIN_CARDINALITY: {
+				int cardinality = in.getInt();
+				OWLDataPropertyExpression property = readDataProperty();
+				return df.getOWLDataMinCardinality(cardinality, property, readDataRange());
+			}
+			case DATA_EXACT_CARDINALITY: {
+				int cardinality = in.getInt();
+				OWLDataPropertyExpression property = readDataProperty();
+				return df.getOWLDataExactCardinality(cardinality, property, readDataRange());
+			}
+			default: {
+				int cardinality = in.getInt();
+				OWLDataPropertyExpression property = readDataProperty();
+				return df.getOWLDataMaxCardinality(cardinality, property, readDataRange());
+			}
+			}
+		}
+
+		Set<OWLClassExpression> readClassExpressions() throws IOException {
+			int size = in.getInt();
+			Set<OWLClassExpression> classExpressions = new HashSet<OWLClassExpression>();
+			for (int i = 0; i < size; i++) {
+				classExpressions.add(readClassExpression());
+			}
+			return classExpressions;
+		}
+
+		OWLEntity readEntity() throws IOException {
+			int kind = in.get();
+			IRI iri = readIRI();
+			switch (kind) {
+			case CLASS:
+				return df.getOWLClass(iri);
+			case OBJECT_PROPERTY:
+				return df.getOWLObjectProperty(iri);
+			case DATA_PROPERTY:
+				return df.getOWLDataProperty(iri);
+			case ANNOTATION_PROPERTY:
+				return df.getOWLAnnotationProperty(iri);
+			case NAMED_INDIVIDUAL:
+				return df.getOWLNamedIndividual(iri);
+			case DATATYPE:
+				return df.getOWLDatatype(iri);
+			default:
+				throw new IOException("Unknown entity kind " + kind);
+			}
+		}
+
+		OWLObjectPropertyExpression readObjectProperty() {
+			int id = in.getInt();
+			if (id < 0) {
+				return df.getOWLObjectInverseOf(df.getOWLObjectProperty(iri(-1 - id)));
+			}
+			return df.getOWLObjectProperty(iri(id));
+		}
+
+		OWLDataPropertyExpression readDataProperty() {
+			return df.getOWLDataProperty(readIRI());
+		}
+
+		OWLDataRange readDataRange() {
+			return df.getOWLDatatype(readIRI());
+		}
+
+		OWLIndividual readIndividual() {
+			return df.getOWLNamedIndividual(readIRI());
+		}
+
+		OWLLiteral readLiteral() {
+			String literal = readString();
+			IRI datatype = readIRI();
+			String lang = readString();
+			if (!lang.isEmpty()) {
+				return df.getOWLLiteral(literal, lang);
+			}
+			return df.getOWLLiteral(literal, df.getOWLDatatype(datatype));
+		}
+
+		OWLAnnotationValue readAnnotationValue() throws IOException {
+			int kind = in.get();
+			if (kind == VALUE_IRI) {
+				return readIRI();
+			} else if (kind == VALUE_LITERAL) {
+				return readLiteral();
+			}
+			throw new IOException("Unknown annotation value kind " + kind);
+		}
+
+		Set<OWLAnnotation> readAnnotations() throws IOException {
+			int size = in.getInt();
+			if (size == 0) {
+				return new HashSet<OWLAnnotation>();
+			}
+			Set<OWLAnnotation> annotations = new HashSet<OWLAnnotation>();
+			for (int i = 0; i < size; i++) {
+				OWLAnnotationProperty property = df.getOWLAnnotationProperty(readIRI());
+				OWLAnnotationValue value = readAnnotationValue();
+				annotations.add(df.getOWLAnnotation(property, value, readAnnotations()));
+			}
+			return annotations;
+		}
+
+		IRI readIRI() {
+			return iri(in.getInt());
+		}
+
+		IRI readOptionalIRI() {
+			int id = in.getInt();
+			return id < 0 ? null : iri(id);
+		}
+
+		String readString() {
+			return strings[in.getInt()];
+		}
+
+		String readOptionalString() {
+			int id = in.getInt();
+			return id < 0 ? null : strings[id];
+		}
+
+		IRI iri(int id) {
+			IRI iri = iris[id];
+			if (iri == null) {
+				iri = IRI.create(strings[id]);
+				iris[id] = iri;
+			}
+			return iri;
+		}
+
+		OWLOntologyFormat createFormat(String formatClassName) throws IOException {
+			if (formatClassName == null) {
+				return null;
+			}
+			try {
+				return (OWLOntologyFormat) Class.forName(formatClassName).getDeclaredConstructor().newInstance();
+			} catch (Exception e) {
+				throw new IOException("Could not create ontology format " + formatClassName, e);
+			}
+		}
+	}
+
+}
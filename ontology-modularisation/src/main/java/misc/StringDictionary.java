@@ -0,0 +1,183 @@
+package misc;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A compact dictionary of interned strings, mapping each distinct string to an int ID (0, 1, 2, ... in the order the strings are added). The strings are
+ * stored once, as UTF-8 bytes one after another in a single byte array, and are found through an open addressing hash table of IDs, so a dictionary of
+ * IRIs and class names holds no String objects. Indexes of classes and modules can then key on the IDs in int arrays instead of holding their own copies
+ * of the strings in string-keyed maps.
+ * The dictionary is not thread-safe.
+ * @author audunvennesland
+ *
+ */
+public class StringDictionary {
+
+	static final Charset utf8 = Charset.forName("UTF-8");
+
+	//the UTF-8 bytes of the strings, one after another
+	private byte[] bytes = new byte[4096];
+	private int byteCount = 0;
+
+	//the start of the bytes of each ID in the byte array (the bytes of an ID end where those of the next ID start), and the hash code of each string
+	private int[] offsets = new int[257];
+	private int[] hashes = new int[256];
+	private int size = 0;
+
+	//the hash table of IDs + 1, 0 for an empty slot. Its length is a power of two and it is at most half full.
+	private int[] table = new int[512];
+
+	/**
+	 * Returns the ID of a string, adding the string to the dictionary if it is not there
+	 * @param s The string
+	 * @return The ID of the string
+	 */
+	public int getID(String s) {
+
+		int hash = s.hashCode();
+		int slot = find(s, hash);
+		if (table[slot] != 0) {
+			return table[slot] - 1;
+		}
+
+		byte[] encoded = s.getBytes(utf8);
+		if (byteCount + encoded.length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + encoded.length));
+		}
+		System.arraycopy(encoded, 0, bytes, byteCount, encoded.length);
+		byteCount += encoded.length;
+
+		if (size + 1 == hashes.length) {
+			hashes = Arrays.copyOf(hashes, hashes.length * 2);
+			offsets = Arrays.copyOf(offsets, hashes.length + 1);
+		}
+		hashes[size] = hash;
+		offsets[size + 1] = byteCount;
+		table[slot] = ++size;
+
+		if (size * 2 > table.length) {
+			rehash();
+		}
+
+		return size - 1;
+	}
+
+	/**
+	 * Returns the ID of a string without adding it to the dictionary
+	 * @param s The string
+	 * @return The ID of the string, or -1 if it is not in the dictionary
+	 */
+	public int lookup(String s) {
+		return table[find(s, s.hashCode())] - 1;
+	}
+
+	/**
+	 * Returns the string having an ID
+	 * @param id The ID
+	 * @return The string
+	 */
+	public String get(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No string with ID " + id);
+		}
+		return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], utf8);
+	}
+
+	/**
+	 * Returns the number of strings in the dictionary, which is also the first ID not in use
+	 * @return The number of strings
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the memory used by the dictionary, that is, the size of its arrays in bytes
+	 * @return The memory footprint in bytes
+	 */
+	public long getMemoryFootprint() {
+		return arraySize(bytes.length) + arraySize(4L * offsets.length) + arraySize(4L * hashes.length) + arraySize(4L * table.length);
+	}
+
+	/**
+	 * Returns an estimate of the memory used by a String object on a 64-bit JVM with compressed references: the object (header, hash and array reference)
+	 * and its char array
+	 * @param s The string
+	 * @return The memory footprint in bytes
+	 */
+	public static long getStringFootprint(String s) {
+		return 24 + arraySize(2L * s.length());
+	}
+
+	private static long arraySize(long dataSize) {
+		return (16 + dataSize + 7) / 8 * 8;
+	}
+
+	/**
+	 * Returns the slot of the hash table holding a string, or the empty slot where it is to be added
+	 */
+	private int find(String s, int hash) {
+
+		int mask = table.length - 1;
+		int slot = mix(hash) & mask;
+
+		while (table[slot] != 0) {
+			int id = table[slot] - 1;
+			if (hashes[id] == hash && matches(id, s)) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Whether the bytes of an ID are the UTF-8 encoding of a string, compared without decoding the bytes as long as they are ASCII
+	 */
+	private boolean matches(int id, String s) {
+
+		int start = offsets[id];
+		int length = offsets[id + 1] - start;
+
+		if (length < s.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			byte b = bytes[start + i];
+			if (b < 0) {
+				return get(id).equals(s);
+			}
+			if (i >= s.length() || s.charAt(i) != b) {
+				return false;
+			}
+		}
+
+		return length == s.length();
+	}
+
+	private void rehash() {
+
+		table = new int[table.length * 2];
+		int mask = table.length - 1;
+
+		for (int id = 0; id < size; id++) {
+			int slot = mix(hashes[id]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * Spreads the bits of a hash code over the low bits used for the slot, so that similar hash codes do not cluster in the linearly probed table
+	 */
+	private static int mix(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -0,0 +1,414 @@
+package modularisation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import misc.FileUtils;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
+
+/**
+ * The atomic decomposition of an ontology, used for assembling locality-based modules without running the OWL API module extractor.
+ * An atom is a set of axioms that always occur together in modules: two axioms belong to the same atom if the module for the signature of the one axiom
+ * equals the module for the signature of the other. An atom depends on the other atoms in the module for the signature of its axioms, so the atoms form a DAG.
+ * The module for a seed signature is the union of the atoms holding an axiom that is non-local with respect to the (growing) signature, together with the atoms
+ * they depend on, which is found with the worklist of the IndexedLocalityExtractor.
+ * The decomposition is stored (gzip-compressed) next to the ontology file and is keyed by the content hashes of the ontology file and of the files of the
+ * ontologies it imports, so it is computed again when any of them changes.
+ * The decomposition is not modified after it is built, so it can be shared among concurrent extractions.
+ * @author audunvennesland
+ *
+ */
+public class AtomicDecomposition extends IndexedLocalityExtractor {
+
+	static final String suffix = ".atoms";
+	static final int version = 1;
+
+	private final String ontologyHash;
+	private final int numOntologyAxioms;
+
+	//the position of each axiom that can occur in a module in the sorted axioms of the ontology
+	private final int[] axiomPositions;
+
+	//the atoms, as sets of axiom IDs, and the module of each atom (the atom and all atoms it depends on)
+	private int[][] atomAxioms;
+	private BitSet[] atomModules;
+	private int[] atomOfAxiom;
+
+	//the module of the atom of each axiom, which is added to a module together with the axiom
+	private BitSet[] axiomModules;
+
+	private AtomicDecomposition(String ontologyHash, ModuleType moduleType, List<OWLAxiom> ontologyAxioms, int[] axiomPositions) {
+		super(ontologyAxioms, axiomPositions, moduleType);
+		this.ontologyHash = ontologyHash;
+		this.numOntologyAxioms = ontologyAxioms.size();
+		this.axiomPositions = axiomPositions;
+	}
+
+	/**
+	 * Returns the atomic decomposition of an ontology, either from the decomposition file stored next to the ontology file or, if there is no such file or the
+	 * ontology file or one of its imports has changed since it was stored, by computing it (and storing it for later runs).
+	 * @param ontoFile The file the ontology was loaded from
+	 * @param onto The loaded ontology
+	 * @param moduleType The type of locality-based modules (STAR, BOT or TOP) the decomposition is computed for
+	 * @return The atomic decomposition of the ontology
+	 * @throws OWLOntologyCreationException
+	 */
+	public static AtomicDecomposition load(File ontoFile, OWLOntology onto, ModuleType moduleType) throws OWLOntologyCreationException {
+
+		String hash = null;
+		try {
+			hash = getClosureHash(ontoFile, onto);
+		} catch (IOException e) {
+			throw new OWLOntologyCreationException("Could not read " + ontoFile + " or its imports", e);
+		}
+
+		File decompositionFile = new File(ontoFile.getPath() + "." + moduleType.name().toLowerCase() + suffix);
+		List<OWLAxiom> ontologyAxioms = getSortedAxioms(onto);
+
+		if (decompositionFile.exists()) {
+			try {
+				AtomicDecomposition stored = read(decompositionFile, hash, moduleType, ontologyAxioms);
+				if (stored != null) {
+					return stored;
+				}
+			} catch (IOException e) {
+				System.err.println("Could not read atomic decomposition " + decompositionFile + ", it will be recomputed: " + e.getMessage());
+			}
+		}
+
+		AtomicDecomposition decomposition = compute(ontologyAxioms, hash, moduleType);
+
+		try {
+			decomposition.write(decompositionFile);
+		} catch (IOException e) {
+			System.err.println("Could not store atomic decomposition " + decompositionFile + ": " + e.getMessage());
+		}
+
+		return decomposition;
+	}
+
+	/**
+	 * Returns the key of the decomposition of an ontology: the content hash of the ontology file, followed (if the ontology has imports) by a hash of the
+	 * content hashes of the files of all ontologies in its imports closure, as the decomposition is computed from the axioms of the whole closure. Imported
+	 * ontologies not loaded from a file are hashed by their axioms.
+	 * @param ontoFile The file the ontology was loaded from
+	 * @param onto The loaded ontology
+	 * @return The key
+	 * @throws IOException
+	 */
+	static String getClosureHash(File ontoFile, OWLOntology onto) throws IOException {
+
+		String hash = FileUtils.contentHash(ontoFile);
+
+		//the imported ontologies in the order of their IDs, so the key does not depend on the order of the closure
+		Map<String, String> importHashes = new TreeMap<String, String>();
+		for (OWLOntology imported : onto.getImportsClosure()) {
+			if (imported == onto) {
+				continue;
+			}
+
+			IRI documentIRI = imported.getOWLOntologyManager().getOntologyDocumentIRI(imported);
+			if (documentIRI != null && "file".equals(documentIRI.getScheme())) {
+				importHashes.put(imported.getOntologyID().toString(), FileUtils.contentHash(new File(documentIRI.toURI())));
+			} else {
+				Set<String> axioms = new TreeSet<String>();
+				for (OWLAxiom axiom : imported.getAxioms()) {
+					axioms.add(axiom.toString());
+				}
+				importHashes.put(imported.getOntologyID().toString(), FileUtils.contentHash(axioms.toString()));
+			}
+		}
+
+		if (importHashes.isEmpty()) {
+			return hash;
+		}
+
+		return hash + "+" + FileUtils.contentHash(importHashes.toString());
+	}
+
+	/**
+	 * Computes the atomic decomposition of an ontology. The module of each axiom is extracted from the module of an axiom already decomposed whenever possible,
+	 * as the module of an axiom is contained in every module holding that axiom.
+	 * @param onto The ontology (including its imports)
+	 * @param ontologyHash The content hash of the ontology file (and its imports, see getClosureHash)
+	 * @param moduleType The type of locality-based modules (STAR, BOT or TOP) the decomposition is computed for
+	 * @return The atomic decomposition
+	 */
+	public static AtomicDecomposition compute(OWLOntology onto, String ontologyHash, ModuleType moduleType) {
+		return compute(getSortedAxioms(onto), ontologyHash, moduleType);
+	}
+
+	private static AtomicDecomposition compute(List<OWLAxiom> ontologyAxioms, String ontologyHash, ModuleType moduleType) {
+
+		//axioms that are local with respect to their own signature never occur in a module
+		int[] axiomPositions = getModuleAxiomPositions(ontologyAxioms, moduleType);
+
+		AtomicDecomposition decomposition = new AtomicDecomposition(ontologyHash, moduleType, ontologyAxioms, axiomPositions);
+		decomposition.decompose();
+
+		return decomposition;
+	}
+
+	/**
+	 * Computes the module of every axiom and groups the axioms having the same module into atoms
+	 */
+	private void decompose() {
+
+		BitSet all = getAllAxioms();
+
+		BitSet[] modules = new BitSet[axioms.length];
+		Map<BitSet, BitSet> modulesBySignature = new HashMap<BitSet, BitSet>();
+
+		//axioms waiting to be decomposed, together with a module holding them (from which their own module is extracted)
+		BitSet queued = new BitSet(axioms.length);
+		List<Integer> stack = new ArrayList<Integer>();
+		List<BitSet> stackModules = new ArrayList<BitSet>();
+
+		for (int i = 0; i < axioms.length; i++) {
+
+			if (queued.get(i)) {
+				continue;
+			}
+
+			queued.set(i);
+			stack.add(i);
+			stackModules.add(all);
+
+			while (!stack.isEmpty()) {
+				int axiom = stack.remove(stack.size() - 1);
+				BitSet candidates = stackModules.remove(stackModules.size() - 1);
+
+				BitSet signature = new BitSet(entities.length);
+				for (int e : axiomEntities[axiom]) {
+					signature.set(e);
+				}
+
+				BitSet module = modulesBySignature.get(signature);
+				if (module == null) {
+					module = extract(candidates, signature, null);
+					modulesBySignature.put(signature, module);
+				}
+				modules[axiom] = module;
+
+				for (int j = module.nextSetBit(0); j >= 0; j = module.nextSetBit(j + 1)) {
+					if (!queued.get(j)) {
+						queued.set(j);
+						stack.add(j);
+						stackModules.add(module);
+					}
+				}
+			}
+		}
+
+		Map<BitSet, Integer> atomIDs = new HashMap<BitSet, Integer>();
+		List<List<Integer>> atoms = new ArrayList<List<Integer>>();
+		List<BitSet> atomModuleList = new ArrayList<BitSet>();
+
+		for (int i = 0; i < axioms.length; i++) {
+			Integer atom = atomIDs.get(modules[i]);
+			if (atom == null) {
+				atom = atoms.size();
+				atomIDs.put(modules[i], atom);
+				atoms.add(new ArrayList<Integer>());
+				atomModuleList.add(modules[i]);
+			}
+			atoms.get(atom).add(i);
+		}
+
+		int[][] atomAxioms = new int[atoms.size()][];
+		for (int a = 0; a < atomAxioms.length; a++) {
+			atomAxioms[a] = new int[atoms.get(a).size()];
+			for (int j = 0; j < atomAxioms[a].length; j++) {
+				atomAxioms[a][j] = atoms.get(a).get(j);
+			}
+		}
+
+		setAtoms(atomAxioms, atomModuleList.toArray(new BitSet[atomModuleList.size()]));
+	}
+
+	private void setAtoms(int[][] atomAxioms, BitSet[] atomModules) {
+		this.atomAxioms = atomAxioms;
+		this.atomModules = atomModules;
+
+		atomOfAxiom = new int[axioms.length];
+		for (int a = 0; a < atomAxioms.length; a++) {
+			for (int i : atomAxioms[a]) {
+				atomOfAxiom[i] = a;
+			}
+		}
+
+		axiomModules = new BitSet[axioms.length];
+		for (int i = 0; i < axioms.length; i++) {
+			axiomModules[i] = atomModules[atomOfAxiom[i]];
+		}
+	}
+
+	/**
+	 * Assembles the locality-based module for a seed signature from the atoms, and adds the declaration and annotation axioms of the entities in the
+	 * signature of the module, as done by the OWL API SyntacticLocalityModuleExtractor.
+	 * @param seedSig The seed signature guiding the extraction of the module
+	 * @return The axioms of the module
+	 */
+	@Override
+	public Set<OWLAxiom> extract(Set<OWLEntity> seedSig) {
+		return toModule(extract(getAllAxioms(), toSignature(seedSig), axiomModules), seedSig);
+	}
+
+	/**
+	 * Returns the number of atoms
+	 * @return The number of atoms
+	 */
+	public int getNumAtoms() {
+		return atomAxioms.length;
+	}
+
+	/**
+	 * Returns the axioms of an atom
+	 * @param atom The atom ID (between 0 and getNumAtoms() - 1)
+	 * @return The set of axioms
+	 */
+	public Set<OWLAxiom> getAtom(int atom) {
+
+		Set<OWLAxiom> atomAxiomSet = new HashSet<OWLAxiom>();
+		for (int i : atomAxioms[atom]) {
+			atomAxiomSet.add(axioms[i]);
+		}
+
+		return atomAxiomSet;
+	}
+
+	/**
+	 * Returns the (direct and indirect) dependencies of an atom, that is, the other atoms in the module for the signature of the atom
+	 * @param atom The atom ID (between 0 and getNumAtoms() - 1)
+	 * @return The set of atom IDs
+	 */
+	public Set<Integer> getDependencies(int atom) {
+
+		Set<Integer> dependencies = new HashSet<Integer>();
+		BitSet module = atomModules[atom];
+		for (int i = module.nextSetBit(0); i >= 0; i = module.nextSetBit(i + 1)) {
+			dependencies.add(atomOfAxiom[i]);
+		}
+		dependencies.remove(atom);
+
+		return dependencies;
+	}
+
+	/**
+	 * Writes the decomposition to a temporary file that is then moved in place, so that a decomposition file being written is never read by another run
+	 */
+	private void write(File decompositionFile) throws IOException {
+
+		File tmpFile = File.createTempFile(decompositionFile.getName(), ".tmp", decompositionFile.getAbsoluteFile().getParentFile());
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmpFile))));
+
+		try {
+			out.writeInt(version);
+			out.writeUTF(ontologyHash);
+			out.writeUTF(moduleType.name());
+			out.writeInt(numOntologyAxioms);
+
+			out.writeInt(axiomPositions.length);
+			for (int position : axiomPositions) {
+				out.writeInt(position);
+			}
+
+			out.writeInt(atomAxioms.length);
+			for (int a = 0; a < atomAxioms.length; a++) {
+				out.writeInt(atomAxioms[a].length);
+				for (int i : atomAxioms[a]) {
+					out.writeInt(i);
+				}
+
+				long[] words = atomModules[a].toLongArray();
+				out.writeInt(words.length);
+				for (long word : words) {
+					out.writeLong(word);
+				}
+			}
+		} finally {
+			out.close();
+		}
+
+		try {
+			Files.move(tmpFile.toPath(), decompositionFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	 * Reads a stored decomposition
+	 * @return The decomposition, or null if it was computed for another version of the ontology or another module type
+	 */
+	private static AtomicDecomposition read(File decompositionFile, String ontologyHash, ModuleType moduleType, List<OWLAxiom> ontologyAxioms) throws IOException {
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(decompositionFile))));
+
+		try {
+			if (in.readInt() != version) {
+				throw new IOException("Unsupported atomic decomposition version");
+			}
+
+			if (!in.readUTF().equals(ontologyHash) || !in.readUTF().equals(moduleType.name()) || in.readInt() != ontologyAxioms.size()) {
+				return null;
+			}
+
+			int[] axiomPositions = new int[in.readInt()];
+			for (int i = 0; i < axiomPositions.length; i++) {
+				axiomPositions[i] = in.readInt();
+			}
+
+			AtomicDecomposition decomposition = new AtomicDecomposition(ontologyHash, moduleType, ontologyAxioms, axiomPositions);
+
+			int[][] atomAxioms = new int[in.readInt()][];
+			BitSet[] atomModules = new BitSet[atomAxioms.length];
+			for (int a = 0; a < atomAxioms.length; a++) {
+				atomAxioms[a] = new int[in.readInt()];
+				for (int j = 0; j < atomAxioms[a].length; j++) {
+					atomAxioms[a][j] = in.readInt();
+				}
+
+				long[] words = new long[in.readInt()];
+				for (int j = 0; j < words.length; j++) {
+					words[j] = in.readLong();
+				}
+				atomModules[a] = BitSet.valueOf(words);
+			}
+
+			decomposition.setAtoms(atomAxioms, atomModules);
+
+			return decomposition;
+		} finally {
+			in.close();
+		}
+	}
+
+}
@@ -0,0 +1,328 @@
+package modularisation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.semanticweb.HermiT.Reasoner;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+
+/**
+ * A snapshot of the class hierarchy of an ontology, used for expanding seed signatures without running a reasoner. Every class is given an integer ID and the
+ * (direct and indirect) subclasses of each class are stored as a bitset of class IDs. The hierarchy is computed from the asserted subclass axioms, or with the
+ * HermiT reasoner if requested, and is stored (gzip-compressed) next to the ontology file so that later runs on the same ontology can reuse it.
+ * The hierarchy covers the classes and axioms of the whole imports closure of the ontology, as the reasoner classifies the closure. The stored hierarchy is
+ * keyed by the content hashes of the ontology file and of the files of its imports (see AtomicDecomposition.getClosureHash), and is recomputed when any of
+ * them changes.
+ * @author audunvennesland
+ *
+ */
+public class ClassHierarchy {
+
+	static final String suffix = ".hierarchy";
+	static final int version = 1;
+
+	private final String ontologyHash;
+	private final boolean inferred;
+	private final String[] classIRIs;
+	private final BitSet[] subClasses;
+	private final Map<IRI, Integer> classIDs = new HashMap<IRI, Integer>();
+
+	private ClassHierarchy(String ontologyHash, boolean inferred, String[] classIRIs, BitSet[] subClasses) {
+		this.ontologyHash = ontologyHash;
+		this.inferred = inferred;
+		this.classIRIs = classIRIs;
+		this.subClasses = subClasses;
+
+		for (int i = 0; i < classIRIs.length; i++) {
+			classIDs.put(IRI.create(classIRIs[i]), i);
+		}
+	}
+
+	/**
+	 * Returns the class hierarchy of an ontology, either from the hierarchy file stored next to the ontology file or, if there is no such file or the ontology
+	 * file or one of its imports has changed since it was stored, by computing it (and storing it for later runs).
+	 * @param ontoFile The file the ontology was loaded from
+	 * @param onto The loaded ontology
+	 * @param useReasoner true if the hierarchy should be inferred by the HermiT reasoner, false if it should be computed from the asserted subclass axioms
+	 * @return The class hierarchy of the ontology
+	 * @throws OWLOntologyCreationException
+	 */
+	public static ClassHierarchy load(File ontoFile, OWLOntology onto, boolean useReasoner) throws OWLOntologyCreationException {
+
+		String hash = null;
+		try {
+			hash = AtomicDecomposition.getClosureHash(ontoFile, onto);
+		} catch (IOException e) {
+			throw new OWLOntologyCreationException("Could not read " + ontoFile, e);
+		}
+
+		File hierarchyFile = new File(ontoFile.getPath() + suffix);
+
+		if (hierarchyFile.exists()) {
+			try {
+				ClassHierarchy stored = read(hierarchyFile);
+				if (stored.ontologyHash.equals(hash) && stored.inferred == useReasoner) {
+					return stored;
+				}
+			} catch (IOException e) {
+				System.err.println("Could not read class hierarchy " + hierarchyFile + ", it will be recomputed: " + e.getMessage());
+			}
+		}
+
+		ClassHierarchy hierarchy = useReasoner ? computeInferred(onto, hash) : computeAsserted(onto, hash);
+
+		try {
+			hierarchy.write(hierarchyFile);
+		} catch (IOException e) {
+			System.err.println("Could not store class hierarchy " + hierarchyFile + ": " + e.getMessage());
+		}
+
+		return hierarchy;
+	}
+
+	/**
+	 * Computes the class hierarchy from the asserted SubClassOf and EquivalentClasses axioms between named classes in the imports closure of the ontology.
+	 * @param onto The ontology
+	 * @param ontologyHash The content hash of the ontology file (and its imports, see AtomicDecomposition.getClosureHash)
+	 * @return The class hierarchy
+	 */
+	public static ClassHierarchy computeAsserted(OWLOntology onto, String ontologyHash) {
+
+		String[] classIRIs = getClassIRIs(onto);
+		Map<IRI, Integer> ids = new HashMap<IRI, Integer>();
+		for (int i = 0; i < classIRIs.length; i++) {
+			ids.put(IRI.create(classIRIs[i]), i);
+		}
+
+		//direct (asserted) subclasses of each class
+		List<List<Integer>> children = new ArrayList<List<Integer>>();
+		for (int i = 0; i < classIRIs.length; i++) {
+			children.add(new ArrayList<Integer>());
+		}
+
+		for (OWLOntology ont : onto.getImportsClosure()) {
+			for (OWLSubClassOfAxiom ax : ont.getAxioms(AxiomType.SUBCLASS_OF)) {
+				if (!ax.getSubClass().isAnonymous() && !ax.getSuperClass().isAnonymous()) {
+					children.get(ids.get(ax.getSuperClass().asOWLClass().getIRI())).add(ids.get(ax.getSubClass().asOWLClass().getIRI()));
+				}
+			}
+
+			//equivalent classes are subclasses of each other
+			for (OWLEquivalentClassesAxiom ax : ont.getAxioms(AxiomType.EQUIVALENT_CLASSES)) {
+				for (OWLClass c1 : ax.getNamedClasses()) {
+					for (OWLClass c2 : ax.getNamedClasses()) {
+						if (!c1.equals(c2)) {
+							children.get(ids.get(c1.getIRI())).add(ids.get(c2.getIRI()));
+						}
+					}
+				}
+			}
+		}
+
+		BitSet[] subClasses = new BitSet[classIRIs.length];
+		for (int i = 0; i < classIRIs.length; i++) {
+			BitSet closure = new BitSet(classIRIs.length);
+			List<Integer> stack = new ArrayList<Integer>(children.get(i));
+			while (!stack.isEmpty()) {
+				int c = stack.remove(stack.size() - 1);
+				if (!closure.get(c)) {
+					closure.set(c);
+					stack.addAll(children.get(c));
+				}
+			}
+			subClasses[i] = closure;
+		}
+
+		//as with a reasoner, a class is not a subclass of itself or of its equivalent classes
+		for (int i = 0; i < classIRIs.length; i++) {
+			BitSet equivalents = new BitSet();
+			for (int j = subClasses[i].nextSetBit(0); j >= 0; j = subClasses[i].nextSetBit(j + 1)) {
+				if (subClasses[j].get(i)) {
+					equivalents.set(j);
+				}
+			}
+			equivalents.set(i);
+			subClasses[i].andNot(equivalents);
+		}
+
+		return new ClassHierarchy(ontologyHash, false, classIRIs, subClasses);
+	}
+
+	/**
+	 * Computes the class hierarchy by classifying the ontology (with its imports) with the HermiT reasoner.
+	 * @param onto The ontology
+	 * @param ontologyHash The content hash of the ontology file (and its imports, see AtomicDecomposition.getClosureHash)
+	 * @return The class hierarchy
+	 */
+	public static ClassHierarchy computeInferred(OWLOntology onto, String ontologyHash) {
+
+		String[] classIRIs = getClassIRIs(onto);
+		Map<IRI, Integer> ids = new HashMap<IRI, Integer>();
+		for (int i = 0; i < classIRIs.length; i++) {
+			ids.put(IRI.create(classIRIs[i]), i);
+		}
+
+		//using the Hermit reasoner
+		Reasoner reasoner = new Reasoner(onto);
+		OWLDataFactory df = onto.getOWLOntologyManager().getOWLDataFactory();
+
+		BitSet[] subClasses = new BitSet[classIRIs.length];
+		for (int i = 0; i < classIRIs.length; i++) {
+			subClasses[i] = new BitSet(classIRIs.length);
+			for (OWLClass sub : reasoner.getSubClasses(df.getOWLClass(IRI.create(classIRIs[i])), false).getFlattened()) {
+				Integer id = ids.get(sub.getIRI());
+				if (id != null) {
+					subClasses[i].set(id);
+				}
+			}
+		}
+
+		reasoner.dispose();
+
+		return new ClassHierarchy(ontologyHash, true, classIRIs, subClasses);
+	}
+
+	/**
+	 * Returns the (direct and indirect) subclasses of a class
+	 * @param cls The class
+	 * @param df The data factory used for creating the subclasses
+	 * @return The set of subclasses, which is empty if the class is not in the hierarchy
+	 */
+	public Set<OWLClass> getSubClasses(OWLClass cls, OWLDataFactory df) {
+
+		Set<OWLClass> result = new HashSet<OWLClass>();
+
+		Integer id = classIDs.get(cls.getIRI());
+		if (id == null) {
+			return result;
+		}
+
+		BitSet closure = subClasses[id];
+		for (int i = closure.nextSetBit(0); i >= 0; i = closure.nextSetBit(i + 1)) {
+			result.add(df.getOWLClass(IRI.create(classIRIs[i])));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of classes in the hierarchy
+	 * @return The number of classes
+	 */
+	public int getNumClasses() {
+		return classIRIs.length;
+	}
+
+	/**
+	 * Returns the class IRIs of an ontology and its imports in a fixed (sorted) order, including owl:Thing and owl:Nothing, which are used as class IDs
+	 */
+	private static String[] getClassIRIs(OWLOntology onto) {
+
+		OWLDataFactory df = onto.getOWLOntologyManager().getOWLDataFactory();
+
+		Set<String> iris = new TreeSet<String>();
+		for (OWLClass c : onto.getClassesInSignature(true)) {
+			iris.add(c.getIRI().toString());
+		}
+		iris.add(df.getOWLThing().getIRI().toString());
+		iris.add(df.getOWLNothing().getIRI().toString());
+
+		return iris.toArray(new String[iris.size()]);
+	}
+
+	/**
+	 * Writes the hierarchy to a temporary file that is then moved in place, so that a hierarchy file being written is never read by another run
+	 */
+	private void write(File hierarchyFile) throws IOException {
+
+		File tmpFile = File.createTempFile(hierarchyFile.getName(), ".tmp", hierarchyFile.getAbsoluteFile().getParentFile());
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmpFile))));
+
+		try {
+			out.writeInt(version);
+			out.writeUTF(ontologyHash);
+			out.writeBoolean(inferred);
+			out.writeInt(classIRIs.length);
+
+			for (String iri : classIRIs) {
+				out.writeUTF(iri);
+			}
+
+			for (BitSet closure : subClasses) {
+				long[] words = closure.toLongArray();
+				out.writeInt(words.length);
+				for (long word : words) {
+					out.writeLong(word);
+				}
+			}
+		} finally {
+			out.close();
+		}
+
+		try {
+			Files.move(tmpFile.toPath(), hierarchyFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			tmpFile.delete();
+		}
+	}
+
+	private static ClassHierarchy read(File hierarchyFile) throws IOException {
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(hierarchyFile))));
+
+		try {
+			if (in.readInt() != version) {
+				throw new IOException("Unsupported class hierarchy version");
+			}
+
+			String ontologyHash = in.readUTF();
+			boolean inferred = in.readBoolean();
+			String[] classIRIs = new String[in.readInt()];
+
+			for (int i = 0; i < classIRIs.length; i++) {
+				classIRIs[i] = in.readUTF();
+			}
+
+			BitSet[] subClasses = new BitSet[classIRIs.length];
+			for (int i = 0; i < classIRIs.length; i++) {
+				long[] words = new long[in.readInt()];
+				for (int j = 0; j < words.length; j++) {
+					words[j] = in.readLong();
+				}
+				subClasses[i] = BitSet.valueOf(words);
+			}
+
+			return new ClassHierarchy(ontologyHash, inferred, classIRIs, subClasses);
+		} finally {
+			in.close();
+		}
+	}
+
+}
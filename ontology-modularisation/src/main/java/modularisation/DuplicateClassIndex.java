@@ -0,0 +1,154 @@
+package modularisation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import misc.ISub;
+import misc.ISubScorer;
+import misc.StringDictionary;
+
+import fr.inrialpes.exmo.ontowrap.LoadedOntology;
+import fr.inrialpes.exmo.ontowrap.OntowrapException;
+
+/**
+ * Finds the exact duplicate classes of all pairs of ontology modules in one pass (a hash join), instead of scoring every pair of classes of every pair of
+ * modules with ISub. The name of each class is normalised once, the way ISub.score normalises it (lower-cased, without '.', '_' and ' '), and the classes
+ * are put in buckets by a key of the normalised name, so only classes in the same bucket can be duplicates.
+ * ISub gives a score of 1.0 not only to equal normalised names, but also to names made of the same substrings (of more than two characters) in another
+ * order, and never to equal names of one or two characters. The key is therefore the characters of the normalised name in sorted order, which all names
+ * scoring 1.0 share, and the classes of different modules in a bucket are scored by ISub, so that the duplicates are exactly those ISubMatcher finds.
+ * @author audunvennesland
+ *
+ */
+public class DuplicateClassIndex {
+
+	private final ISub isubMatcher = new ISubScorer();
+
+	//the keys of the normalised class names, and the classes having each key, by key ID
+	private final StringDictionary keys = new StringDictionary();
+	private final List<List<IndexedClass>> buckets = new ArrayList<List<IndexedClass>>();
+
+	private int numModules = 0;
+
+	//the duplicates of each pair of modules, once the buckets have been joined
+	private Map<Long, List<Object[]>> duplicates = null;
+
+	/**
+	 * Adds the classes of a module to the index
+	 * @param module The module, as loaded for the Alignment API
+	 * @return The number of the module in the index (0 for the first module added, then 1, ...)
+	 * @throws OntowrapException
+	 */
+	public int addModule(LoadedOntology<?> module) throws OntowrapException {
+
+		int moduleNumber = numModules++;
+
+		for (Object cls : module.getClasses()) {
+			String name = module.getEntityName(cls);
+			if (name == null) {
+				continue;
+			}
+
+			IndexedClass indexedClass = new IndexedClass(moduleNumber, cls, name.toLowerCase());
+
+			int key = keys.getID(getKey(indexedClass.name));
+			if (key == buckets.size()) {
+				buckets.add(new ArrayList<IndexedClass>(2));
+			}
+			buckets.get(key).add(indexedClass);
+		}
+
+		duplicates = null;
+
+		return moduleNumber;
+	}
+
+	/**
+	 * Returns the duplicate classes of two modules
+	 * @param module1 The number of the first module
+	 * @param module2 The number of the second module, added after the first module
+	 * @return The pairs of duplicate classes, each as the class of the first module and the class of the second module
+	 */
+	public List<Object[]> getDuplicates(int module1, int module2) {
+
+		if (duplicates == null) {
+			join();
+		}
+
+		List<Object[]> moduleDuplicates = duplicates.get(getPair(module1, module2));
+		return moduleDuplicates == null ? Collections.<Object[]>emptyList() : moduleDuplicates;
+	}
+
+	/**
+	 * Finds the duplicates of all pairs of modules from the buckets of classes
+	 */
+	private void join() {
+
+		duplicates = new HashMap<Long, List<Object[]>>();
+
+		for (List<IndexedClass> bucket : buckets) {
+			//the classes of a bucket are in the order the modules were added
+			for (int i = 0; i < bucket.size(); i++) {
+				IndexedClass cls1 = bucket.get(i);
+				for (int j = i + 1; j < bucket.size(); j++) {
+					IndexedClass cls2 = bucket.get(j);
+					if (cls1.module != cls2.module && isubMatcher.score(cls1.name, cls2.name) >= 1.0) {
+						Long pair = getPair(cls1.module, cls2.module);
+						List<Object[]> moduleDuplicates = duplicates.get(pair);
+						if (moduleDuplicates == null) {
+							moduleDuplicates = new ArrayList<Object[]>();
+							duplicates.put(pair, moduleDuplicates);
+						}
+						moduleDuplicates.add(new Object[] { cls1.entity, cls2.entity });
+					}
+				}
+			}
+		}
+	}
+
+	private static long getPair(int module1, int module2) {
+		return ((long) module1 << 32) | module2;
+	}
+
+	/**
+	 * Returns the bucket key of a lower-cased class name: the characters of the name without '.', '_' and ' ', in sorted order
+	 * @param name The lower-cased class name
+	 * @return The key
+	 */
+	static String getKey(String name) {
+
+		char[] chars = new char[name.length()];
+		int length = 0;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c != '.' && c != '_' && c != ' ') {
+				chars[length++] = c;
+			}
+		}
+
+		Arrays.sort(chars, 0, length);
+
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * A class of a module and its lower-cased name
+	 */
+	private static class IndexedClass {
+
+		final int module;
+		final Object entity;
+		final String name;
+
+		IndexedClass(int module, Object entity, String name) {
+			this.module = module;
+			this.entity = entity;
+			this.name = name;
+		}
+	}
+
+}
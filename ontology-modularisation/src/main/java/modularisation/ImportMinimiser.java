@@ -0,0 +1,136 @@
+package modularisation;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minimises the imports of the ontology modules in an ontology network. A module importing a module that it already imports through another of its
+ * imports (directly or indirectly) loads the same module along several paths, so such redundant imports are dropped (a transitive reduction of the
+ * import graph). The imports are dropped one at a time, each only if the imported module is still reachable without it, so that the import closure of
+ * every module stays the same also when modules import each other in cycles.
+ * When several modules own the classes a module needs, a small set of owning modules covering all these classes can be chosen (greedy set cover), instead
+ * of one owning module per class.
+ * @author audunvennesland
+ *
+ */
+public class ImportMinimiser {
+
+	/**
+	 * Drops the redundant imports from the imports to be declared by a set of modules
+	 * @param imports The modules to be imported by each module, the imports that may be dropped
+	 * @param declaredImports The modules already imported by each module in the network. The declared imports that are not among the imports to be
+	 * declared are kept.
+	 * @return The imports to be declared by each module without the redundant ones, in the order of the given imports
+	 */
+	public static Map<File, Set<File>> reduce(Map<File, Set<File>> imports, Map<File, Set<File>> declaredImports) {
+
+		//the import graph of the network once the imports are declared
+		Map<File, Set<File>> graph = new LinkedHashMap<File, Set<File>>();
+		for (Map.Entry<File, Set<File>> module : declaredImports.entrySet()) {
+			graph.put(module.getKey(), new LinkedHashSet<File>(module.getValue()));
+		}
+		for (Map.Entry<File, Set<File>> module : imports.entrySet()) {
+			if (!graph.containsKey(module.getKey())) {
+				graph.put(module.getKey(), new LinkedHashSet<File>());
+			}
+			graph.get(module.getKey()).addAll(module.getValue());
+		}
+
+		Map<File, Set<File>> reduced = new LinkedHashMap<File, Set<File>>();
+
+		for (Map.Entry<File, Set<File>> module : imports.entrySet()) {
+			Set<File> moduleImports = new LinkedHashSet<File>();
+			for (File importedModule : module.getValue()) {
+				graph.get(module.getKey()).remove(importedModule);
+				if (!getClosure(module.getKey(), graph).contains(importedModule)) {
+					graph.get(module.getKey()).add(importedModule);
+					moduleImports.add(importedModule);
+				}
+			}
+			reduced.put(module.getKey(), moduleImports);
+		}
+
+		return reduced;
+	}
+
+	/**
+	 * Returns the import closure of a module, that is, the modules imported by the module directly or indirectly
+	 * @param module The module
+	 * @param imports The modules imported by each module
+	 * @return The modules in the import closure, which only includes the module itself if it imports itself through a cycle
+	 */
+	public static Set<File> getClosure(File module, Map<File, Set<File>> imports) {
+
+		Set<File> closure = new LinkedHashSet<File>();
+		Deque<File> queue = new ArrayDeque<File>();
+		queue.add(module);
+
+		while (!queue.isEmpty()) {
+			Set<File> moduleImports = imports.get(queue.poll());
+			if (moduleImports != null) {
+				for (File importedModule : moduleImports) {
+					if (closure.add(importedModule)) {
+						queue.add(importedModule);
+					}
+				}
+			}
+		}
+
+		return closure;
+	}
+
+	/**
+	 * Chooses a small set of owning modules covering a set of classes (greedy set cover): the module owning the most classes not yet covered is chosen until
+	 * all classes are covered
+	 * @param owners The modules owning each class
+	 * @param preference The modules in order of preference, deciding between modules covering as many classes
+	 * @return The chosen modules
+	 */
+	public static Set<File> cover(Map<String, ? extends Collection<File>> owners, List<File> preference) {
+
+		Set<File> chosen = new LinkedHashSet<File>();
+		Set<String> uncovered = new HashSet<String>(owners.keySet());
+
+		while (!uncovered.isEmpty()) {
+
+			File best = null;
+			int bestCount = 0;
+			for (File candidate : preference) {
+				int count = 0;
+				for (String cls : uncovered) {
+					if (owners.get(cls).contains(candidate)) {
+						count++;
+					}
+				}
+				if (count > bestCount) {
+					best = candidate;
+					bestCount = count;
+				}
+			}
+
+			//the remaining classes are only owned by modules not in the preference list
+			if (best == null) {
+				break;
+			}
+
+			chosen.add(best);
+			for (String cls : new ArrayList<String>(uncovered)) {
+				if (owners.get(cls).contains(best)) {
+					uncovered.remove(cls);
+				}
+			}
+		}
+
+		return chosen;
+	}
+
+}
@@ -0,0 +1,434 @@
+package modularisation;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDeclarationAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLIndividual;
+import org.semanticweb.owlapi.model.OWLNaryIndividualAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import com.clarkparsia.owlapi.modularity.locality.LocalityClass;
+import com.clarkparsia.owlapi.modularity.locality.SyntacticLocalityEvaluator;
+
+import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
+
+/**
+ * An extractor of syntactic locality-based modules working on integer IDs instead of OWL API objects. Every axiom that can occur in a module and every entity
+ * in the signature of these axioms is given an integer ID, signatures and modules are kept as bitsets, and an index from each entity to the axioms it occurs in
+ * is used as a worklist, so that an axiom is only checked again when an entity of the axiom is added to the signature of the module.
+ * The modules are the same as those of the OWL API SyntacticLocalityModuleExtractor, including the declaration and annotation axioms it adds.
+ * The extractor is not modified after it is built, so it can be shared among concurrent extractions.
+ * @author audunvennesland
+ *
+ */
+public class IndexedLocalityExtractor {
+
+	final ModuleType moduleType;
+
+	//the axioms that can occur in a module, that is, the axioms that are non-local with respect to their own signature
+	final OWLAxiom[] axioms;
+
+	//entity IDs and the occurrences of each entity in the axioms
+	final OWLEntity[] entities;
+	final Map<OWLEntity, Integer> entityIDs = new HashMap<OWLEntity, Integer>();
+	final int[][] axiomEntities;
+	final int[][] entityAxioms;
+
+	//the axioms that are non-local with respect to the empty signature
+	private final BitSet bottomGlobals;
+	private final BitSet topGlobals;
+
+	//the declarations, annotation assertions and same/different individual axioms added to a module for the entities in its signature
+	private final Map<OWLEntity, Set<OWLAxiom>> declarations = new HashMap<OWLEntity, Set<OWLAxiom>>();
+	private final Map<IRI, Set<OWLAxiom>> annotationAssertions = new HashMap<IRI, Set<OWLAxiom>>();
+	private final Map<OWLIndividual, Set<OWLAxiom>> individualAxioms = new HashMap<OWLIndividual, Set<OWLAxiom>>();
+
+	/**
+	 * Indexes the axioms of an ontology (including its imports) for extracting modules of a given type
+	 * @param onto The ontology from which modules will be extracted
+	 * @param moduleType The type of locality-based modules (STAR, BOT or TOP)
+	 */
+	public IndexedLocalityExtractor(OWLOntology onto, ModuleType moduleType) {
+		this(getSortedAxioms(onto), null, moduleType);
+	}
+
+	/**
+	 * Indexes a list of axioms
+	 * @param ontologyAxioms All axioms of the ontology
+	 * @param axiomPositions The positions in ontologyAxioms of the axioms that can occur in a module, or null if these are found by checking their locality
+	 * @param moduleType The type of locality-based modules (STAR, BOT or TOP)
+	 */
+	IndexedLocalityExtractor(List<OWLAxiom> ontologyAxioms, int[] axiomPositions, ModuleType moduleType) {
+		this.moduleType = moduleType;
+
+		if (axiomPositions == null) {
+			axiomPositions = getModuleAxiomPositions(ontologyAxioms, moduleType);
+		}
+
+		axioms = new OWLAxiom[axiomPositions.length];
+		for (int i = 0; i < axiomPositions.length; i++) {
+			axioms[i] = ontologyAxioms.get(axiomPositions[i]);
+		}
+
+		List<OWLEntity> entityList = new ArrayList<OWLEntity>();
+		axiomEntities = new int[axioms.length][];
+		for (int i = 0; i < axioms.length; i++) {
+			Set<OWLEntity> signature = axioms[i].getSignature();
+			axiomEntities[i] = new int[signature.size()];
+			int j = 0;
+			for (OWLEntity e : signature) {
+				Integer id = entityIDs.get(e);
+				if (id == null) {
+					id = entityList.size();
+					entityList.add(e);
+					entityIDs.put(e, id);
+				}
+				axiomEntities[i][j++] = id;
+			}
+		}
+		entities = entityList.toArray(new OWLEntity[entityList.size()]);
+
+		int[] occurrences = new int[entities.length];
+		for (int[] signature : axiomEntities) {
+			for (int e : signature) {
+				occurrences[e]++;
+			}
+		}
+		entityAxioms = new int[entities.length][];
+		for (int e = 0; e < entities.length; e++) {
+			entityAxioms[e] = new int[occurrences[e]];
+			occurrences[e] = 0;
+		}
+		for (int i = 0; i < axioms.length; i++) {
+			for (int e : axiomEntities[i]) {
+				entityAxioms[e][occurrences[e]++] = i;
+			}
+		}
+
+		bottomGlobals = getGlobals(LocalityClass.BOTTOM_BOTTOM);
+		topGlobals = getGlobals(LocalityClass.TOP_TOP);
+
+		for (OWLAxiom axiom : ontologyAxioms) {
+			if (axiom.getAxiomType() == AxiomType.DECLARATION) {
+				put(declarations, ((OWLDeclarationAxiom) axiom).getEntity(), axiom);
+			} else if (axiom.getAxiomType() == AxiomType.ANNOTATION_ASSERTION) {
+				if (((OWLAnnotationAssertionAxiom) axiom).getSubject() instanceof IRI) {
+					put(annotationAssertions, (IRI) ((OWLAnnotationAssertionAxiom) axiom).getSubject(), axiom);
+				}
+			} else if (axiom.getAxiomType() == AxiomType.SAME_INDIVIDUAL || axiom.getAxiomType() == AxiomType.DIFFERENT_INDIVIDUALS) {
+				for (OWLIndividual individual : ((OWLNaryIndividualAxiom) axiom).getIndividuals()) {
+					put(individualAxioms, individual, axiom);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Extracts the locality-based module for a seed signature, and adds the declaration and annotation axioms of the entities in the signature of the module,
+	 * as done by the OWL API SyntacticLocalityModuleExtractor.
+	 * @param seedSig The seed signature guiding the extraction of the module
+	 * @return The axioms of the module
+	 */
+	public Set<OWLAxiom> extract(Set<OWLEntity> seedSig) {
+		return toModule(extract(getAllAxioms(), toSignature(seedSig), null), seedSig);
+	}
+
+	/**
+	 * Returns the type of locality-based modules (STAR, BOT or TOP) extracted
+	 * @return The module type
+	 */
+	public ModuleType getModuleType() {
+		return moduleType;
+	}
+
+	/**
+	 * Extracts the module for a signature from a set of candidate axioms. For STAR modules, bottom and top modules are extracted in turn until the module does not change.
+	 * @param candidates The axioms the module is extracted from, which must be a module themselves
+	 * @param seed The signature as a set of entity IDs
+	 * @param closures The axioms added together with each axiom (including the axiom itself), or null if only the axiom is added
+	 * @return The axioms of the module
+	 */
+	BitSet extract(BitSet candidates, BitSet seed, BitSet[] closures) {
+
+		if (moduleType == ModuleType.BOT) {
+			return extract(candidates, (BitSet) seed.clone(), LocalityClass.BOTTOM_BOTTOM, closures);
+		} else if (moduleType == ModuleType.TOP) {
+			return extract(candidates, (BitSet) seed.clone(), LocalityClass.TOP_TOP, closures);
+		}
+
+		BitSet module = candidates;
+		LocalityClass localityClass = LocalityClass.BOTTOM_BOTTOM;
+		boolean first = true;
+
+		while (true) {
+			int size = module.cardinality();
+			module = extract(module, (BitSet) seed.clone(), localityClass, closures);
+			if (module.cardinality() == size && !first) {
+				return module;
+			}
+			first = false;
+			localityClass = localityClass == LocalityClass.BOTTOM_BOTTOM ? LocalityClass.TOP_TOP : LocalityClass.BOTTOM_BOTTOM;
+		}
+	}
+
+	/**
+	 * Extracts the bottom or top module for a signature from a set of candidate axioms. As the locality of an axiom only changes when one of its entities is
+	 * added to the signature, only the axioms holding such an entity are checked again.
+	 * @param candidates The axioms the module is extracted from
+	 * @param signature The signature as a set of entity IDs, to which the signature of the module is added
+	 * @param localityClass BOTTOM_BOTTOM or TOP_TOP
+	 * @param closures The axioms added together with each axiom (including the axiom itself), or null if only the axiom is added
+	 * @return The axioms of the module
+	 */
+	private BitSet extract(BitSet candidates, BitSet signature, LocalityClass localityClass, BitSet[] closures) {
+
+		SyntacticLocalityEvaluator evaluator = new SyntacticLocalityEvaluator(localityClass);
+		Set<OWLEntity> signatureView = new EntitySet(signature);
+
+		BitSet module = new BitSet(axioms.length);
+
+		//entities added to the signature whose axioms have not been checked yet
+		int[] stack = new int[entities.length];
+		int size = 0;
+		for (int e = signature.nextSetBit(0); e >= 0; e = signature.nextSetBit(e + 1)) {
+			stack[size++] = e;
+		}
+
+		BitSet globals = localityClass == LocalityClass.BOTTOM_BOTTOM ? bottomGlobals : topGlobals;
+		for (int i = globals.nextSetBit(0); i >= 0; i = globals.nextSetBit(i + 1)) {
+			if (candidates.get(i) && !module.get(i)) {
+				size = add(i, module, signature, stack, size, closures);
+			}
+		}
+
+		while (size > 0) {
+			int e = stack[--size];
+			for (int i : entityAxioms[e]) {
+				if (candidates.get(i) && !module.get(i) && !evaluator.isLocal(axioms[i], signatureView)) {
+					size = add(i, module, signature, stack, size, closures);
+				}
+			}
+		}
+
+		return module;
+	}
+
+	/**
+	 * Adds a non-local axiom (and its closure) to a module, and pushes the entities that are new to the signature on the stack
+	 * @return The new size of the stack
+	 */
+	private int add(int axiom, BitSet module, BitSet signature, int[] stack, int size, BitSet[] closures) {
+
+		BitSet added = null;
+		if (closures != null) {
+			added = (BitSet) closures[axiom].clone();
+			added.andNot(module);
+		} else {
+			added = new BitSet();
+			added.set(axiom);
+		}
+
+		module.or(added);
+
+		for (int i = added.nextSetBit(0); i >= 0; i = added.nextSetBit(i + 1)) {
+			for (int e : axiomEntities[i]) {
+				if (!signature.get(e)) {
+					signature.set(e);
+					stack[size++] = e;
+				}
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Returns the set of all axiom IDs
+	 */
+	BitSet getAllAxioms() {
+		BitSet all = new BitSet(axioms.length);
+		all.set(0, axioms.length);
+		return all;
+	}
+
+	/**
+	 * Returns the IDs of the entities in a signature, leaving out the entities that do not occur in any axiom that can be in a module
+	 */
+	BitSet toSignature(Set<OWLEntity> signature) {
+
+		BitSet ids = new BitSet(entities.length);
+		for (OWLEntity e : signature) {
+			Integer id = entityIDs.get(e);
+			if (id != null) {
+				ids.set(id);
+			}
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Returns the axioms of a module given as axiom IDs, together with the declaration and annotation axioms of the entities in the seed signature
+	 * and the signature of the module
+	 */
+	Set<OWLAxiom> toModule(BitSet module, Set<OWLEntity> seedSig) {
+
+		Set<OWLAxiom> moduleAxioms = new HashSet<OWLAxiom>();
+		Set<OWLEntity> signature = new HashSet<OWLEntity>(seedSig);
+		for (int i = module.nextSetBit(0); i >= 0; i = module.nextSetBit(i + 1)) {
+			moduleAxioms.add(axioms[i]);
+			for (int e : axiomEntities[i]) {
+				signature.add(entities[e]);
+			}
+		}
+
+		for (OWLEntity e : signature) {
+			addAll(moduleAxioms, declarations.get(e));
+			addAll(moduleAxioms, annotationAssertions.get(e.getIRI()));
+			if (e.isOWLNamedIndividual()) {
+				addAll(moduleAxioms, individualAxioms.get(e.asOWLNamedIndividual()));
+			}
+		}
+
+		return moduleAxioms;
+	}
+
+	private BitSet getGlobals(LocalityClass localityClass) {
+
+		SyntacticLocalityEvaluator evaluator = new SyntacticLocalityEvaluator(localityClass);
+		Set<OWLEntity> empty = Collections.emptySet();
+
+		BitSet globals = new BitSet(axioms.length);
+		for (int i = 0; i < axioms.length; i++) {
+			if (!evaluator.isLocal(axioms[i], empty)) {
+				globals.set(i);
+			}
+		}
+
+		return globals;
+	}
+
+	/**
+	 * Returns the positions of the axioms that can occur in a module, that is, the axioms that are non-local with respect to their own signature
+	 * (for STAR modules, with respect to both bottom and top locality)
+	 */
+	static int[] getModuleAxiomPositions(List<OWLAxiom> ontologyAxioms, ModuleType moduleType) {
+
+		SyntacticLocalityEvaluator bottom = new SyntacticLocalityEvaluator(LocalityClass.BOTTOM_BOTTOM);
+		SyntacticLocalityEvaluator top = new SyntacticLocalityEvaluator(LocalityClass.TOP_TOP);
+
+		List<Integer> positions = new ArrayList<Integer>();
+		for (int i = 0; i < ontologyAxioms.size(); i++) {
+			OWLAxiom axiom = ontologyAxioms.get(i);
+			Set<OWLEntity> signature = axiom.getSignature();
+			boolean bottomLocal = moduleType != ModuleType.TOP && bottom.isLocal(axiom, signature);
+			boolean topLocal = moduleType != ModuleType.BOT && top.isLocal(axiom, signature);
+			if (!bottomLocal && !topLocal) {
+				positions.add(i);
+			}
+		}
+
+		int[] axiomPositions = new int[positions.size()];
+		for (int i = 0; i < axiomPositions.length; i++) {
+			axiomPositions[i] = positions.get(i);
+		}
+
+		return axiomPositions;
+	}
+
+	/**
+	 * Returns the axioms of an ontology and its imports in a fixed (sorted) order, which is used for storing axioms as their position
+	 */
+	static List<OWLAxiom> getSortedAxioms(OWLOntology onto) {
+
+		Set<OWLAxiom> axiomSet = new HashSet<OWLAxiom>();
+		for (OWLOntology o : onto.getImportsClosure()) {
+			axiomSet.addAll(o.getAxioms());
+		}
+
+		List<OWLAxiom> sorted = new ArrayList<OWLAxiom>(axiomSet);
+		Collections.sort(sorted, new Comparator<OWLAxiom>() {
+			public int compare(OWLAxiom a1, OWLAxiom a2) {
+				int c = a1.compareTo(a2);
+				if (c == 0 && !a1.equals(a2)) {
+					c = a1.toString().compareTo(a2.toString());
+				}
+				return c;
+			}
+		});
+
+		return sorted;
+	}
+
+	private static <K> void put(Map<K, Set<OWLAxiom>> map, K key, OWLAxiom axiom) {
+		Set<OWLAxiom> axiomSet = map.get(key);
+		if (axiomSet == null) {
+			axiomSet = new HashSet<OWLAxiom>();
+			map.put(key, axiomSet);
+		}
+		axiomSet.add(axiom);
+	}
+
+	private static void addAll(Set<OWLAxiom> axiomSet, Set<OWLAxiom> added) {
+		if (added != null) {
+			axiomSet.addAll(added);
+		}
+	}
+
+	/**
+	 * A set of entities backed by a bitset of entity IDs, used as the signature given to the locality evaluator
+	 */
+	private class EntitySet extends AbstractSet<OWLEntity> {
+
+		final BitSet ids;
+
+		EntitySet(BitSet ids) {
+			this.ids = ids;
+		}
+
+		public boolean contains(Object o) {
+			Integer id = entityIDs.get(o);
+			return id != null && ids.get(id);
+		}
+
+		public int size() {
+			return ids.cardinality();
+		}
+
+		public Iterator<OWLEntity> iterator() {
+			return new Iterator<OWLEntity>() {
+				int next = ids.nextSetBit(0);
+
+				public boolean hasNext() {
+					return next >= 0;
+				}
+
+				public OWLEntity next() {
+					OWLEntity e = entities[next];
+					next = ids.nextSetBit(next + 1);
+					return e;
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+}
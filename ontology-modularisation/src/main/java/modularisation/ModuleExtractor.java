@@ -1,35 +1,40 @@
 package modularisation;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import misc.OntologySnapshot;
 
-import org.semanticweb.HermiT.Reasoner;
 import org.semanticweb.owlapi.apibinding.OWLManager;
-import org.semanticweb.owlapi.model.AddAxiom;
-import org.semanticweb.owlapi.model.AxiomType;
 import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLClass;
-import org.semanticweb.owlapi.model.OWLClassExpression;
 import org.semanticweb.owlapi.model.OWLDataFactory;
-import org.semanticweb.owlapi.model.OWLDataProperty;
-import org.semanticweb.owlapi.model.OWLDataPropertyDomainAxiom;
-import org.semanticweb.owlapi.model.OWLDataRange;
 import org.semanticweb.owlapi.model.OWLEntity;
-import org.semanticweb.owlapi.model.OWLObjectProperty;
-import org.semanticweb.owlapi.model.OWLObjectPropertyDomainAxiom;
 import org.semanticweb.owlapi.model.OWLOntology;
-import org.semanticweb.owlapi.model.OWLOntologyChange;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.model.OWLOntologyStorageException;
-import org.semanticweb.owlapi.reasoner.NodeSet;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
-import org.semanticweb.owlapi.util.OWLEntityRenamer;
-import org.semanticweb.owlapi.util.SimpleIRIMapper;
 
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
 import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
 import uk.ac.manchester.cs.owlapi.modularity.SyntacticLocalityModuleExtractor;
 
@@ -42,6 +47,16 @@ public class ModuleExtractor {
 
 	static OWLReasonerFactory reasonerFactory = new StructuralReasonerFactory();
 
+	//write the intermediate extraction stages of each module to disk
+	static boolean debug = Boolean.getBoolean("modularisation.debug");
+
+	//use the HermiT reasoner instead of the asserted subclass axioms for computing the class hierarchy
+	static boolean useReasoner = Boolean.getBoolean("modularisation.hermit");
+
+	//the engine extracting the locality-based modules: the OWL API module extractor ("owlapi"), the IndexedLocalityExtractor ("indexed")
+	//or the stored atomic decomposition of the ontology ("atoms"), checked as in setEngine so that a misspelt property fails instead of using owlapi
+	static String engine = checkEngine(System.getProperty("modularisation.engine", "owlapi"));
+
 	/**
 	 * Extracts a module from an OWL ontology given a "seed signature". 
 	 * @param monoFileName The OWL ontology from which a module will be extracted.
@@ -52,270 +67,527 @@ public class ModuleExtractor {
 	 * @throws OWLOntologyCreationException
 	 */
 	public static void modularise(String monoFileName, String moduleName, String storageFolder, String seedSignature) throws OWLOntologyStorageException, OWLOntologyCreationException {
+		ModuleMetrics metrics = new ModuleMetrics(moduleName);
+
 		File ontoFile = new File(monoFileName);
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();		
-		OWLOntology AIRM_onto = manager.loadOntologyFromOntologyDocument(ontoFile);
-		OWLDataFactory df = OWLManager.getOWLDataFactory();
+		OWLOntology AIRM_onto = OntologySnapshot.load(manager, ontoFile);
 
-		//create seed signature
-		String seed = seedSignature;
-		OWLClass cls = df.getOWLClass(IRI.create(AIRM_onto.getOntologyID().getOntologyIRI() + seed));
+		ClassHierarchy hierarchy = ClassHierarchy.load(ontoFile, AIRM_onto, useReasoner);
 
-		Set<OWLEntity> sig = new HashSet<OWLEntity>();
-		sig.add(cls);	
+		PropertyDomainIndex domainIndex = new PropertyDomainIndex(AIRM_onto);
 
-		// We now add all subclasses (direct and indirect) of the chosen classes. 
-		Set<OWLEntity> seedSig = new HashSet<OWLEntity>();
+		IndexedLocalityExtractor localityExtractor = createLocalityExtractor(ontoFile, AIRM_onto);
 
-		//using the Hermit reasoner
-		Reasoner reasoner=new Reasoner(AIRM_onto);
+		metrics.record("load");
 
-		for (OWLEntity ent : sig) {
-			seedSig.add(ent);
+		Set<OWLEntity> seedSig = expandSeedSignature(AIRM_onto, hierarchy, Collections.singleton(seedSignature));
 
-			if (OWLClass.class.isAssignableFrom(ent.getClass())) {
+		metrics.record("seed expansion");
 
-				NodeSet<OWLClass> subClasses = reasoner.getSubClasses((OWLClass) ent, false);
-				seedSig.addAll(subClasses.getFlattened());
+		extractModule(manager, AIRM_onto, domainIndex, localityExtractor, moduleName, storageFolder, seedSig, metrics);
 
-			}
-		}
+	}
 
+	/**
+	 * Extracts a set of modules from an OWL ontology. The ontology and its class hierarchy are loaded only once, after which the modules are extracted concurrently. 
+	 * @param monoFileName The OWL ontology from which the modules will be extracted.
+	 * @param storageFolder The folder in which the extracted modules will be placed.
+	 * @param manifest A map where the key is the name of a module and the value is the set of seed signatures (class names) guiding the extraction of that module.
+	 * @param parallelism The number of modules being extracted at the same time.
+	 * @throws OWLOntologyStorageException
+	 * @throws OWLOntologyCreationException
+	 */
+	public static void modulariseAll(String monoFileName, String storageFolder, Map<String, Set<String>> manifest, int parallelism) throws OWLOntologyStorageException, OWLOntologyCreationException {
+		ModuleMetrics loadMetrics = new ModuleMetrics(monoFileName);
 
+		File ontoFile = new File(monoFileName);
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();		
+		OWLOntology AIRM_onto = OntologySnapshot.load(manager, ontoFile);
 
-		//extract module according to locality-based modularisation from OLW API       
-		SyntacticLocalityModuleExtractor sme = new SyntacticLocalityModuleExtractor(manager, AIRM_onto, ModuleType.STAR);
-		File owl_file = new File("extracted_module" +moduleName+ ".owl");
-		IRI tempIRI = IRI.create(owl_file.toURI());
+		Map<String, String> summaries = extractAll(ontoFile, AIRM_onto, storageFolder, manifest, parallelism, loadMetrics);
 
+		System.out.println("\nAll " + summaries.size() + " modules created!");
+	}
 
-		OWLOntology mod = sme.extractAsOntology(seedSig, tempIRI);		
+	/**
+	 * Partitions an OWL ontology into a network of modules, one for each top-level subject-area class of the ontology (the classes having owl:Thing as direct 
+	 * superclass and a name starting with "_", e.g. _Stakeholders_). The ontology is loaded only once, after which the modules are extracted concurrently 
+	 * and a summary of the size of each module and the time used for extracting it is printed.
+	 * @param monoFileName The OWL ontology which will be partitioned.
+	 * @param storageFolder The folder in which the module network will be placed.
+	 * @param parallelism The number of modules being extracted at the same time.
+	 * @throws OWLOntologyStorageException
+	 * @throws OWLOntologyCreationException
+	 */
+	public static void modularisePartition(String monoFileName, String storageFolder, int parallelism) throws OWLOntologyStorageException, OWLOntologyCreationException {
+		long start = System.currentTimeMillis();
+		ModuleMetrics loadMetrics = new ModuleMetrics(monoFileName);
 
-		//save locality-based module
-		manager.saveOntology(mod, tempIRI);
+		File ontoFile = new File(monoFileName);
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();		
+		OWLOntology AIRM_onto = OntologySnapshot.load(manager, ontoFile);
 
-		Set<OWLClass> classes = mod.getClassesInSignature();
-		Set<OWLEntity> opSet = new HashSet<OWLEntity>();
+		Map<String, Set<String>> manifest = createPartitionManifest(AIRM_onto);
 
-		//create an extended ontology module that also contains object properties, data properties and individuals associated with the classes
-		//from the module
-		File complete_owl_file = new File(storageFolder + "/" + moduleName + ".owl");
-		IRI documentIRI = IRI.create(complete_owl_file.toURI());
-		IRI ontologyIRI = IRI.create("http://www.project-best.eu/owl/airm-mod/" + moduleName + ".owl");
+		System.out.println("Found " + manifest.size() + " top-level classes: " + manifest.values());
 
-		SimpleIRIMapper mapper = new SimpleIRIMapper(ontologyIRI, documentIRI);
+		Map<String, String> summaries = extractAll(ontoFile, AIRM_onto, storageFolder, manifest, parallelism, loadMetrics);
 
-		manager.addIRIMapper(mapper);
+		System.out.println("\nAll " + summaries.size() + " modules created in " + (System.currentTimeMillis() - start) + " ms!");
+		System.out.println("\nmodule\tseed signature\tclasses\taxioms\ttime (ms)");
+		for (String summary : summaries.values()) {
+			System.out.println(summary);
+		}
+	}
 
-		OWLOntology complete_ontology = manager.createOntology(ontologyIRI);
+	/**
+	 * Creates a manifest with one module for each top-level subject-area class of an ontology, that is, each class having owl:Thing as direct superclass and 
+	 * a name starting with "_". The module is named after the class, in lower case and without underscores (e.g. stakeholders for _Stakeholders_).
+	 * @param onto The OWL ontology which will be partitioned
+	 * @return A map where the key is the name of a module and the value is the seed signature (the name of the top-level class relative to the ontology IRI)
+	 * @throws IllegalArgumentException if the ontology has no ontology IRI, which the seed signatures are relative to
+	 */
+	public static Map<String, Set<String>> createPartitionManifest(OWLOntology onto) {
 
-		//"clone" the intermediate ontology to the complete ontology
-		manager.addAxioms(complete_ontology, mod.getAxioms());
+		if (onto.getOntologyID().isAnonymous()) {
+			throw new IllegalArgumentException("Cannot partition an anonymous ontology: the seed signatures of the modules are relative to the ontology IRI");
+		}
+		String ontologyIRI = onto.getOntologyID().getOntologyIRI().toString();
 
-		for (OWLClass c : classes) {
+		OWLReasoner reasoner = reasonerFactory.createReasoner(onto);
+		OWLClass thing = reasoner.getTopClassNode().getRepresentativeElement();
 
-			//get object properties for which class c is the domain class
-			Set<OWLEntity> objectPropSet = getObjectProperties(AIRM_onto, c);
-			if (objectPropSet != null) {
+		//the top-level classes, sorted so that the manifest is the same in every run
+		Set<OWLClass> topLevelClasses = new TreeSet<OWLClass>();
+		for (OWLClass cls : onto.getClassesInSignature()) {
+			boolean mainClass = cls.getIRI().getFragment() != null && cls.getIRI().getFragment().startsWith("_");
+			if (mainClass && cls.getIRI().toString().startsWith(ontologyIRI) && reasoner.getSuperClasses(cls, true).getFlattened().contains(thing)) {
+				topLevelClasses.add(cls);
+			}
+		}
 
-				for (OWLEntity o : objectPropSet) {
+		reasoner.dispose();
 
-					Set<OWLClassExpression> temp = o.asOWLObjectProperty().getDomains(AIRM_onto);
-					for (OWLClassExpression oce : temp) {
-						manager.applyChange(new AddAxiom(complete_ontology,df.getOWLObjectPropertyDomainAxiom(o.asOWLObjectProperty(), oce)));
-					}
+		Map<String, Set<String>> manifest = new LinkedHashMap<String, Set<String>>();
+		for (OWLClass cls : topLevelClasses) {
+			String moduleName = cls.getIRI().getFragment().replace("_", "").toLowerCase();
+			if (!manifest.containsKey(moduleName)) {
+				manifest.put(moduleName, new LinkedHashSet<String>());
+			}
+			manifest.get(moduleName).add(cls.getIRI().toString().substring(ontologyIRI.length()));
+		}
 
-					Set<OWLClassExpression> temp2 = o.asOWLObjectProperty().getRanges(AIRM_onto);
+		return manifest;
+	}
 
-					for (OWLClassExpression oce2 : temp2) {
-						manager.applyChange(new AddAxiom(complete_ontology,df.getOWLObjectPropertyRangeAxiom(o.asOWLObjectProperty(), oce2)));
-					}
+	/**
+	 * Extracts a set of modules concurrently from an already loaded OWL ontology.
+	 * @param loadMetrics The metrics measuring the load phase, which was started before loading the ontology and ends when the indexes shared by all modules are built
+	 * @return A map where the key is the name of a module and the value is a tab-separated summary of the module (name, seed signature, number of classes 
+	 * and axioms, and the time used for extracting it)
+	 */
+	private static Map<String, String> extractAll(File ontoFile, final OWLOntology AIRM_onto, final String storageFolder, Map<String, Set<String>> manifest, int parallelism, ModuleMetrics loadMetrics) throws OWLOntologyStorageException, OWLOntologyCreationException {
+
+		ClassHierarchy hierarchy = ClassHierarchy.load(ontoFile, AIRM_onto, useReasoner);
+
+		//the property index is built once and shared by all extractions
+		final PropertyDomainIndex domainIndex = new PropertyDomainIndex(AIRM_onto);
+		final IndexedLocalityExtractor localityExtractor = createLocalityExtractor(ontoFile, AIRM_onto);
+
+		loadMetrics.record("load");
+
+		Map<String, Set<OWLEntity>> seedSigs = new LinkedHashMap<String, Set<OWLEntity>>();
+		final Map<String, ModuleMetrics> moduleMetrics = new LinkedHashMap<String, ModuleMetrics>();
+		for (Map.Entry<String, Set<String>> module : manifest.entrySet()) {
+			ModuleMetrics metrics = new ModuleMetrics(module.getKey());
+			metrics.addPhases(loadMetrics);
+			seedSigs.put(module.getKey(), expandSeedSignature(AIRM_onto, hierarchy, module.getValue()));
+			metrics.record("seed expansion");
+			moduleMetrics.put(module.getKey(), metrics);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+		Map<String, Future<String>> results = new LinkedHashMap<String, Future<String>>();
+
+		for (final Map.Entry<String, Set<OWLEntity>> module : seedSigs.entrySet()) {
+			final Set<String> seeds = manifest.get(module.getKey());
+			final ModuleMetrics metrics = moduleMetrics.get(module.getKey());
+			results.put(module.getKey(), executor.submit(new Callable<String>() {
+				public String call() throws Exception {
+					long start = System.currentTimeMillis();
+					metrics.mark();
+					//each worker has its own manager and data factory since these are not thread-safe in the OWL API
+					OWLOntologyManager workerManager = OWLManager.createOWLOntologyManager(new OWLDataFactoryImpl());
+					extractModule(workerManager, AIRM_onto, domainIndex, localityExtractor, module.getKey(), storageFolder, module.getValue(), metrics);
+					return module.getKey() + "\t" + seeds + "\t" + metrics.getNumClasses() + "\t" + metrics.getNumAxioms() + "\t" + (System.currentTimeMillis() - start);
+				}
+			}));
+		}
 
+		executor.shutdown();
+
+		Map<String, String> summaries = new LinkedHashMap<String, String>();
+
+		try {
+			for (Map.Entry<String, Future<String>> result : results.entrySet()) {
+				try {
+					summaries.put(result.getKey(), result.getValue().get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof OWLOntologyCreationException) {
+						throw (OWLOntologyCreationException) cause;
+					} else if (cause instanceof OWLOntologyStorageException) {
+						throw (OWLOntologyStorageException) cause;
+					}
+					throw new RuntimeException("Extraction of module " + result.getKey() + " failed", cause);
 				}
 			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Module extraction was interrupted", e);
+		}
 
-			//get data properties for which class c is the domain class
-			Set<OWLEntity> dataPropSet = getDataProperties(AIRM_onto, c);
+		return summaries;
+	}
 
-			if (dataPropSet != null) {
+	/**
+	 * Reads a module manifest, that is, a text file where each line holds the name of a module followed by the seed signatures of that module 
+	 * (e.g. "aircraft = _Aircraft, _AircraftType"). Empty lines and lines starting with # are ignored.
+	 * @param manifestFileName The path to the manifest file
+	 * @return A map where the key is the module name and the value is the set of seed signatures for that module
+	 * @throws IOException
+	 */
+	public static Map<String, Set<String>> readManifest(String manifestFileName) throws IOException {
 
-				for (OWLEntity d : dataPropSet) {
+		Map<String, Set<String>> manifest = new LinkedHashMap<String, Set<String>>();
 
+		BufferedReader reader = new BufferedReader(new FileReader(manifestFileName));
 
-					Set<OWLClassExpression> temp = d.asOWLDataProperty().getDomains(AIRM_onto);
-					for (OWLClassExpression oce : temp) {
+		try {
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
 
-						manager.applyChange(new AddAxiom(complete_ontology,df.getOWLDataPropertyDomainAxiom(d.asOWLDataProperty(), oce)));
-					}
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
 
-					Set<OWLDataRange> temp2 = d.asOWLDataProperty().getRanges(AIRM_onto);
+				int separator = line.indexOf('=');
+				if (separator < 1) {
+					throw new IOException("Invalid manifest entry (expected moduleName = seed1, seed2, ...): " + line);
+				}
 
-					for (OWLDataRange oce2 : temp2) {
-						manager.applyChange(new AddAxiom(complete_ontology,df.getOWLDataPropertyRangeAxiom(d.asOWLDataProperty(), oce2)));
+				Set<String> seeds = new LinkedHashSet<String>();
+				for (String seed : line.substring(separator + 1).split(",")) {
+					if (!seed.trim().isEmpty()) {
+						seeds.add(seed.trim());
 					}
 				}
-			}
 
+				manifest.put(line.substring(0, separator).trim(), seeds);
+			}
+		} finally {
+			reader.close();
 		}
 
-		//rename the IRI of all entities
-		OWLEntityRenamer renamer = new OWLEntityRenamer(manager, Collections.singleton(complete_ontology));
+		return manifest;
+	}
 
-		List<OWLOntologyChange> changeIRI = null;
+	/**
+	 * Creates the seed signature for a module from a set of class names, including all (direct and indirect) subclasses of these classes.
+	 * @param onto The OWL ontology from which the module will be extracted
+	 * @param hierarchy The class hierarchy of the ontology used for retrieving the subclasses
+	 * @param seedSignature The names of the classes guiding the extraction of the module
+	 * @return The expanded seed signature
+	 */
+	public static Set<OWLEntity> expandSeedSignature(OWLOntology onto, ClassHierarchy hierarchy, Set<String> seedSignature) {
+		OWLDataFactory df = OWLManager.getOWLDataFactory();
 
-		Set<OWLEntity> entities = complete_ontology.getSignature();
-		for (OWLEntity e : entities) {
-			String newIRIString = ontologyIRI.toString() + "#" + e.getIRI().getFragment();
-			IRI newIRI = IRI.create(newIRIString);
-			changeIRI = renamer.changeIRI(e, newIRI);
-			manager.applyChanges(changeIRI);
+		//create seed signature
+		Set<OWLEntity> sig = new HashSet<OWLEntity>();
+		for (String seed : seedSignature) {
+			sig.add(df.getOWLClass(IRI.create(onto.getOntologyID().getOntologyIRI() + seed)));
 		}
 
+		// We now add all subclasses (direct and indirect) of the chosen classes. 
+		Set<OWLEntity> seedSig = new HashSet<OWLEntity>();
+
+		for (OWLEntity ent : sig) {
+			seedSig.add(ent);
 
-		//save completed module and print some metrics about the extracted module
-		manager.saveOntology(complete_ontology, documentIRI);
+			if (OWLClass.class.isAssignableFrom(ent.getClass())) {
 
-		System.out.println("\n");
-		System.out.println("Ontology created!");
-		System.out.println("Number of classes: " + getNumClasses(complete_ontology));
-		System.out.println("Number of object properties: " + getNumObjectProperties(complete_ontology));
-		System.out.println("Number of data properties: " + getNumDataProperties(complete_ontology));
-		System.out.println("Number of individuals: " + getNumIndividuals(complete_ontology));
-		System.out.println("Number of axioms: " + getNumAxioms(complete_ontology));
+				seedSig.addAll(hierarchy.getSubClasses((OWLClass) ent, df));
 
-	}
+			}
+		}
 
+		return seedSig;
+	}
 
 	/**
-	 * Retrieves all object properties related to a class, that is, all object properties that has OWLClass cls as domain.
-	 * @param onto The OWL ontology for which object properties will be retrieved
-	 * @param cls The OWL class being the domain of the object properties retrieved
-	 * @return A set of object properties (as OWL entities)
+	 * Extracts a module from an already loaded OWL ontology given an expanded seed signature, and stores it in the storage folder. 
+	 * The module is built in memory through the stages locality extraction, enrichment and renaming, and only the final module is written to disk, 
+	 * together with the metrics of the module (moduleName.metrics.json).
+	 * @param manager The ontology manager used for creating the module
+	 * @param AIRM_onto The OWL ontology from which the module will be extracted. The ontology is only read, and the reads during an extraction are made
+	 * while holding the lock of the ontology, so it can be shared among concurrent extractions.
+	 * @param domainIndex The index of properties by domain class for AIRM_onto
+	 * @param localityExtractor The extractor of locality-based modules from AIRM_onto, or null if the OWL API module extractor is used
+	 * @param moduleName The name given to the module extracted.
+	 * @param storageFolder The folder in which the extracted module will be placed.
+	 * @param seedSig The expanded seed signature guiding the extraction of the module.
+	 * @param metrics The metrics of the module, to which the extraction phases are recorded (starting from the last mark) and the counts are added
+	 * @throws OWLOntologyStorageException
 	 * @throws OWLOntologyCreationException
 	 */
-	private static Set<OWLEntity> getObjectProperties(OWLOntology onto, OWLClass cls) throws OWLOntologyCreationException{
+	private static void extractModule(OWLOntologyManager manager, OWLOntology AIRM_onto, PropertyDomainIndex domainIndex, IndexedLocalityExtractor localityExtractor, String moduleName, String storageFolder, Set<OWLEntity> seedSig, ModuleMetrics metrics) throws OWLOntologyStorageException, OWLOntologyCreationException {
+		OWLDataFactory df = manager.getOWLDataFactory();
 
-		Set<OWLObjectProperty> opSet = new HashSet<OWLObjectProperty>();
-		Set<OWLEntity> eSet = new HashSet<OWLEntity>();
+		if (debug) {
+			dumpSignature(seedSig, moduleName, "seed-signature", storageFolder);
+			metrics.mark();
+		}
 
-		for (OWLObjectPropertyDomainAxiom op : onto.getAxioms(AxiomType.OBJECT_PROPERTY_DOMAIN)) {                        
-			if (op.getDomain().equals(cls)) {   
-				for(OWLObjectProperty oop : op.getObjectPropertiesInSignature()){
-					opSet.add(oop);
-				}
-			}
+		//extract module according to locality-based modularisation from OLW API       
+		Set<OWLAxiom> moduleAxioms = localityExtractor != null ? localityExtractor.extract(seedSig) : extractLocalityModule(manager, AIRM_onto, seedSig);
+
+		metrics.record("locality extraction");
+
+		if (debug) {
+			dumpStage(moduleAxioms, moduleName, "locality-module", storageFolder);
+			metrics.mark();
 		}
 
-		eSet.addAll(opSet);
+		//create an extended ontology module that also contains object properties, data properties and individuals associated with the classes
+		//from the module
+		Set<OWLAxiom> enrichedAxioms = enrichModule(moduleAxioms, domainIndex, df);
+
+		metrics.record("enrichment");
+
+		if (debug) {
+			dumpStage(enrichedAxioms, moduleName, "enriched-module", storageFolder);
+			metrics.mark();
+		}
+
+		OWLOntology complete_ontology = renameModule(manager, enrichedAxioms, moduleName);
+
+		metrics.record("rename");
+
+		//save completed module and its metrics, and print the metrics
+		saveModule(complete_ontology, storageFolder);
+
+		metrics.record("save");
 
-		return eSet;
+		metrics.count(complete_ontology);
 
+		try {
+			metrics.save(storageFolder);
+		} catch (IOException e) {
+			throw new OWLOntologyStorageException(e);
+		}
+
+		//print the metrics in one go so that the output of concurrent extractions is not interleaved
+		StringBuilder output = new StringBuilder();
+		output.append("\n\n");
+		output.append("Ontology " + moduleName + " created!\n");
+		output.append("Number of classes: " + metrics.getNumClasses() + "\n");
+		output.append("Number of object properties: " + metrics.getNumObjectProperties() + "\n");
+		output.append("Number of data properties: " + metrics.getNumDataProperties() + "\n");
+		output.append("Number of individuals: " + metrics.getNumIndividuals() + "\n");
+		output.append("Number of axioms: " + metrics.getNumAxioms());
+		System.out.println(output.toString());
 	}
 
 	/**
-	 * Retrieves all data properties related to a class, that is, all data properties that has OWLClass cls as domain.
-	 * @param onto The OWL ontology for which data properties will be retrieved
-	 * @param cls The OWL class being the domain of the data properties retrieved
-	 * @return A set of data properties (as OWL entities)
-	 * @throws OWLOntologyCreationException
+	 * Extracts the locality-based (STAR) module for a seed signature, using the OWL API module extractor. Nothing is written to disk.
+	 * The ontology is read while holding its lock, so several threads can extract modules from the same ontology.
+	 * @param manager The ontology manager used by the module extractor
+	 * @param onto The OWL ontology from which the module will be extracted
+	 * @param seedSig The (expanded) seed signature guiding the extraction of the module
+	 * @return The axioms of the locality-based module
 	 */
-	private static Set<OWLEntity> getDataProperties(OWLOntology onto, OWLClass cls) throws OWLOntologyCreationException{
+	public static Set<OWLAxiom> extractLocalityModule(OWLOntologyManager manager, OWLOntology onto, Set<OWLEntity> seedSig) {
 
-		Set<OWLDataProperty> dpSet = new HashSet<OWLDataProperty>(); 
-		Set<OWLEntity> eSet = new HashSet<OWLEntity>();
-
-		for (OWLDataPropertyDomainAxiom dp : onto.getAxioms(AxiomType.DATA_PROPERTY_DOMAIN)) {
-			if (dp.getDomain().equals(cls)) {   
-				for(OWLDataProperty odp : dp.getDataPropertiesInSignature()){
-					dpSet.add(odp);
-				}
-			}
+		//the extractor copies the axioms of the ontology and its imports into an ontology of its own, which it extracts from. As the OWL API builds some
+		//of the indexes of the source ontology lazily, concurrent extractions must not read the shared ontology at the same time while copying it.
+		SyntacticLocalityModuleExtractor sme;
+		synchronized (onto) {
+			sme = new SyntacticLocalityModuleExtractor(manager, onto, ModuleType.STAR);
 		}
 
-		eSet.addAll(dpSet);
-		return eSet;
-
+		return sme.extract(seedSig);
 	}
 
 	/**
-	 * Get number of classes in an ontology
-	 * @param ontoFile	the file path of the OWL ontology
-	 * @return numClasses an integer stating how many OWL classes the OWL ontology has
-	 * @throws OWLOntologyCreationException An exception which describes an error during the creation of an ontology. If an ontology cannot be created then subclasses of this class will describe the reasons.
+	 * Creates the extractor of locality-based (STAR) modules chosen as engine, which is built once per ontology and shared by all extractions
+	 * @param ontoFile The file the ontology was loaded from
+	 * @param onto The OWL ontology from which the modules will be extracted
+	 * @return The extractor, or null if the OWL API module extractor is used
+	 * @throws OWLOntologyCreationException
 	 */
-	private static int getNumClasses(OWLOntology onto) throws OWLOntologyCreationException {
-		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-		int numClasses = onto.getClassesInSignature().size();
+	private static IndexedLocalityExtractor createLocalityExtractor(File ontoFile, OWLOntology onto) throws OWLOntologyCreationException {
 
-		manager.removeOntology(onto);
+		if (engine.equals("indexed")) {
+			return new IndexedLocalityExtractor(onto, ModuleType.STAR);
+		} else if (engine.equals("atoms")) {
+			return AtomicDecomposition.load(ontoFile, onto, ModuleType.STAR);
+		}
 
-		return numClasses;
+		return null;
 	}
 
 	/**
-	 * Returns an integer stating how many object properties an OWL ontology has
-	 * @param ontoFile	the file path of the input OWL ontology
-	 * @return numObjectProperties an integer stating number of object properties in an OWL ontology
-	 * @throws OWLOntologyCreationException An exception which describes an error during the creation of an ontology. If an ontology cannot be created then subclasses of this class will describe the reasons.
+	 * Adds the domain and range axioms of all object properties and data properties having a class from the module as domain.
+	 * @param moduleAxioms The axioms of the locality-based module
+	 * @param domainIndex The index of properties by domain class for the ontology the module was extracted from
+	 * @param df The data factory used for creating the axioms
+	 * @return A new set holding the module axioms and the domain and range axioms
 	 */
-	private static int getNumObjectProperties(OWLOntology onto) throws OWLOntologyCreationException {
-		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-		int numObjectProperties = onto.getObjectPropertiesInSignature().size();
+	public static Set<OWLAxiom> enrichModule(Set<OWLAxiom> moduleAxioms, PropertyDomainIndex domainIndex, OWLDataFactory df) {
 
-		manager.removeOntology(onto);
+		Set<OWLClass> classes = new HashSet<OWLClass>();
+		for (OWLAxiom axiom : moduleAxioms) {
+			classes.addAll(axiom.getClassesInSignature());
+		}
+
+		Set<OWLAxiom> axioms = new HashSet<OWLAxiom>(moduleAxioms);
+		axioms.addAll(domainIndex.getEnrichmentAxioms(classes, df));
 
-		return numObjectProperties;
+		return axioms;
 	}
 
 	/**
-	 * Returns the number of data properties in an ontology (a module) as an integer
-	 * @param onto The OWL ontology for which the number of data properties is computed
-	 * @return Number of data properties for a given OWL ontology (module)
+	 * Creates the ontology module, with all entities renamed to the namespace of the module (http://www.project-best.eu/owl/airm-mod/moduleName.owl#).
+	 * @param manager The ontology manager in which the module is created
+	 * @param axioms The axioms of the (enriched) module
+	 * @param moduleName The name given to the module
+	 * @return The ontology module
 	 * @throws OWLOntologyCreationException
 	 */
-	private static int getNumDataProperties(OWLOntology onto) throws OWLOntologyCreationException {
+	public static OWLOntology renameModule(OWLOntologyManager manager, Set<OWLAxiom> axioms, String moduleName) throws OWLOntologyCreationException {
+
+		IRI ontologyIRI = getModuleIRI(moduleName);
+
+		//rename the IRI of all entities in one pass
+		OWLOntology module = manager.createOntology(ontologyIRI);
+		manager.addAxioms(module, NamespaceRewriter.rewrite(axioms, ontologyIRI, manager.getOWLDataFactory()));
 
-		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		return module;
+	}
+
+	/**
+	 * Saves an ontology module as moduleName.owl in the storage folder
+	 * @param module The ontology module created by renameModule
+	 * @param storageFolder The folder in which the module will be placed
+	 * @throws OWLOntologyStorageException
+	 */
+	public static void saveModule(OWLOntology module, String storageFolder) throws OWLOntologyStorageException {
 
-		int numDataProperties = onto.getDataPropertiesInSignature().size();
+		IRI ontologyIRI = module.getOntologyID().getOntologyIRI();
+		String moduleName = ontologyIRI.toString().substring(ontologyIRI.toString().lastIndexOf('/') + 1);
 
-		manager.removeOntology(onto);
+		File complete_owl_file = new File(storageFolder + "/" + moduleName);
+		IRI documentIRI = IRI.create(complete_owl_file.toURI());
 
-		return numDataProperties;
+		module.getOWLOntologyManager().saveOntology(module, documentIRI);
 	}
 
 	/**
-	 * Returns an integer stating how many individuals an OWL ontology has
-	 * @param ontoFile the file path of the input OWL ontology
-	 * @return numIndividuals an integer stating number of individuals in an OWL ontology
-	 * @throws OWLOntologyCreationException An exception which describes an error during the creation of an ontology. If an ontology cannot be created then subclasses of this class will describe the reasons.
+	 * Returns the ontology IRI of a module
+	 * @param moduleName The name of the module
+	 * @return The IRI http://www.project-best.eu/owl/airm-mod/moduleName.owl
 	 */
-	private static int getNumIndividuals(OWLOntology onto) throws OWLOntologyCreationException {
+	public static IRI getModuleIRI(String moduleName) {
+		return IRI.create("http://www.project-best.eu/owl/airm-mod/" + moduleName + ".owl");
+	}
 
-		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+	/**
+	 * Turns the dumping of intermediate extraction stages on or off. The intermediate stages are written to a "debug" folder in the storage folder. 
+	 * Dumping can also be turned on with the system property modularisation.debug=true.
+	 * @param dumpIntermediateStages true if the intermediate stages should be written to disk
+	 */
+	public static void setDebug(boolean dumpIntermediateStages) {
+		debug = dumpIntermediateStages;
+	}
 
-		int numIndividuals = onto.getIndividualsInSignature().size();
+	/**
+	 * Chooses how the class hierarchy used for expanding seed signatures is computed. By default the hierarchy is computed from the asserted subclass axioms. 
+	 * The HermiT reasoner can also be turned on with the system property modularisation.hermit=true.
+	 * @param hermit true if the class hierarchy should be inferred by the HermiT reasoner
+	 */
+	public static void setUseReasoner(boolean hermit) {
+		useReasoner = hermit;
+	}
 
-		manager.removeOntology(onto);
+	/**
+	 * Chooses the engine extracting the locality-based modules, which all give the same modules. By default the OWL API module extractor ("owlapi") is used. 
+	 * The modules can also be extracted by the IndexedLocalityExtractor ("indexed"), or be assembled from the atomic decomposition of the ontology ("atoms"), 
+	 * which is computed once and stored next to the ontology file. The engine can also be chosen with the system property modularisation.engine.
+	 * @param engineName owlapi, indexed or atoms
+	 */
+	public static void setEngine(String engineName) {
+		engine = checkEngine(engineName);
+	}
 
-		return numIndividuals;
+	/**
+	 * Checks the name of an engine extracting the locality-based modules
+	 * @param engineName The name of the engine
+	 * @return The name of the engine
+	 * @throws IllegalArgumentException if the engine is not owlapi, indexed or atoms
+	 */
+	private static String checkEngine(String engineName) {
+		if (!engineName.equals("owlapi") && !engineName.equals("indexed") && !engineName.equals("atoms")) {
+			throw new IllegalArgumentException("Unknown module extraction engine: " + engineName + " (set with setEngine or the system property modularisation.engine, expected owlapi, indexed or atoms)");
+		}
+		return engineName;
 	}
 
 	/**
-	 * Returns the number of axioms in an ontology (a module) as an integer
-	 * @param onto The OWL ontology for which the number of axioms is computed
-	 * @return Number of axioms for a given OWL ontology (module)
+	 * Writes the axioms of an intermediate extraction stage to storageFolder/debug/moduleName-stage.owl
 	 * @throws OWLOntologyCreationException
+	 * @throws OWLOntologyStorageException
 	 */
-	private static int getNumAxioms(OWLOntology onto) throws OWLOntologyCreationException {
+	private static void dumpStage(Set<OWLAxiom> axioms, String moduleName, String stage, String storageFolder) throws OWLOntologyCreationException, OWLOntologyStorageException {
+
+		File debugFolder = new File(storageFolder, "debug");
+		debugFolder.mkdirs();
+
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager(new OWLDataFactoryImpl());
+		OWLOntology stageOntology = manager.createOntology(axioms);
+		manager.saveOntology(stageOntology, IRI.create(new File(debugFolder, moduleName + "-" + stage + ".owl").toURI()));
+	}
 
-		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+	/**
+	 * Writes a signature (one entity IRI per line) to storageFolder/debug/moduleName-stage.txt
+	 * @throws OWLOntologyStorageException
+	 */
+	private static void dumpSignature(Set<OWLEntity> signature, String moduleName, String stage, String storageFolder) throws OWLOntologyStorageException {
 
-		int axioms = onto.getAxiomCount();
+		File debugFolder = new File(storageFolder, "debug");
+		debugFolder.mkdirs();
 
-		manager.removeOntology(onto);
+		Set<String> iris = new TreeSet<String>();
+		for (OWLEntity e : signature) {
+			iris.add(e.getIRI().toString());
+		}
 
-		return axioms;
+		try {
+			//not a PrintWriter, which would hide a failed write and leave the dump truncated
+			BufferedWriter writer = new BufferedWriter(new FileWriter(new File(debugFolder, moduleName + "-" + stage + ".txt")));
+			try {
+				for (String iri : iris) {
+					writer.write(iri);
+					writer.newLine();
+				}
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			throw new OWLOntologyStorageException(e);
+		}
 	}
 
 }
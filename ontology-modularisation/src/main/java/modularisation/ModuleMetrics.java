@@ -0,0 +1,222 @@
+package modularisation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.util.OWLEntityCollector;
+
+/**
+ * Collects metrics about the extraction of a module: the number of classes, object properties, data properties, individuals and axioms of the module,
+ * and the wall time and allocated bytes of each extraction phase (load, seed expansion, locality extraction, enrichment, rename and save).
+ * A phase is measured from the last call to mark() or record() to the call to record(phase), on the same thread.
+ * The metrics are stored as JSON in moduleName.metrics.json next to the module.
+ * @author audunvennesland
+ *
+ */
+public class ModuleMetrics {
+
+	static final String suffix = ".metrics.json";
+
+	static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+	private final String moduleName;
+
+	//the wall time (in nanoseconds) and allocated bytes of each phase, in the order the phases were recorded
+	private final Map<String, long[]> phases = new LinkedHashMap<String, long[]>();
+
+	private long markTime;
+	private long markBytes;
+
+	private int numClasses;
+	private int numObjectProperties;
+	private int numDataProperties;
+	private int numIndividuals;
+	private int numAxioms;
+
+	public ModuleMetrics(String moduleName) {
+		this.moduleName = moduleName;
+		mark();
+	}
+
+	/**
+	 * Starts measuring the next phase on the current thread
+	 */
+	public void mark() {
+		markTime = System.nanoTime();
+		markBytes = getAllocatedBytes();
+	}
+
+	/**
+	 * Records the wall time and allocated bytes since the last mark as a phase, and starts measuring the next phase.
+	 * If the phase has already been recorded, the time and bytes are added to it.
+	 * @param phase The name of the phase
+	 */
+	public void record(String phase) {
+		long time = System.nanoTime() - markTime;
+		long bytes = markBytes < 0 ? -1 : getAllocatedBytes() - markBytes;
+
+		long[] measures = phases.get(phase);
+		if (measures == null) {
+			phases.put(phase, new long[] { time, bytes });
+		} else {
+			measures[0] += time;
+			measures[1] = measures[1] < 0 || bytes < 0 ? -1 : measures[1] + bytes;
+		}
+
+		mark();
+	}
+
+	/**
+	 * Adds the phases recorded by other metrics, such as the loading of the ontology shared by all modules
+	 * @param shared The metrics holding the phases
+	 */
+	public void addPhases(ModuleMetrics shared) {
+		for (Map.Entry<String, long[]> phase : shared.phases.entrySet()) {
+			phases.put(phase.getKey(), phase.getValue().clone());
+		}
+	}
+
+	/**
+	 * Counts the classes, object properties, data properties, named individuals and axioms of a module, in one traversal of its axioms
+	 * @param module The module
+	 */
+	public void count(OWLOntology module) {
+
+		Set<OWLEntity> signature = new HashSet<OWLEntity>();
+		OWLEntityCollector collector = new OWLEntityCollector(signature);
+
+		numAxioms = 0;
+		for (OWLAxiom axiom : module.getAxioms()) {
+			axiom.accept(collector);
+			numAxioms++;
+		}
+
+		numClasses = 0;
+		numObjectProperties = 0;
+		numDataProperties = 0;
+		numIndividuals = 0;
+
+		for (OWLEntity e : signature) {
+			if (e.isOWLClass()) {
+				numClasses++;
+			} else if (e.isOWLObjectProperty()) {
+				numObjectProperties++;
+			} else if (e.isOWLDataProperty()) {
+				numDataProperties++;
+			} else if (e.isOWLNamedIndividual()) {
+				numIndividuals++;
+			}
+		}
+	}
+
+	public String getModuleName() {
+		return moduleName;
+	}
+
+	public int getNumClasses() {
+		return numClasses;
+	}
+
+	public int getNumObjectProperties() {
+		return numObjectProperties;
+	}
+
+	public int getNumDataProperties() {
+		return numDataProperties;
+	}
+
+	public int getNumIndividuals() {
+		return numIndividuals;
+	}
+
+	public int getNumAxioms() {
+		return numAxioms;
+	}
+
+	/**
+	 * Returns the wall time of a phase
+	 * @param phase The name of the phase
+	 * @return The time in milliseconds, or 0 if the phase has not been recorded
+	 */
+	public double getTime(String phase) {
+		long[] measures = phases.get(phase);
+		return measures == null ? 0 : measures[0] / 1e6;
+	}
+
+	/**
+	 * Returns the metrics as a JSON object
+	 * @return The JSON string
+	 */
+	public String toJSON() {
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"module\": \"" + StringEscapeUtils.escapeJson(moduleName) + "\",\n");
+		json.append("  \"classes\": " + numClasses + ",\n");
+		json.append("  \"objectProperties\": " + numObjectProperties + ",\n");
+		json.append("  \"dataProperties\": " + numDataProperties + ",\n");
+		json.append("  \"individuals\": " + numIndividuals + ",\n");
+		json.append("  \"axioms\": " + numAxioms + ",\n");
+		json.append("  \"phases\": [");
+
+		boolean first = true;
+		for (Map.Entry<String, long[]> phase : phases.entrySet()) {
+			json.append(first ? "\n" : ",\n");
+			json.append("    {\"phase\": \"" + StringEscapeUtils.escapeJson(phase.getKey()) + "\", \"wallTimeMs\": " + String.format(Locale.ROOT, "%.3f", phase.getValue()[0] / 1e6)
+					+ ", \"allocatedBytes\": " + phase.getValue()[1] + "}");
+			first = false;
+		}
+
+		json.append("\n  ]\n");
+		json.append("}\n");
+
+		return json.toString();
+	}
+
+	/**
+	 * Saves the metrics as moduleName.metrics.json in the storage folder
+	 * @param storageFolder The folder in which the module is placed
+	 * @throws IOException
+	 */
+	public void save(String storageFolder) throws IOException {
+
+		//not a PrintWriter, which would hide a failed write and leave the file truncated
+		BufferedWriter writer = new BufferedWriter(new FileWriter(new File(storageFolder, moduleName + suffix)));
+
+		try {
+			writer.write(toJSON());
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far
+	 * @return The allocated bytes, or -1 if the JVM does not support measuring it
+	 */
+	public static long getAllocatedBytes() {
+
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+				return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+
+		return -1;
+	}
+
+}
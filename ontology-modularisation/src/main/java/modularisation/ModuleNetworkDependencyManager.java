@@ -1,12 +1,27 @@
 package modularisation;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import misc.FileUtils;
 
-import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.AddImport;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLClass;
@@ -14,16 +29,16 @@ import org.semanticweb.owlapi.model.OWLClassExpression;
 import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLImportsDeclaration;
 import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
-import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+import org.semanticweb.owlapi.model.RemoveImport;
 import org.semanticweb.owlapi.reasoner.Node;
 import org.semanticweb.owlapi.reasoner.NodeSet;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
-import org.semanticweb.owlapi.util.AutoIRIMapper;
 
 /**
  * This class provides functionality for establishing dependencies between ontology modules in an ontology network (of modules). 
@@ -34,6 +49,24 @@ public class ModuleNetworkDependencyManager {
 
 	static OWLReasonerFactory reasonerFactory = new StructuralReasonerFactory();
 
+	//find the outlier classes with the StructuralReasoner instead of the OutlierDetector
+	static boolean useStructuralReasoner = Boolean.getBoolean("modularisation.structuralreasoner");
+
+	//the time (in milliseconds) without changes in the network folder before the changed modules are handled when watching the folder
+	static final long quietPeriod = 500;
+
+	//only report the imports that would be declared, without changing the ontology modules
+	static boolean dryRun = Boolean.getBoolean("modularisation.dryrun");
+
+	//drop the imports of a module that it already gets through its other imports (transitive reduction of the import graph)
+	static boolean minimiseImports = Boolean.getBoolean("modularisation.minimiseimports");
+
+	//when several modules own the outlier classes of a module, import a small set of owning modules covering all of them instead of the last owner of each
+	static boolean minimalCover = Boolean.getBoolean("modularisation.minimalcover");
+
+	//store the coupling and cohesion metrics of the network (NetworkMetrics) in the network folder
+	static boolean writeMetrics = Boolean.getBoolean("modularisation.metrics");
+
 
 	/**
 	 * This method first establishes a list of classes (outlier classes) originally held by other ontologies (modules), then the method identifies which ontology is responsible for such an outlier class, before it automatically imports this ontology.
@@ -44,43 +77,67 @@ public class ModuleNetworkDependencyManager {
 	 */
 	public static void createDependency(String ontologyModule, String ontologyModuleNetworkFolder) throws OWLOntologyCreationException, OWLOntologyStorageException {
 
-		//load the ontology module in which dependencies with other modules will be created
-		File ontologyModuleFile = new File(ontologyModule);
-		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();		
+		//load all modules in the network once
+		ModuleNetworkIndex index = new ModuleNetworkIndex(new File(ontologyModuleNetworkFolder));
 
-		AutoIRIMapper mapper=new AutoIRIMapper(new File(ontologyModuleNetworkFolder), false);
-		manager.addIRIMapper(mapper);
+		createDependency(new File(ontologyModule), index);
+	}
 
-		OWLOntology onto = manager.loadOntologyFromOntologyDocument(ontologyModuleFile);
+	/**
+	 * Creates the dependencies of an ontology module using an index of the ontology network, so that the modules in the network are not loaded again.
+	 * @param ontologyModuleFile The owl file of the ontology module for which dependencies will be listed and imported
+	 * @param index The index of the ontology network
+	 * @throws OWLOntologyCreationException
+	 * @throws OWLOntologyStorageException
+	 */
+	public static void createDependency(File ontologyModuleFile, ModuleNetworkIndex index) throws OWLOntologyCreationException, OWLOntologyStorageException {
 
 		//find the set of outlier classes for the ontology module
-		Set<OWLClass> outliersSet = findOutliers(onto);
+		Set<OWLClass> outliersSet = index.getOutliers(ontologyModuleFile);
 
-		//get all classes from all other ontology modules in folder
-		File fileDir = new File(ontologyModuleNetworkFolder);		
-		Map<String, String> allOtherClasses = getAllOtherClasses(ontologyModuleFile, fileDir);		
-
-		//find ontologies to import by iterating all outlier classes and searching for similar class in map of all classes from all ontologies
+		//find ontologies to import by iterating all outlier classes and searching for the module owning a similar class in the network
 		//use a set to avoid duplicate entries (ontologies)
 		Set<String> ontologiesToImport = new HashSet<String>();
 
 		Set<String> classesOutsideOfScope = new HashSet<String>();
 
 		for (OWLClass oc : outliersSet) {
-			if (allOtherClasses.containsKey(oc.getIRI().getFragment())) {
-				ontologiesToImport.add(allOtherClasses.get(oc.getIRI().getFragment()));
+			String owner = index.getOwner(oc.getIRI().getFragment(), ontologyModuleFile);
+			if (owner != null) {
+				ontologiesToImport.add(owner);
 			} else {
 				classesOutsideOfScope.add(oc.getIRI().getFragment());
 			}
 		}
 
-		//automatically declare relevant imports
+		//drop the imports the module gets through other modules, and the declared imports no longer needed
+		Set<String> ontologiesToDrop = new HashSet<String>();
+		if (minimiseImports || minimalCover) {
+			File file = ontologyModuleFile.getAbsoluteFile();
+			Map<File, Set<String>> droppedImports = new HashMap<File, Set<String>>();
+			ontologiesToImport = minimiseImports(Collections.singletonMap(file, ontologiesToImport), index, droppedImports).get(file);
+			ontologiesToDrop = droppedImports.get(file);
+		}
+
+		//automatically declare relevant imports, in one batch
 		for (String s : ontologiesToImport) {
-			declareImportStatements(ontologyModuleFile, s, fileDir);
-			System.out.println("\nDeclaring import for documentIRI:" + ontologyModuleFile + " and " + " ontologyIRI " + s);
+			System.out.println("\n" + (dryRun ? "Import (dry run) " : "Declaring import ") + "for documentIRI:" + ontologyModuleFile + " and " + " ontologyIRI " + s);
+		}
+		for (String s : ontologiesToDrop) {
+			System.out.println("\n" + (dryRun ? "Redundant import (dry run) " : "Dropping redundant import ") + "for documentIRI:" + ontologyModuleFile + " and " + " ontologyIRI " + s);
+		}
+
+		if (dryRun) {
+			System.out.println("Dry run, ontology module not changed!");
+		} else if (!ontologiesToImport.isEmpty() || !ontologiesToDrop.isEmpty()) {
+			//the module is saved only if it lacks an import, or declares an import to drop (which are all declared imports)
+			int numAdded = declareImportStatements(ontologyModuleFile, ontologiesToImport, ontologiesToDrop, index);
+			if (numAdded > 0 || !ontologiesToDrop.isEmpty()) {
+				System.out.println("Ontology module saved with imports!");
+			} else {
+				System.out.println("Ontology module already declares these imports, not changed!");
+			}
 		}
-		
-		System.out.println("Ontology module saved with imports!");
 		
 		//print the classes residing in ontologies outside of our ontology network (i.e. ontologies not in the "ontologyModuleNetworkFolder")
 		System.out.println("\n*** Classes outside of the defined ontology network: ");
@@ -92,12 +149,385 @@ public class ModuleNetworkDependencyManager {
 
 
 	/**
-	 * Retrieves the set of outlier classes for an input ontology and returns them in a set
+	 * Creates the dependencies of all ontology modules in an ontology network in one pass. The modules are loaded (concurrently) and indexed once, then the 
+	 * imports of each module are found from the outlier classes of the module and the modules owning these classes, added in one batch and the module is 
+	 * saved once. The resulting import graph is printed at the end.
+	 * @param ontologyModuleNetworkFolder The folder holding the full set of ontology modules for this ontology network
+	 * @param parallelism The number of module files being parsed at the same time
+	 * @throws OWLOntologyCreationException
+	 * @throws OWLOntologyStorageException
+	 */
+	public static void createAllDependencies(String ontologyModuleNetworkFolder, int parallelism) throws OWLOntologyCreationException, OWLOntologyStorageException {
+
+		long start = System.currentTimeMillis();
+
+		//the outliers and owners of all modules are computed against the network as it is before any imports are added
+		ModuleNetworkIndex index = new ModuleNetworkIndex(new File(ontologyModuleNetworkFolder), parallelism);
+
+		//all modules are rewritten, so they are loaded together, each module parsed once
+		index.loadModules(index.getModuleFiles(), parallelism);
+
+		Map<File, Integer> addedImports = new LinkedHashMap<File, Integer>();
+		Map<File, Set<String>> importGraph = declareImports(index.getModuleFiles(), index, addedImports);
+
+		int numAdded = printImportGraph(importGraph, addedImports);
+
+		if (writeMetrics) {
+			saveMetrics(new NetworkMetrics(index), index);
+		}
+
+		System.out.println("\nDependencies of " + importGraph.size() + " ontology modules resolved in " + (System.currentTimeMillis() - start) + " ms, " + numAdded + (dryRun ? " imports to add (dry run)!" : " imports added!"));
+	}
+
+	/**
+	 * Creates the dependencies of all ontology modules in an ontology network, and then keeps watching the network folder for modules being changed, added
+	 * or removed. For each such module only the module itself is reloaded and the index of the network is updated for it, then the imports are recomputed
+	 * for the modules whose outlier classes resolve to other owning modules. When the imports are minimised, the imports are also recomputed for the modules
+	 * importing a changed module, directly or indirectly, as they may have dropped imports they got through it. Runs until the thread is interrupted or the folder is no longer accessible.
+	 * @param ontologyModuleNetworkFolder The folder holding the full set of ontology modules for this ontology network
+	 * @param parallelism The number of module files being parsed at the same time when the network is first indexed and loaded
+	 * @throws OWLOntologyCreationException
+	 * @throws OWLOntologyStorageException
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void watchDependencies(String ontologyModuleNetworkFolder, int parallelism) throws OWLOntologyCreationException, OWLOntologyStorageException, IOException, InterruptedException {
+
+		File networkFolder = new File(ontologyModuleNetworkFolder).getAbsoluteFile();
+
+		//start watching before the network is indexed, so that no change made meanwhile is missed
+		WatchService watcher = FileSystems.getDefault().newWatchService();
+		networkFolder.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+
+		try {
+			ModuleNetworkIndex index = new ModuleNetworkIndex(networkFolder, parallelism);
+			index.loadModules(index.getModuleFiles(), parallelism);
+
+			Map<File, Integer> addedImports = new LinkedHashMap<File, Integer>();
+			printImportGraph(declareImports(index.getModuleFiles(), index, addedImports), addedImports);
+
+			//the metrics are kept up to date for the modules changed and those whose outlier classes resolve to other owners
+			NetworkMetrics metrics = null;
+			if (writeMetrics) {
+				metrics = new NetworkMetrics(index);
+				saveMetrics(metrics, index);
+			}
+
+			//the content hash of each module file as last seen, so that events for files saved here or not really changed are ignored
+			Map<File, String> hashes = new HashMap<File, String>();
+			for (File moduleFile : index.getModuleFiles()) {
+				hashes.put(moduleFile, getHash(moduleFile));
+			}
+
+			System.out.println("\nWatching " + networkFolder + " for changes to the ontology modules...");
+
+			while (true) {
+
+				WatchKey key = watcher.take();
+				Set<File> changedFiles = new LinkedHashSet<File>();
+
+				//a file is often written in several steps, so the events are collected until the folder has been quiet for a while
+				while (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							changedFiles.addAll(hashes.keySet());
+							changedFiles.addAll(index.getModuleFiles());
+						} else if (FileUtils.isOntologyFile(event.context().toString())) {
+							changedFiles.add(new File(networkFolder, event.context().toString()));
+						}
+					}
+					if (!key.reset()) {
+						System.out.println("The network folder " + networkFolder + " is no longer accessible, stopped watching.");
+						return;
+					}
+					key = watcher.poll(quietPeriod, TimeUnit.MILLISECONDS);
+				}
+
+				Set<File> affectedModules = new LinkedHashSet<File>();
+				Set<File> updatedModules = new LinkedHashSet<File>();
+
+				//the imports a module dropped because it got them through a changed module may be needed again, so the import graph is kept as it was before
+				//the changes and every module importing a changed module (directly or indirectly) is minimised again
+				Map<File, Set<File>> declaredImports = minimiseImports ? getDeclaredImportGraph(index) : null;
+
+				for (File moduleFile : changedFiles) {
+					String hash = getHash(moduleFile);
+					if (hash == null ? !hashes.containsKey(moduleFile) : hash.equals(hashes.get(moduleFile))) {
+						continue;
+					}
+
+					try {
+						affectedModules.addAll(index.update(moduleFile));
+					} catch (OWLOntologyCreationException e) {
+						//the file may still be being written, it is loaded again on its next change
+						System.err.println("Could not load the changed module " + moduleFile + ": " + e.getMessage());
+						continue;
+					}
+					updatedModules.add(moduleFile);
+
+					if (hash == null) {
+						hashes.remove(moduleFile);
+						System.out.println("\nModule " + moduleFile.getName() + " removed from the network");
+					} else {
+						System.out.println("\nModule " + moduleFile.getName() + (hashes.containsKey(moduleFile) ? " changed" : " added to the network"));
+						hashes.put(moduleFile, hash);
+					}
+				}
+
+				Set<File> redeclaredModules = new LinkedHashSet<File>(affectedModules);
+				if (declaredImports != null && !updatedModules.isEmpty()) {
+					Set<File> changedModules = new LinkedHashSet<File>(affectedModules);
+					changedModules.addAll(updatedModules);
+					for (File moduleFile : getImportingModules(changedModules, declaredImports)) {
+						if (index.contains(moduleFile)) {
+							redeclaredModules.add(moduleFile);
+						}
+					}
+				}
+
+				if (!redeclaredModules.isEmpty()) {
+					addedImports = new LinkedHashMap<File, Integer>();
+					printImportGraph(declareImports(redeclaredModules, index, addedImports), addedImports);
+
+					for (File moduleFile : redeclaredModules) {
+						hashes.put(moduleFile, getHash(moduleFile));
+					}
+				}
+
+				if (metrics != null && !updatedModules.isEmpty()) {
+					updatedModules.addAll(affectedModules);
+					metrics.update(updatedModules);
+					saveMetrics(metrics, index);
+				}
+			}
+		} finally {
+			watcher.close();
+		}
+	}
+
+	/**
+	 * Declares the imports of a set of ontology modules, found from the outlier classes of each module and the modules owning these classes
+	 * @param moduleFiles The owl files of the ontology modules
+	 * @param index The index of the ontology network holding the ontology modules
+	 * @param addedImports The number of imports added to each module is put here
+	 * @return The ontology IRIs of the ontologies imported by each module
+	 * @throws OWLOntologyCreationException
+	 * @throws OWLOntologyStorageException
+	 */
+	private static Map<File, Set<String>> declareImports(Collection<File> moduleFiles, ModuleNetworkIndex index, Map<File, Integer> addedImports) throws OWLOntologyCreationException, OWLOntologyStorageException {
+
+		Map<File, Set<String>> importGraph = new LinkedHashMap<File, Set<String>>();
+		for (File moduleFile : moduleFiles) {
+			importGraph.put(moduleFile, new TreeSet<String>(getImports(moduleFile, index, false)));
+		}
+
+		Map<File, Set<String>> droppedImports = new HashMap<File, Set<String>>();
+		if (minimiseImports || minimalCover) {
+			importGraph = minimiseImports(importGraph, index, droppedImports);
+		}
+
+		//the modules are saved one at a time, since the renderers of the OWL API are not thread-safe even when the modules are in different managers
+		for (Map.Entry<File, Set<String>> module : importGraph.entrySet()) {
+			Set<String> ontologiesToDrop = droppedImports.containsKey(module.getKey()) ? droppedImports.get(module.getKey()) : new HashSet<String>();
+			addedImports.put(module.getKey(), declareImportStatements(module.getKey(), module.getValue(), ontologiesToDrop, index));
+		}
+
+		return importGraph;
+	}
+
+	/**
+	 * Minimises the imports to be declared by a set of ontology modules. If a minimal cover is requested, the imports of each module are a small set of
+	 * modules owning all its outlier classes, and if the imports are minimised, the imports a module gets through its other imports (including those
+	 * already declared) are dropped. The imports declared by the modules that are no longer needed are dropped too, while the declared imports that would
+	 * not be declared by the dependency manager are kept. The number of direct imports, the size of the import closure and the estimated time to load the
+	 * module with its imports before and after are printed for each module. The size of the import closure is the number of other modules the module
+	 * imports directly or indirectly, leaving out the module itself also when it imports itself through a cycle. The load time is the sum of the parse
+	 * times of the module and of these other modules.
+	 * @param importGraph The ontology IRIs of the ontologies to be imported by each module, one owning module for each outlier class
+	 * @param index The index of the ontology network holding the ontology modules
+	 * @param droppedImports The ontology IRIs of the declared imports to be dropped by each module are put here
+	 * @return The ontology IRIs of the ontologies to be imported by each module after the minimisation
+	 * @throws OWLOntologyCreationException
+	 */
+	private static Map<File, Set<String>> minimiseImports(Map<File, Set<String>> importGraph, ModuleNetworkIndex index, Map<File, Set<String>> droppedImports) throws OWLOntologyCreationException {
+
+		//the imports to be declared, the declared imports kept as they are, and the imports of the network without the minimisation
+		Map<File, Set<File>> imports = new LinkedHashMap<File, Set<File>>();
+		Map<File, Set<File>> keptImports = new LinkedHashMap<File, Set<File>>();
+		Map<File, Set<File>> oldImports = new LinkedHashMap<File, Set<File>>();
+		Map<File, Set<String>> managedImports = new HashMap<File, Set<String>>();
+
+		//the module of a single module run may be outside the network folder
+		Set<File> moduleFiles = new LinkedHashSet<File>(index.getModuleFiles());
+		moduleFiles.addAll(importGraph.keySet());
+
+		for (File moduleFile : moduleFiles) {
+			Set<String> declared = index.getDeclaredImports(moduleFile);
+			oldImports.put(moduleFile, getModuleFiles(declared, index));
+
+			if (importGraph.containsKey(moduleFile)) {
+				Set<String> moduleImports = new TreeSet<String>(minimalCover ? getImports(moduleFile, index, true) : importGraph.get(moduleFile));
+				Set<String> managed = new HashSet<String>(importGraph.get(moduleFile));
+				managed.addAll(moduleImports);
+				managedImports.put(moduleFile, managed);
+
+				declared.removeAll(managed);
+				imports.put(moduleFile, getModuleFiles(moduleImports, index));
+				oldImports.get(moduleFile).addAll(getModuleFiles(importGraph.get(moduleFile), index));
+			}
+
+			keptImports.put(moduleFile, getModuleFiles(declared, index));
+		}
+
+		Map<File, Set<File>> reducedImports = minimiseImports ? ImportMinimiser.reduce(imports, keptImports) : imports;
+
+		Map<File, Set<File>> newImports = new LinkedHashMap<File, Set<File>>(keptImports);
+		Map<File, Set<String>> minimised = new LinkedHashMap<File, Set<String>>();
+
+		for (Map.Entry<File, Set<String>> module : importGraph.entrySet()) {
+			File moduleFile = module.getKey();
+			Set<String> moduleImports = new TreeSet<String>();
+			for (File importedModule : reducedImports.get(moduleFile)) {
+				moduleImports.add(index.getOntologyIRI(importedModule));
+			}
+			minimised.put(moduleFile, moduleImports);
+
+			Set<String> dropped = new TreeSet<String>(index.getDeclaredImports(moduleFile));
+			dropped.retainAll(managedImports.get(moduleFile));
+			dropped.removeAll(moduleImports);
+			droppedImports.put(moduleFile, dropped);
+
+			Set<File> moduleNewImports = new LinkedHashSet<File>(keptImports.get(moduleFile));
+			moduleNewImports.addAll(reducedImports.get(moduleFile));
+			newImports.put(moduleFile, moduleNewImports);
+		}
+
+		System.out.println("\n*** Import minimisation of the ontology network: ");
+		for (File moduleFile : importGraph.keySet()) {
+			System.out.println(moduleFile.getName() + ": " + oldImports.get(moduleFile).size() + " -> " + newImports.get(moduleFile).size() + " direct imports, import closure "
+					+ getImportedModules(moduleFile, oldImports).size() + " -> " + getImportedModules(moduleFile, newImports).size() + " modules ("
+					+ droppedImports.get(moduleFile).size() + (dryRun ? " declared imports to drop)" : " declared imports dropped)") + ", load time "
+					+ String.format("%.1f", getLoadTime(moduleFile, oldImports, index) / 1e6) + " -> " + String.format("%.1f", getLoadTime(moduleFile, newImports, index) / 1e6) + " ms");
+		}
+
+		return minimised;
+	}
+
+	/**
+	 * Returns the estimated time to load a module with its imports: the sum of the parse times of the module and of the other modules in its import closure
+	 * @return The load time in nanoseconds
+	 */
+	private static long getLoadTime(File moduleFile, Map<File, Set<File>> imports, ModuleNetworkIndex index) throws OWLOntologyCreationException {
+		long loadTime = index.getParseTime(moduleFile);
+		for (File importedModule : getImportedModules(moduleFile, imports)) {
+			loadTime += index.getParseTime(importedModule);
+		}
+		return loadTime;
+	}
+
+	/**
+	 * Returns the other modules in the import closure of a module, leaving out the module itself when it imports itself through a cycle
+	 */
+	private static Set<File> getImportedModules(File moduleFile, Map<File, Set<File>> imports) {
+		Set<File> importedModules = ImportMinimiser.getClosure(moduleFile, imports);
+		importedModules.remove(moduleFile);
+		return importedModules;
+	}
+
+	/**
+	 * Returns the modules of the network whose import closure holds any of a set of modules
+	 * @param moduleFiles The modules
+	 * @param imports The modules imported by each module
+	 * @return The importing modules
+	 */
+	private static Set<File> getImportingModules(Set<File> moduleFiles, Map<File, Set<File>> imports) {
+		Set<File> importingModules = new LinkedHashSet<File>();
+		for (File moduleFile : imports.keySet()) {
+			if (!Collections.disjoint(ImportMinimiser.getClosure(moduleFile, imports), moduleFiles)) {
+				importingModules.add(moduleFile);
+			}
+		}
+		return importingModules;
+	}
+
+	/**
+	 * Returns the modules imported by each module of the network, as declared in the module files
+	 */
+	private static Map<File, Set<File>> getDeclaredImportGraph(ModuleNetworkIndex index) throws OWLOntologyCreationException {
+		Map<File, Set<File>> imports = new LinkedHashMap<File, Set<File>>();
+		for (File moduleFile : index.getModuleFiles()) {
+			imports.put(moduleFile, getModuleFiles(index.getDeclaredImports(moduleFile), index));
+		}
+		return imports;
+	}
+
+	/**
+	 * Returns the files of the modules in the network having a set of ontology IRIs, leaving out the ontologies outside the network
+	 */
+	private static Set<File> getModuleFiles(Set<String> ontologyIRIs, ModuleNetworkIndex index) {
+		Set<File> moduleFiles = new LinkedHashSet<File>();
+		for (String ontologyIRI : ontologyIRIs) {
+			File moduleFile = index.getModuleFile(ontologyIRI);
+			if (moduleFile != null) {
+				moduleFiles.add(moduleFile);
+			}
+		}
+		return moduleFiles;
+	}
+
+	/**
+	 * Prints the imports of each ontology module and the number of imports added to it
+	 * @return The total number of imports added
+	 */
+	private static int printImportGraph(Map<File, Set<String>> importGraph, Map<File, Integer> addedImports) {
+
+		int numAdded = 0;
+		System.out.println("\n*** Import graph of the ontology network: ");
+		for (Map.Entry<File, Set<String>> module : importGraph.entrySet()) {
+			System.out.println(module.getKey().getName() + " -> " + module.getValue() + " (" + addedImports.get(module.getKey()) + (dryRun ? " imports to add)" : " imports added)"));
+			numAdded += addedImports.get(module.getKey());
+		}
+
+		return numAdded;
+	}
+
+	/**
+	 * Stores the metrics of the network in the network folder, reporting instead of failing if they cannot be written
+	 */
+	private static void saveMetrics(NetworkMetrics metrics, ModuleNetworkIndex index) {
+		try {
+			metrics.save(index.getNetworkFolder());
+			System.out.println("\nMetrics of " + metrics.getModules().size() + " ontology modules saved, " + metrics.getOutsideClasses().size() + " classes outside of the defined ontology network");
+		} catch (IOException e) {
+			System.err.println("Could not save the metrics of the network in " + index.getNetworkFolder() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the content hash of a file, or null if the file does not exist
+	 */
+	private static String getHash(File file) throws IOException {
+		return file.exists() ? FileUtils.contentHash(file) : null;
+	}
+
+	/**
+	 * Retrieves the set of outlier classes for an input ontology and returns them in a set, using the asserted axioms (OutlierDetector) unless the 
+	 * StructuralReasoner is requested
 	 * @param inputOntology The ontology for which a set of outlier classes are retrieved
 	 * @return A set<OWLClass> of outlier classes
 	 * @throws OWLOntologyCreationException
 	 */
-	private static Set<OWLClass> findOutliers (OWLOntology inputOntology) throws OWLOntologyCreationException {
+	static Set<OWLClass> findOutliers (OWLOntology inputOntology) throws OWLOntologyCreationException {
+		return useStructuralReasoner ? findOutliersWithReasoner(inputOntology) : OutlierDetector.findOutliers(inputOntology);
+	}
+
+	/**
+	 * Retrieves the set of outlier classes for an input ontology using the StructuralReasoner and returns them in a set
+	 * @param inputOntology The ontology for which a set of outlier classes are retrieved
+	 * @return A set<OWLClass> of outlier classes
+	 * @throws OWLOntologyCreationException
+	 */
+	public static Set<OWLClass> findOutliersWithReasoner (OWLOntology inputOntology) throws OWLOntologyCreationException {
 
 		//find the main owl superclass of this ontology (the only strict subclass of owl:thing that also has asserted subclasses associated with it)
 		Set<OWLClass> allCls = inputOntology.getClassesInSignature();
@@ -137,127 +567,124 @@ public class ModuleNetworkDependencyManager {
 
 	/**
 	 * Automatically creates import declarations from the input ontology to the ontologies being responsible for a set of outlier classes. 
+	 * The import declarations not already in the input ontology are added, and the declarations of the imports to drop removed, in one batch and the input
+	 * ontology is saved once, unless it is a dry run.
 	 * @param inputOntology The OWL ontology in which import statements are declared.
-	 * @param importedOntology 
-	 * @param ontologyModuleNetworkFolder
+	 * @param importedOntologies The ontology IRIs of the ontologies to import
+	 * @param droppedOntologies The ontology IRIs of the ontologies no longer to import
+	 * @param index The index of the ontology network holding the input ontology
+	 * @return The number of import declarations added (or to be added in a dry run)
 	 * @throws OWLOntologyCreationException
 	 * @throws OWLOntologyStorageException
 	 */
-	private static void declareImportStatements (File inputOntology, String importedOntology, File ontologyModuleNetworkFolder) throws OWLOntologyCreationException, OWLOntologyStorageException {
-
-		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();		
+	private static int declareImportStatements (File inputOntology, Set<String> importedOntologies, Set<String> droppedOntologies, ModuleNetworkIndex index) throws OWLOntologyCreationException, OWLOntologyStorageException {
 
-		AutoIRIMapper mapper=new AutoIRIMapper(ontologyModuleNetworkFolder, false);
-		manager.addIRIMapper(mapper);
+		OWLOntology onto = index.getModule(inputOntology);
 
-		OWLOntology onto = manager.loadOntologyFromOntologyDocument(inputOntology);
+		OWLOntologyManager manager = onto.getOWLOntologyManager();
 
-		Set<String> imports = getImports(inputOntology, ontologyModuleNetworkFolder);
+		OWLDataFactory factory = manager.getOWLDataFactory();
 
-		OWLDataFactory factory = null;
-		OWLImportsDeclaration importDeclaration = null;
-		IRI importIRI = null;
+		List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
 
-		for (String s : imports) {
+		for (String s : importedOntologies) {
+			OWLImportsDeclaration importDeclaration = factory.getOWLImportsDeclaration(IRI.create(s));
+			if (!onto.getImportsDeclarations().contains(importDeclaration)) {
+				changes.add(new AddImport(onto, importDeclaration));
+			}
+		}
 
-			importIRI = IRI.create(s);
+		int numAdded = changes.size();
 
-			factory = manager.getOWLDataFactory();
+		for (String s : droppedOntologies) {
+			OWLImportsDeclaration importDeclaration = factory.getOWLImportsDeclaration(IRI.create(s));
+			if (onto.getImportsDeclarations().contains(importDeclaration)) {
+				changes.add(new RemoveImport(onto, importDeclaration));
+			}
+		}
 
-			importDeclaration = factory.getOWLImportsDeclaration(importIRI);
+		if (!dryRun && !changes.isEmpty()) {
+			manager.applyChanges(changes);
+			manager.saveOntology(onto);
+		}
 
-			AddImport addImport = new AddImport(onto, importDeclaration);
+		return numAdded;
+	}
 
-			manager.applyChange(addImport);
+	/**
+	 * Sets whether the imports are only reported, without changing the ontology modules
+	 * @param reportOnly true for a dry run
+	 */
+	public static void setDryRun(boolean reportOnly) {
+		dryRun = reportOnly;
+	}
 
-		}
+	/**
+	 * Sets whether the coupling and cohesion metrics of the network are stored in the network folder
+	 * @param write true for storing the metrics
+	 */
+	public static void setWriteMetrics(boolean write) {
+		writeMetrics = write;
+	}
 
-		manager.saveOntology(onto);
+	/**
+	 * Sets whether the imports a module gets through its other imports are dropped
+	 * @param minimise true for minimising the imports
+	 */
+	public static void setMinimiseImports(boolean minimise) {
+		minimiseImports = minimise;
+	}
 
+	/**
+	 * Sets whether a small set of owning modules covering all outlier classes of a module is imported, instead of the last owning module of each class
+	 * @param cover true for a minimal cover
+	 */
+	public static void setMinimalCover(boolean cover) {
+		minimalCover = cover;
 	}
 
 	/**
-	 * Returns a map of documentIRI and ontologyIRI for ontologies that should be imported by a single input ontology module
-	 * @param ontologyModuleFile
-	 * @param ontologyModuleNetworkFolder
-	 * @return
+	 * Returns the ontology IRIs of the ontologies that should be imported by a single input ontology module
+	 * @param ontologyModuleFile The owl file for the ontology module
+	 * @param index The index of the ontology network holding the ontology module
+	 * @param cover true for a small set of owning modules covering all outlier classes, false for the last owning module of each outlier class
+	 * @return The set of ontology IRIs
 	 * @throws OWLOntologyCreationException
 	 */
-	private static Set<String> getImports (File ontologyModuleFile, File ontologyModuleNetworkFolder) throws OWLOntologyCreationException {
+	private static Set<String> getImports (File ontologyModuleFile, ModuleNetworkIndex index, boolean cover) throws OWLOntologyCreationException {
 		Set<String> ontologiesToImport = new HashSet<String>();
-		//load ontology module
-		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();	
-
-		//ensure that the imported ontologies are in the right folder
-		AutoIRIMapper mapper=new AutoIRIMapper(ontologyModuleNetworkFolder, false);
-		manager.addIRIMapper(mapper);
-
-		//load the ontology module
-		OWLOntology ontologyModule = manager.loadOntologyFromOntologyDocument(ontologyModuleFile);
 
 		//get outlier classes for the ontology module
-		Set<OWLClass> outliersSet = findOutliers(ontologyModule);
+		Set<OWLClass> outliersSet = index.getOutliers(ontologyModuleFile);
+
+		if (cover) {
+			Map<String, List<File>> owners = new HashMap<String, List<File>>();
+			for (OWLClass oc : outliersSet) {
+				List<File> ownerFiles = index.getOwnerFiles(oc.getIRI().getFragment(), ontologyModuleFile);
+				if (!ownerFiles.isEmpty()) {
+					owners.put(oc.getIRI().getFragment(), ownerFiles);
+				}
+			}
+
+			//on ties the last module in the network folder is chosen, as for a single class
+			List<File> preference = index.getModuleFiles();
+			Collections.reverse(preference);
 
-		//get all classes from other ontology modules in network
-		Map<String, String> allOtherClasses = getAllOtherClasses(ontologyModuleFile, ontologyModuleNetworkFolder);
+			for (File moduleFile : ImportMinimiser.cover(owners, preference)) {
+				ontologiesToImport.add(index.getOntologyIRI(moduleFile));
+			}
+			return ontologiesToImport;
+		}
 
+		//get the module owning each outlier class in the network
 		for (OWLClass oc : outliersSet) {
-			if (allOtherClasses.containsKey(oc.getIRI().getFragment())) {
-				ontologiesToImport.add(allOtherClasses.get(oc.getIRI().getFragment()));
+			String owner = index.getOwner(oc.getIRI().getFragment(), ontologyModuleFile);
+			if (owner != null) {
+				ontologiesToImport.add(owner);
 			}
 		}
 
 		return ontologiesToImport;
 	}
 
-
-
-	/**
-	 * Retrieves all OWL classes from all ontologies in the ontology network except for the ontology module provided as parameter.
-	 * @param moduleFile The owl file for the ontology module
-	 * @param ontologyModuleNetworkFolder The folder holding all ontology modules in the ontology network
-	 * @return A map where the key is the class name and the value is the ontology responsible for this class
-	 * @throws OWLOntologyCreationException
-	 */
-	private static Map<String, String> getAllOtherClasses (File moduleFile, File ontologyModuleNetworkFolder) throws OWLOntologyCreationException {
-
-		Map<String, String> allOtherClasses = new HashMap<String, String>();
-		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();	
-
-		File[] filesInDir = ontologyModuleNetworkFolder.listFiles();
-
-		OWLOntology ontology = null;
-		Set<OWLClass> classes = null;
-		Set<OWLClass> outliers = null;
-
-		//for every ontology file in folder...
-		for (int i = 0; i < filesInDir.length; i++) {
-
-			if (filesInDir[i].compareTo(moduleFile) != 0) {
-
-				manager = OWLManager.createOWLOntologyManager();
-
-				//establishes that the source folder of the modules to be imported is the "moduleFolder"
-				OWLOntologyIRIMapper autoIRIMapper = new AutoIRIMapper(ontologyModuleNetworkFolder, false);
-				manager.addIRIMapper(autoIRIMapper);
-
-				//need to create a new manager to avoid "OntologyID" already exists exception
-				ontology = manager.loadOntologyFromOntologyDocument(filesInDir[i]);
-				classes = ontology.getClassesInSignature();
-				outliers = findOutliers(ontology);
-
-				//removing all outlier classes from classes of each ontology in the folder
-				classes.removeAll(outliers);
-
-				//put all classes
-				for (OWLClass cls : classes) {
-					allOtherClasses.put(cls.getIRI().getFragment(), ontology.getOntologyID().getOntologyIRI().toString());
-				}			
-			}
-		}		
-		return allOtherClasses;
-	}
-
-
-
 }
@@ -0,0 +1,891 @@
+package modularisation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import misc.FileUtils;
+import misc.OntologyScan;
+import misc.OntologySnapshot;
+import misc.StringDictionary;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.FileDocumentSource;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyAlreadyExistsException;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyIRIMapper;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.util.AutoIRIMapper;
+
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+/**
+ * An index of the modules in an ontology network (the ontology files in a folder), built once per run and shared by the methods resolving dependencies
+ * between the modules. For each module the index holds its ontology IRI and outlier classes, and for each class name the modules owning a class with that
+ * name (that is, having the class without it being an outlier).
+ * The index is built from streaming scans of the module files (OntologyScan), which read the ontology IRI, imports, classes and named superclasses without
+ * loading the modules. A module is only loaded by the OWL API when it is to be rewritten (getModule), or when its file cannot be scanned. The modules are
+ * loaded into one ontology manager, in which the imported modules are resolved from the network folder, so each module file is parsed only once. A module
+ * having the same ontology IRI as another module (e.g. a copy of it) is reported and loaded into a manager of its own. Modules that cannot be scanned
+ * can also be loaded concurrently: the module files are parsed concurrently by ModuleNetworkLoader and added to the manager of the network, so the
+ * modules they import are still parsed once.
+ * The modules to be rewritten can also be loaded together by loadModules(), which parses them concurrently and adds them to the manager in the order of
+ * their imports (ModuleNetworkLoader).
+ * The class IRIs, class names and ontology IRIs are interned in one StringDictionary shared with the scans, so each string is stored once, and the index
+ * keys on their int IDs: the modules owning a class name and having an outlier class with a name are held in lists indexed by the ID of the name. The
+ * dictionary only grows, also when modules are updated.
+ * The index describes the network as it was when the index was built, so adding imports to the modules afterwards does not change it, unless a changed,
+ * added or removed module file is given to update(), which scans (or reloads) only that module and updates the index for it.
+ * @author audunvennesland
+ *
+ */
+public class ModuleNetworkIndex {
+
+	private final File networkFolder;
+
+	//resolves the imported modules from the network folder, shared by all managers
+	private final NetworkIRIMapper mapper = new NetworkIRIMapper();
+
+	//the manager the modules are loaded into
+	private final OWLOntologyManager manager;
+
+	//the loaded modules, by their (absolute) file
+	private final Map<File, OWLOntology> modules = new LinkedHashMap<File, OWLOntology>();
+
+	//the scans of the module files that could be scanned, and by ontology IRI
+	private final Map<File, OntologyScan> scans = new HashMap<File, OntologyScan>();
+	private final Map<String, OntologyScan> scansByIRI = new HashMap<String, OntologyScan>();
+
+	//the class IRIs, class names and ontology IRIs, and the ID of the name of each class IRI ID (-2 if not yet known)
+	private final StringDictionary dictionary = new StringDictionary();
+	private int[] names = new int[0];
+
+	//the ID of the ontology IRI (-1 for an anonymous module) and the IDs of the outlier class IRIs of each module in the network folder
+	private final Map<File, Integer> ontologyIRIs = new HashMap<File, Integer>();
+	private final Map<File, int[]> outlierIRIs = new HashMap<File, int[]>();
+	private final Map<File, Set<OWLClass>> outliers = new HashMap<File, Set<OWLClass>>();
+
+	//the files of the modules owning a class with a given name, by name ID, and the name IDs of the classes owned by each module
+	private final List<Set<File>> owners = new ArrayList<Set<File>>();
+	private final Map<File, int[]> ownedClasses = new HashMap<File, int[]>();
+
+	//the files of the modules having an outlier class with a given name, by name ID
+	private final List<Set<File>> outlierModules = new ArrayList<Set<File>>();
+
+	//the position of each module file in the network folder, the owner of a class is the last owning module in the folder
+	private final Map<File, Integer> positions = new HashMap<File, Integer>();
+
+	//the time the OWL API takes to parse each module file on its own (in nanoseconds), measured when first asked for
+	private final Map<File, Long> parseTimes = new HashMap<File, Long>();
+
+	/**
+	 * Indexes all modules in a network folder
+	 * @param networkFolder The folder holding all ontology modules in the ontology network
+	 * @throws OWLOntologyCreationException
+	 */
+	public ModuleNetworkIndex(File networkFolder) throws OWLOntologyCreationException {
+		this(networkFolder, 1);
+	}
+
+	/**
+	 * Indexes all modules in a network folder, loading the modules that cannot be scanned concurrently if requested
+	 * @param networkFolder The folder holding all ontology modules in the ontology network
+	 * @param parallelism The number of module files being parsed at the same time. If more than one, the modules that cannot be scanned are parsed
+	 * concurrently and added to the manager of the network (ModuleNetworkLoader).
+	 * @throws OWLOntologyCreationException
+	 */
+	public ModuleNetworkIndex(File networkFolder, int parallelism) throws OWLOntologyCreationException {
+		this.networkFolder = networkFolder;
+
+		manager = createManager();
+
+		File[] moduleFiles = FileUtils.listOntologyFiles(networkFolder);
+		List<File> unscannedFiles = new ArrayList<File>();
+
+		for (File moduleFile : moduleFiles) {
+			File file = moduleFile.getAbsoluteFile();
+			OntologyScan scan = scan(file);
+			if (scan != null) {
+				addScan(file, scan);
+			} else {
+				unscannedFiles.add(file);
+			}
+		}
+
+		if (!unscannedFiles.isEmpty()) {
+			mapper.addFolder(networkFolder);
+			if (parallelism > 1) {
+				loadConcurrently(unscannedFiles, parallelism);
+			}
+		}
+
+		updatePositions();
+
+		for (File moduleFile : moduleFiles) {
+			File file = moduleFile.getAbsoluteFile();
+			ModuleClasses classes = getModuleClasses(file, scans.get(file), null);
+			ontologyIRIs.put(file, classes.ontologyIRI);
+			outlierIRIs.put(file, classes.outliers);
+			addClasses(file, classes);
+		}
+	}
+
+	/**
+	 * Updates the index for a module file that has been changed, added to or removed from the network folder. Only this module is scanned (or, if it
+	 * cannot be scanned, reloaded into its own manager), and the classes it owns and its outlier classes are updated.
+	 * @param moduleFile The owl file of the module
+	 * @return The files of the modules whose outlier classes may now resolve to other owning modules: the updated module itself (unless it was removed)
+	 * and the modules having an outlier class whose owner changed
+	 * @throws OWLOntologyCreationException
+	 */
+	public Set<File> update(File moduleFile) throws OWLOntologyCreationException {
+
+		File file = moduleFile.getAbsoluteFile();
+
+		OntologyScan scan = null;
+		OWLOntology module = null;
+		ModuleClasses classes = null;
+
+		if (file.exists()) {
+			scan = scan(file);
+			if (scan == null) {
+				mapper.addFolder(networkFolder);
+				module = OntologySnapshot.load(createManager(), file);
+			}
+			classes = getModuleClasses(file, scan, module);
+		}
+
+		//the class names that may get another owner: those owned by the old or the new version of the module, but not by both unless the module
+		//has got another ontology IRI
+		Set<Integer> oldClasses = toSet(ownedClasses.get(file));
+		Set<Integer> newClasses = toSet(classes == null ? null : getOwnedClasses(classes));
+
+		Set<Integer> changedClasses = new HashSet<Integer>(oldClasses);
+		changedClasses.addAll(newClasses);
+
+		if (classes != null && ontologyIRIs.containsKey(file) && ontologyIRIs.get(file) == classes.ontologyIRI) {
+			Set<Integer> unchangedClasses = new HashSet<Integer>(oldClasses);
+			unchangedClasses.retainAll(newClasses);
+			changedClasses.removeAll(unchangedClasses);
+		}
+
+		Map<File, Map<Integer, String>> oldOwners = resolveOwners(changedClasses);
+
+		removeClasses(file);
+		removeScan(file);
+		removeModule(file);
+		parseTimes.remove(file);
+		ontologyIRIs.remove(file);
+		outlierIRIs.remove(file);
+		outliers.remove(file);
+		updatePositions();
+
+		if (classes != null) {
+			if (scan != null) {
+				addScan(file, scan);
+			} else {
+				modules.put(file, module);
+			}
+			ontologyIRIs.put(file, classes.ontologyIRI);
+			outlierIRIs.put(file, classes.outliers);
+			addClasses(file, classes);
+		}
+
+		Map<File, Map<Integer, String>> newOwners = resolveOwners(changedClasses);
+
+		Set<File> affected = new LinkedHashSet<File>();
+		if (classes != null) {
+			affected.add(file);
+		}
+
+		Set<File> resolvedModules = new HashSet<File>(oldOwners.keySet());
+		resolvedModules.addAll(newOwners.keySet());
+		for (File resolvedModule : resolvedModules) {
+			if (ontologyIRIs.containsKey(resolvedModule) && !equal(oldOwners.get(resolvedModule), newOwners.get(resolvedModule))) {
+				affected.add(resolvedModule);
+			}
+		}
+
+		return affected;
+	}
+
+	/**
+	 * Scans a module file, unless the outlier classes are to be found with the StructuralReasoner, which needs the loaded module
+	 * @return The scan, or null if the file cannot be scanned
+	 */
+	private OntologyScan scan(File file) throws OWLOntologyCreationException {
+
+		if (ModuleNetworkDependencyManager.useStructuralReasoner) {
+			return null;
+		}
+
+		try {
+			return OntologyScan.scan(file, dictionary);
+		} catch (IOException e) {
+			throw new OWLOntologyCreationException("Could not read " + file, e);
+		}
+	}
+
+	private void addScan(File file, OntologyScan scan) {
+		scans.put(file, scan);
+		if (scan.getOntologyIRI() != null) {
+			scansByIRI.put(scan.getOntologyIRI(), scan);
+			mapper.put(IRI.create(scan.getOntologyIRI()), IRI.create(file));
+		}
+	}
+
+	private void removeScan(File file) {
+		OntologyScan scan = scans.remove(file);
+		if (scan != null && scan.getOntologyIRI() != null && scansByIRI.get(scan.getOntologyIRI()) == scan) {
+			scansByIRI.remove(scan.getOntologyIRI());
+			mapper.remove(IRI.create(scan.getOntologyIRI()));
+		}
+	}
+
+	/**
+	 * Removes a module from the index and from the manager of the network, in which it may also have been loaded as an import of another module,
+	 * so that it is loaded again by getModule()
+	 */
+	private void removeModule(File file) {
+		modules.remove(file);
+
+		IRI documentIRI = IRI.create(file);
+		for (OWLOntology loaded : new ArrayList<OWLOntology>(manager.getOntologies())) {
+			if (manager.getOntologyDocumentIRI(loaded).equals(documentIRI)) {
+				manager.removeOntology(loaded);
+			}
+		}
+	}
+
+	/**
+	 * Returns the scans of a module file and of the module files it imports, directly or indirectly
+	 * @return The scans, or null if a module outside the network folder or a module file that cannot be scanned is imported
+	 */
+	private List<OntologyScan> getImportsClosure(OntologyScan scan) {
+
+		List<OntologyScan> closure = new ArrayList<OntologyScan>();
+		Set<String> visited = new HashSet<String>();
+
+		closure.add(scan);
+		visited.add(scan.getOntologyIRI());
+
+		for (int i = 0; i < closure.size(); i++) {
+			for (String imported : closure.get(i).getImports()) {
+				if (visited.add(imported)) {
+					OntologyScan importedScan = scansByIRI.get(imported);
+					if (importedScan == null) {
+						return null;
+					}
+					closure.add(importedScan);
+				}
+			}
+		}
+
+		return closure;
+	}
+
+	/**
+	 * Returns the ontology IRI, classes and outlier classes of a module, from its scan if it could be scanned and all modules it imports are scanned,
+	 * otherwise from the loaded module
+	 * @param file The owl file of the module
+	 * @param scan The scan of the file, or null
+	 * @param module The loaded module, or null if it is to be loaded by getModule()
+	 */
+	private ModuleClasses getModuleClasses(File file, OntologyScan scan, OWLOntology module) throws OWLOntologyCreationException {
+
+		if (scan != null) {
+			List<OntologyScan> closure = getImportsClosure(scan);
+			if (closure != null) {
+				return new ModuleClasses(getID(scan.getOntologyIRI()), scan.getClassIDs(), OutlierDetector.findOutliers(scan, closure));
+			}
+		}
+
+		if (module == null) {
+			module = getModule(file);
+		}
+
+		Set<OWLClass> moduleClasses = module.getClassesInSignature();
+		int[] classes = new int[moduleClasses.size()];
+		int i = 0;
+		for (OWLClass cls : moduleClasses) {
+			classes[i++] = dictionary.getID(cls.getIRI().toString());
+		}
+
+		Set<OWLClass> moduleOutliers = outliers.get(file);
+		if (moduleOutliers == null) {
+			moduleOutliers = ModuleNetworkDependencyManager.findOutliers(module);
+		}
+
+		int[] moduleOutlierIRIs = new int[moduleOutliers.size()];
+		i = 0;
+		for (OWLClass cls : moduleOutliers) {
+			moduleOutlierIRIs[i++] = dictionary.getID(cls.getIRI().toString());
+		}
+
+		IRI ontologyIRI = module.getOntologyID().getOntologyIRI();
+
+		return new ModuleClasses(getID(ontologyIRI == null ? null : ontologyIRI.toString()), classes, moduleOutlierIRIs);
+	}
+
+	/**
+	 * Returns the ID of a string in the dictionary, or -1 for null
+	 */
+	private int getID(String s) {
+		return s == null ? -1 : dictionary.getID(s);
+	}
+
+	/**
+	 * Returns the ID of the name (IRI fragment) of a class given by the ID of its IRI
+	 * @return The name ID, or -1 if the IRI has no fragment
+	 */
+	private int getNameID(int cls) {
+
+		if (cls >= names.length) {
+			int oldLength = names.length;
+			names = Arrays.copyOf(names, Math.max(cls + 1, dictionary.size()));
+			Arrays.fill(names, oldLength, names.length, -2);
+		}
+
+		if (names[cls] == -2) {
+			String name = IRI.create(dictionary.get(cls)).getFragment();
+			names[cls] = name == null ? -1 : dictionary.getID(name);
+		}
+
+		return names[cls];
+	}
+
+	/**
+	 * Returns the name IDs of the classes of a module that are not outliers
+	 */
+	private int[] getOwnedClasses(ModuleClasses classes) {
+
+		int[] outlierIDs = classes.outliers.clone();
+		Arrays.sort(outlierIDs);
+
+		int[] classNames = new int[classes.classes.length];
+		int count = 0;
+		for (int cls : classes.classes) {
+			if (Arrays.binarySearch(outlierIDs, cls) < 0 && getNameID(cls) != -1) {
+				classNames[count++] = getNameID(cls);
+			}
+		}
+
+		//distinct names, since classes in different namespaces may have the same name
+		Arrays.sort(classNames, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || classNames[i] != classNames[distinct - 1]) {
+				classNames[distinct++] = classNames[i];
+			}
+		}
+
+		return Arrays.copyOf(classNames, distinct);
+	}
+
+	private static Set<Integer> toSet(int[] ids) {
+		Set<Integer> set = new HashSet<Integer>();
+		if (ids != null) {
+			for (int id : ids) {
+				set.add(id);
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * Adds the classes owned by a module and its outlier classes to the index
+	 */
+	private void addClasses(File file, ModuleClasses classes) {
+
+		int[] classNames = getOwnedClasses(classes);
+		ownedClasses.put(file, classNames);
+
+		for (int name : classNames) {
+			add(owners, name, file);
+		}
+
+		for (int cls : classes.outliers) {
+			add(outlierModules, getNameID(cls), file);
+		}
+	}
+
+	/**
+	 * Removes the classes owned by a module and its outlier classes from the index
+	 */
+	private void removeClasses(File file) {
+
+		int[] classNames = ownedClasses.remove(file);
+		if (classNames != null) {
+			for (int name : classNames) {
+				remove(owners, name, file);
+			}
+		}
+
+		int[] moduleOutliers = outlierIRIs.get(file);
+		if (moduleOutliers != null) {
+			for (int cls : moduleOutliers) {
+				remove(outlierModules, getNameID(cls), file);
+			}
+		}
+	}
+
+	private static void add(List<Set<File>> index, int name, File file) {
+		if (name == -1) {
+			return;
+		}
+		while (index.size() <= name) {
+			index.add(null);
+		}
+		Set<File> files = index.get(name);
+		if (files == null) {
+			files = new HashSet<File>(2);
+			index.set(name, files);
+		}
+		files.add(file);
+	}
+
+	private static void remove(List<Set<File>> index, int name, File file) {
+		Set<File> files = get(index, name);
+		if (files != null) {
+			files.remove(file);
+			if (files.isEmpty()) {
+				index.set(name, null);
+			}
+		}
+	}
+
+	private static Set<File> get(List<Set<File>> index, int name) {
+		return name >= 0 && name < index.size() ? index.get(name) : null;
+	}
+
+	/**
+	 * Returns, for each module having outlier classes with the given names, the owners these outlier classes resolve to
+	 */
+	private Map<File, Map<Integer, String>> resolveOwners(Set<Integer> classNames) {
+
+		Map<File, Map<Integer, String>> resolved = new HashMap<File, Map<Integer, String>>();
+
+		for (int name : classNames) {
+			Set<File> files = get(outlierModules, name);
+			if (files != null) {
+				for (File file : files) {
+					Map<Integer, String> moduleOwners = resolved.get(file);
+					if (moduleOwners == null) {
+						moduleOwners = new HashMap<Integer, String>();
+						resolved.put(file, moduleOwners);
+					}
+					List<File> ownerFiles = getOwnerFiles(name, file);
+					moduleOwners.put(name, ownerFiles.isEmpty() ? null : getOntologyIRI(ownerFiles.get(0)));
+				}
+			}
+		}
+
+		return resolved;
+	}
+
+	private static boolean equal(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Records the position of each module file in the network folder
+	 */
+	private void updatePositions() {
+
+		positions.clear();
+
+		File[] moduleFiles = FileUtils.listOntologyFiles(networkFolder);
+		for (int i = 0; i < moduleFiles.length; i++) {
+			positions.put(moduleFiles[i].getAbsoluteFile(), i);
+		}
+	}
+
+	/**
+	 * Loads the modules into the manager of the network, parsing the module files concurrently (ModuleNetworkLoader), so that the modules they import
+	 * are parsed once instead of once for each importing module. The outlier classes are found afterwards, one module at a time, since the loaded
+	 * modules share the manager.
+	 */
+	private void loadConcurrently(List<File> moduleFiles, int parallelism) throws OWLOntologyCreationException {
+
+		//the modules having the ontology IRI of another module are loaded on their own by getModule()
+		modules.putAll(new ModuleNetworkLoader(manager, parallelism).load(moduleFiles));
+	}
+
+	/**
+	 * Creates a manager resolving imported modules from the network folder, with its own data factory since these are not thread-safe in the OWL API
+	 */
+	private OWLOntologyManager createManager() {
+		OWLOntologyManager moduleManager = OWLManager.createOWLOntologyManager(new OWLDataFactoryImpl());
+		moduleManager.addIRIMapper(mapper);
+		return moduleManager;
+	}
+
+	/**
+	 * Loads a set of modules into the manager of the network in one go (ModuleNetworkLoader), parsing the module files concurrently and adding the modules
+	 * in the order of their imports, so that each module is parsed once. The loader reads the imports of the modules from the scans of the index, so only
+	 * the module files the index could not scan are scanned again. Import cycles between the modules are reported. The modules already loaded are
+	 * not loaded again, and the modules having the same ontology IRI as another module are loaded on their own, as by getModule().
+	 * @param moduleFiles The owl files of the modules
+	 * @param parallelism The number of module files being parsed at the same time
+	 * @throws OWLOntologyCreationException
+	 */
+	public void loadModules(Collection<File> moduleFiles, int parallelism) throws OWLOntologyCreationException {
+
+		List<File> files = new ArrayList<File>();
+		List<File> duplicates = new ArrayList<File>();
+		for (File moduleFile : moduleFiles) {
+			File file = moduleFile.getAbsoluteFile();
+			if (!modules.containsKey(file)) {
+				(isDuplicate(file) ? duplicates : files).add(file);
+			}
+		}
+
+		//the module files are not scanned again by the loader
+		ModuleNetworkLoader loader = new ModuleNetworkLoader(manager, parallelism);
+		modules.putAll(loader.load(files, scans));
+
+		//the modules the loader found to have the ontology IRI of another module, which could not be scanned
+		duplicates.addAll(loader.getDuplicates());
+		for (File file : duplicates) {
+			getModule(file);
+		}
+	}
+
+	/**
+	 * Returns a module of the network, or of another folder, loading it into the manager of the network if it has not been loaded
+	 * @param moduleFile The owl file of the module
+	 * @return The module
+	 * @throws OWLOntologyCreationException
+	 */
+	public OWLOntology getModule(File moduleFile) throws OWLOntologyCreationException {
+
+		File file = moduleFile.getAbsoluteFile();
+		OWLOntology module = modules.get(file);
+
+		if (module == null) {
+			//the module may already have been loaded as an import of another module
+			IRI documentIRI = IRI.create(file);
+			for (OWLOntology loaded : manager.getOntologies()) {
+				if (manager.getOntologyDocumentIRI(loaded).equals(documentIRI)) {
+					module = loaded;
+				}
+			}
+
+			if (module == null) {
+				module = load(file);
+			}
+
+			modules.put(file, module);
+		}
+
+		return module;
+	}
+
+	/**
+	 * Checks whether a scanned module has the same ontology IRI as a module scanned after it, which the imports of the other modules resolve to
+	 */
+	private boolean isDuplicate(File file) {
+		OntologyScan scan = scans.get(file);
+		return scan != null && scan.getOntologyIRI() != null && scansByIRI.get(scan.getOntologyIRI()) != scan;
+	}
+
+	/**
+	 * Loads a module into the manager of the network, or into a manager of its own if another module has the same ontology IRI, since a manager holds
+	 * one ontology per ontology IRI. The imports of the other modules resolve to the last module file in the network folder having the ontology IRI, so
+	 * the other module files having it are loaded on their own.
+	 */
+	private OWLOntology load(File file) throws OWLOntologyCreationException {
+
+		if (isDuplicate(file)) {
+			OntologyScan scan = scans.get(file);
+			for (Map.Entry<File, OntologyScan> other : scans.entrySet()) {
+				if (other.getValue() == scansByIRI.get(scan.getOntologyIRI())) {
+					System.out.println("The ontology IRI " + scan.getOntologyIRI() + " of " + file.getName() + " is also the ontology IRI of "
+							+ other.getKey().getName() + ", the module is loaded on its own");
+				}
+			}
+			return OntologySnapshot.load(createManager(), file);
+		}
+
+		try {
+			return OntologySnapshot.load(manager, file);
+		} catch (OWLOntologyAlreadyExistsException e) {
+			//a module that could not be scanned
+			System.out.println("The ontology IRI " + e.getOntologyID().getOntologyIRI() + " of " + file.getName() + " is also the ontology IRI of another module, the module is loaded on its own");
+			return OntologySnapshot.load(createManager(), file);
+		}
+	}
+
+	/**
+	 * Returns the outlier classes of a module, that is, the classes having owl:Thing as direct superclass and not having a name starting with "_"
+	 * @param moduleFile The owl file of the module
+	 * @return The set of outlier classes
+	 * @throws OWLOntologyCreationException
+	 */
+	public Set<OWLClass> getOutliers(File moduleFile) throws OWLOntologyCreationException {
+
+		File file = moduleFile.getAbsoluteFile();
+		Set<OWLClass> moduleOutliers = outliers.get(file);
+
+		if (moduleOutliers == null) {
+			if (outlierIRIs.containsKey(file)) {
+				moduleOutliers = new HashSet<OWLClass>();
+				for (int cls : outlierIRIs.get(file)) {
+					moduleOutliers.add(manager.getOWLDataFactory().getOWLClass(IRI.create(dictionary.get(cls))));
+				}
+			} else {
+				//a module outside the network folder
+				moduleOutliers = ModuleNetworkDependencyManager.findOutliers(getModule(file));
+			}
+			outliers.put(file, moduleOutliers);
+		}
+
+		return moduleOutliers;
+	}
+
+	/**
+	 * Returns the ontology IRI of the module owning a class with a given name. If several modules own such a class, the last module in the order of the
+	 * files in the network folder is returned.
+	 * @param className The class name (IRI fragment)
+	 * @param moduleFile The owl file of the module asking for the owner, which is not considered as an owner
+	 * @return The ontology IRI of the owning module, or null if no other module in the network owns the class
+	 */
+	public String getOwner(String className, File moduleFile) {
+
+		List<File> ownerFiles = getOwnerFiles(className, moduleFile);
+
+		return ownerFiles.isEmpty() ? null : getOntologyIRI(ownerFiles.get(0));
+	}
+
+	/**
+	 * Returns the files of all modules owning a class with a given name
+	 * @param className The class name (IRI fragment)
+	 * @param moduleFile The owl file of the module asking for the owners, which is not considered as an owner
+	 * @return The files of the other modules in the network owning the class, from the last to the first in the order of the files in the network folder
+	 */
+	public List<File> getOwnerFiles(String className, File moduleFile) {
+		return getOwnerFiles(dictionary.lookup(className), moduleFile);
+	}
+
+	private List<File> getOwnerFiles(int className, File moduleFile) {
+
+		List<File> ownerFiles = new ArrayList<File>();
+		Set<File> files = get(owners, className);
+		if (files != null) {
+			for (File ownerFile : files) {
+				if (!ownerFile.equals(moduleFile.getAbsoluteFile())) {
+					ownerFiles.add(ownerFile);
+				}
+			}
+		}
+
+		Collections.sort(ownerFiles, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return getPosition(b) - getPosition(a);
+			}
+		});
+
+		return ownerFiles;
+	}
+
+	/**
+	 * Returns the ontology IRI of a module in the network folder
+	 * @param moduleFile The owl file of the module
+	 * @return The ontology IRI, or null for an anonymous module or a file outside the network folder
+	 */
+	public String getOntologyIRI(File moduleFile) {
+		Integer ontologyIRI = ontologyIRIs.get(moduleFile.getAbsoluteFile());
+		return ontologyIRI == null || ontologyIRI == -1 ? null : dictionary.get(ontologyIRI);
+	}
+
+	/**
+	 * Checks whether a module file is in the index, that is, in the network folder as it was when the index was built or last updated
+	 * @param moduleFile The owl file of the module
+	 * @return true if the module is indexed
+	 */
+	public boolean contains(File moduleFile) {
+		return ontologyIRIs.containsKey(moduleFile.getAbsoluteFile());
+	}
+
+	/**
+	 * Returns the number of classes owned by a module in the network folder, counted by class name
+	 * @param moduleFile The owl file of the module
+	 * @return The number of class names owned by the module, or 0 for a file outside the network folder
+	 */
+	public int getOwnedClassCount(File moduleFile) {
+		int[] classNames = ownedClasses.get(moduleFile.getAbsoluteFile());
+		return classNames == null ? 0 : classNames.length;
+	}
+
+	/**
+	 * Returns the module in the network folder having an ontology IRI. If several modules have it, the last module in the order of the files in the network
+	 * folder is returned, as for the owner of a class.
+	 * @param ontologyIRI The ontology IRI
+	 * @return The owl file of the module, or null if no module in the network folder has the ontology IRI
+	 */
+	public File getModuleFile(String ontologyIRI) {
+
+		int id = dictionary.lookup(ontologyIRI);
+
+		File moduleFile = null;
+		for (Map.Entry<File, Integer> module : ontologyIRIs.entrySet()) {
+			if (id != -1 && module.getValue() == id && (moduleFile == null || getPosition(module.getKey()) > getPosition(moduleFile))) {
+				moduleFile = module.getKey();
+			}
+		}
+
+		return moduleFile;
+	}
+
+	/**
+	 * Returns the ontology IRIs of the ontologies a module declares imports of, as the module is loaded or, if it has not been loaded, as it was scanned
+	 * @param moduleFile The owl file of the module
+	 * @return The imported ontology IRIs
+	 * @throws OWLOntologyCreationException
+	 */
+	public Set<String> getDeclaredImports(File moduleFile) throws OWLOntologyCreationException {
+
+		File file = moduleFile.getAbsoluteFile();
+		Set<String> declaredImports = new LinkedHashSet<String>();
+
+		if (!modules.containsKey(file) && scans.containsKey(file)) {
+			declaredImports.addAll(scans.get(file).getImports());
+		} else {
+			for (OWLImportsDeclaration importDeclaration : getModule(file).getImportsDeclarations()) {
+				declaredImports.add(importDeclaration.getIRI().toString());
+			}
+		}
+
+		return declaredImports;
+	}
+
+	/**
+	 * Returns the time the OWL API takes to parse a module file on its own, without its imports, which is the share of the module in the time taken to
+	 * load any import closure holding it. The file is parsed into a new manager when the time is first asked for, and again after the module is updated.
+	 * @param moduleFile The owl file of the module
+	 * @return The parse time in nanoseconds
+	 * @throws OWLOntologyCreationException
+	 */
+	public long getParseTime(File moduleFile) throws OWLOntologyCreationException {
+
+		File file = moduleFile.getAbsoluteFile();
+		Long parseTime = parseTimes.get(file);
+
+		if (parseTime == null) {
+			OWLOntologyLoaderConfiguration configuration = new OWLOntologyLoaderConfiguration();
+			for (String importIRI : getDeclaredImports(file)) {
+				configuration = configuration.addIgnoredImport(IRI.create(importIRI));
+			}
+
+			long start = System.nanoTime();
+			OWLManager.createOWLOntologyManager(new OWLDataFactoryImpl()).loadOntologyFromOntologyDocument(new FileDocumentSource(file), configuration);
+			parseTime = System.nanoTime() - start;
+
+			parseTimes.put(file, parseTime);
+		}
+
+		return parseTime;
+	}
+
+	private int getPosition(File file) {
+		Integer position = positions.get(file);
+		return position == null ? -1 : position;
+	}
+
+	/**
+	 * Returns the files of the modules in the network folder
+	 * @return The module files, in the order of the files in the network folder
+	 */
+	public List<File> getModuleFiles() {
+		List<File> moduleFiles = new ArrayList<File>();
+		for (File moduleFile : FileUtils.listOntologyFiles(networkFolder)) {
+			moduleFiles.add(moduleFile.getAbsoluteFile());
+		}
+		return moduleFiles;
+	}
+
+	/**
+	 * Returns the dictionary of the class IRIs, class names and ontology IRIs of the network
+	 * @return The dictionary
+	 */
+	public StringDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Returns the folder holding the modules of the network
+	 * @return The network folder
+	 */
+	public File getNetworkFolder() {
+		return networkFolder;
+	}
+
+	/**
+	 * The ontology IRI, classes and outlier classes of a module, as IDs in the dictionary of the index
+	 */
+	private static class ModuleClasses {
+
+		final int ontologyIRI;
+		final int[] classes;
+		final int[] outliers;
+
+		ModuleClasses(int ontologyIRI, int[] classes, int[] outliers) {
+			this.ontologyIRI = ontologyIRI;
+			this.classes = classes;
+			this.outliers = outliers;
+		}
+	}
+
+	/**
+	 * Resolves the imported modules from the scanned module files, and from the other ontology files in the network folder if some of them cannot be
+	 * scanned. It is shared by managers on different threads.
+	 */
+	private static class NetworkIRIMapper implements OWLOntologyIRIMapper {
+
+		private final Map<IRI, IRI> documentIRIs = new ConcurrentHashMap<IRI, IRI>();
+		private volatile AutoIRIMapper folderMapper;
+
+		void put(IRI ontologyIRI, IRI documentIRI) {
+			documentIRIs.put(ontologyIRI, documentIRI);
+		}
+
+		void remove(IRI ontologyIRI) {
+			documentIRIs.remove(ontologyIRI);
+		}
+
+		/**
+		 * Also resolves the imported modules from the ontology files in a folder, as they are when this method is called
+		 */
+		void addFolder(File folder) {
+			AutoIRIMapper autoMapper = new AutoIRIMapper(folder, false);
+			autoMapper.update();
+			folderMapper = autoMapper;
+		}
+
+		public IRI getDocumentIRI(IRI ontologyIRI) {
+			IRI documentIRI = documentIRIs.get(ontologyIRI);
+			if (documentIRI == null && folderMapper != null) {
+				documentIRI = folderMapper.getDocumentIRI(ontologyIRI);
+			}
+			return documentIRI;
+		}
+	}
+
+}
@@ -0,0 +1,399 @@
+package modularisation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import misc.FileUtils;
+import misc.OntologyScan;
+import misc.OntologySnapshot;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.AddOntologyAnnotation;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLImportsDeclaration;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyAlreadyExistsException;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyLoaderConfiguration;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.util.AutoIRIMapper;
+
+import uk.ac.manchester.cs.owl.owlapi.OWLDataFactoryImpl;
+
+/**
+ * Loads the modules of an ontology network (the ontology files in a folder) into one shared ontology manager, parsing each module file only once.
+ * The import declarations of the modules are read first from scans of the module files (OntologyScan), which give the order in which the modules are
+ * added to the shared manager: a module is added after the modules it imports, so that its imports declarations link to the modules already loaded
+ * instead of making the manager load (and parse) them again. Modules importing each other directly or indirectly are reported as import cycles and
+ * added after the other modules.
+ * The module files are parsed concurrently, each in its own manager with the imports of the module ignored, since the OWL API managers are not
+ * thread-safe. The parsed modules are then copied into the shared manager one at a time in the order of the imports. Module files that cannot be scanned
+ * are loaded into the shared manager at the end, as are the ontologies outside the loaded modules that these import.
+ * Modules having the same ontology IRI as another module (e.g. a copy of it) are found from the scans, and only one of them is loaded, since a manager
+ * holds one ontology per ontology IRI. The others are reported and skipped.
+ * @author audunvennesland
+ *
+ */
+public class ModuleNetworkLoader {
+
+	private final OWLOntologyManager manager;
+	private final int parallelism;
+
+	//the modules importing each other, found by the last call to load()
+	private final List<List<File>> importCycles = new ArrayList<List<File>>();
+
+	//the modules not loaded by the last call to load() since another module has the same ontology IRI
+	private final List<File> duplicates = new ArrayList<File>();
+
+	/**
+	 * Creates a loader for a shared manager
+	 * @param manager The manager the modules are loaded into. It should be able to resolve (e.g. with an IRI mapper) the imported ontologies that are not
+	 * among the loaded modules.
+	 * @param parallelism The number of module files being parsed at the same time
+	 */
+	public ModuleNetworkLoader(OWLOntologyManager manager, int parallelism) {
+		this.manager = manager;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Loads all modules in a network folder into a new manager, in which the ontologies imported from outside the loaded modules are resolved from the
+	 * network folder
+	 * @param networkFolder The folder holding all ontology modules in the ontology network
+	 * @param parallelism The number of module files being parsed at the same time
+	 * @return The loaded modules, by their (absolute) file in the order of the files in the network folder
+	 * @throws OWLOntologyCreationException
+	 */
+	public static Map<File, OWLOntology> loadNetwork(File networkFolder, int parallelism) throws OWLOntologyCreationException {
+
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager(new OWLDataFactoryImpl());
+		manager.addIRIMapper(new AutoIRIMapper(networkFolder, false));
+
+		return new ModuleNetworkLoader(manager, parallelism).load(networkFolder);
+	}
+
+	/**
+	 * Loads all modules in a network folder into the shared manager
+	 * @param networkFolder The folder holding all ontology modules in the ontology network
+	 * @return The loaded modules, by their (absolute) file in the order of the files in the network folder
+	 * @throws OWLOntologyCreationException
+	 */
+	public Map<File, OWLOntology> load(File networkFolder) throws OWLOntologyCreationException {
+
+		List<File> moduleFiles = new ArrayList<File>();
+		for (File moduleFile : FileUtils.listOntologyFiles(networkFolder)) {
+			moduleFiles.add(moduleFile);
+		}
+
+		return load(moduleFiles);
+	}
+
+	/**
+	 * Loads a set of modules into the shared manager. Modules already loaded into the shared manager (from the same file) are not loaded again.
+	 * A manager holds one ontology per ontology IRI, so of the modules having the same ontology IRI only the last one is loaded (the imports of the other
+	 * modules resolve to it), and none of them if the shared manager already holds an ontology with the IRI from another file. The modules not loaded are
+	 * reported and given by getDuplicates().
+	 * @param moduleFiles The owl files of the modules
+	 * @return The loaded modules, by their (absolute) file in the order of the given files
+	 * @throws OWLOntologyCreationException
+	 */
+	public Map<File, OWLOntology> load(List<File> moduleFiles) throws OWLOntologyCreationException {
+		return load(moduleFiles, new HashMap<File, OntologyScan>());
+	}
+
+	/**
+	 * Loads a set of modules into the shared manager as load(List) does, using the scans already made of the module files (e.g. by ModuleNetworkIndex)
+	 * instead of scanning these files again. Only the module files without a scan are scanned.
+	 * @param moduleFiles The owl files of the modules
+	 * @param knownScans The scans of module files already scanned, by (absolute) file
+	 * @return The loaded modules, by their (absolute) file in the order of the given files
+	 * @throws OWLOntologyCreationException
+	 */
+	public Map<File, OWLOntology> load(List<File> moduleFiles, Map<File, OntologyScan> knownScans) throws OWLOntologyCreationException {
+
+		importCycles.clear();
+		duplicates.clear();
+
+		Map<File, OWLOntology> modules = new LinkedHashMap<File, OWLOntology>();
+		Map<IRI, OWLOntology> loadedDocuments = new HashMap<IRI, OWLOntology>();
+		for (OWLOntology loaded : manager.getOntologies()) {
+			loadedDocuments.put(manager.getOntologyDocumentIRI(loaded), loaded);
+		}
+
+		//read the import declarations of the modules, the files that cannot be scanned are loaded at the end
+		Map<File, OntologyScan> scans = new LinkedHashMap<File, OntologyScan>();
+		List<File> unscannedFiles = new ArrayList<File>();
+
+		for (File moduleFile : moduleFiles) {
+			File file = moduleFile.getAbsoluteFile();
+			modules.put(file, loadedDocuments.get(IRI.create(file)));
+			if (modules.get(file) != null) {
+				continue;
+			}
+
+			OntologyScan scan = knownScans.get(file);
+			if (scan == null) {
+				try {
+					scan = OntologyScan.scan(file);
+				} catch (IOException e) {
+					throw new OWLOntologyCreationException("Could not read " + file, e);
+				}
+			}
+
+			if (scan != null) {
+				scans.put(file, scan);
+			} else {
+				unscannedFiles.add(file);
+			}
+		}
+
+		removeDuplicates(scans, modules);
+
+		List<File> order = getImportOrder(scans);
+
+		for (List<File> cycle : importCycles) {
+			StringBuilder names = new StringBuilder();
+			for (File file : cycle) {
+				names.append(names.length() == 0 ? "" : ", ").append(file.getName());
+			}
+			System.out.println("Import cycle between the ontology modules: " + names);
+		}
+
+		//the files are parsed in the order they are added to the shared manager, so that the first modules to add are parsed first
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		Map<File, Future<OWLOntology>> results = new LinkedHashMap<File, Future<OWLOntology>>();
+
+		for (final File file : order) {
+			final OntologyScan scan = scans.get(file);
+			results.put(file, executor.submit(new Callable<OWLOntology>() {
+				public OWLOntology call() throws Exception {
+					OWLOntologyLoaderConfiguration configuration = new OWLOntologyLoaderConfiguration();
+					for (String importIRI : scan.getImports()) {
+						configuration = configuration.addIgnoredImport(IRI.create(importIRI));
+					}
+					return OntologySnapshot.load(OWLManager.createOWLOntologyManager(new OWLDataFactoryImpl()), file, configuration);
+				}
+			}));
+		}
+
+		executor.shutdown();
+
+		try {
+			for (Map.Entry<File, Future<OWLOntology>> result : results.entrySet()) {
+				try {
+					modules.put(result.getKey(), copy(result.getValue().get(), result.getKey()));
+				} catch (OWLOntologyAlreadyExistsException e) {
+					//an ontology ID not found by the scans, e.g. an ontology loaded as an import having the IRI
+					skipDuplicate(result.getKey(), e.getOntologyID().toString(), modules);
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof OWLOntologyCreationException) {
+						throw (OWLOntologyCreationException) e.getCause();
+					}
+					throw new RuntimeException("Loading of module " + result.getKey() + " failed", e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Loading of the module network was interrupted", e);
+		}
+
+		//the modules that cannot be scanned may have been loaded as imports of the modules loaded before them
+		for (OWLOntology loaded : manager.getOntologies()) {
+			loadedDocuments.put(manager.getOntologyDocumentIRI(loaded), loaded);
+		}
+		for (File file : unscannedFiles) {
+			OWLOntology module = loadedDocuments.get(IRI.create(file));
+			try {
+				modules.put(file, module != null ? module : OntologySnapshot.load(manager, file));
+			} catch (OWLOntologyAlreadyExistsException e) {
+				skipDuplicate(file, e.getOntologyID().toString(), modules);
+			}
+		}
+
+		//the imported ontologies that are not among the modules are loaded as the manager would load them
+		OWLOntologyLoaderConfiguration configuration = new OWLOntologyLoaderConfiguration();
+		for (File file : order) {
+			if (!modules.containsKey(file)) {
+				continue;
+			}
+			for (OWLImportsDeclaration importDeclaration : modules.get(file).getImportsDeclarations()) {
+				if (manager.getImportedOntology(importDeclaration) == null) {
+					manager.makeLoadImportRequest(importDeclaration, configuration);
+				}
+			}
+		}
+
+		return modules;
+	}
+
+	/**
+	 * Returns the import cycles found by the last load, each as the set of modules importing each other directly or indirectly (or a module importing
+	 * itself)
+	 * @return The files of the modules in each import cycle
+	 */
+	public List<List<File>> getImportCycles() {
+		return importCycles;
+	}
+
+	/**
+	 * Returns the modules not loaded by the last load since another module, or an ontology already in the shared manager, has the same ontology IRI
+	 * @return The files of the modules not loaded, in the order of the given files
+	 */
+	public List<File> getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Removes the scanned modules having the ontology IRI of a later scanned module or of an ontology loaded into the shared manager from another file,
+	 * so that they are not parsed
+	 */
+	private void removeDuplicates(Map<File, OntologyScan> scans, Map<File, OWLOntology> modules) {
+
+		Map<String, File> filesByIRI = new HashMap<String, File>();
+		for (Map.Entry<File, OntologyScan> scan : scans.entrySet()) {
+			if (scan.getValue().getOntologyIRI() != null) {
+				filesByIRI.put(scan.getValue().getOntologyIRI(), scan.getKey());
+			}
+		}
+
+		for (Iterator<Map.Entry<File, OntologyScan>> scan = scans.entrySet().iterator(); scan.hasNext(); ) {
+			Map.Entry<File, OntologyScan> entry = scan.next();
+			String ontologyIRI = entry.getValue().getOntologyIRI();
+			if (ontologyIRI == null) {
+				continue;
+			}
+			if (manager.contains(IRI.create(ontologyIRI))) {
+				skipDuplicate(entry.getKey(), ontologyIRI + " (loaded from " + manager.getOntologyDocumentIRI(manager.getOntology(IRI.create(ontologyIRI))) + ")", modules);
+				scan.remove();
+			} else if (!filesByIRI.get(ontologyIRI).equals(entry.getKey())) {
+				skipDuplicate(entry.getKey(), ontologyIRI + " (of " + filesByIRI.get(ontologyIRI).getName() + ")", modules);
+				scan.remove();
+			}
+		}
+	}
+
+	private void skipDuplicate(File file, String ontology, Map<File, OWLOntology> modules) {
+		System.out.println("The ontology module " + file.getName() + " is not loaded, another module has the same ontology IRI: " + ontology);
+		duplicates.add(file);
+		modules.remove(file);
+	}
+
+	/**
+	 * Copies a module parsed in its own manager into the shared manager, with the same ontology ID, document IRI, format, annotations and imports
+	 * declarations
+	 */
+	private OWLOntology copy(OWLOntology parsed, File file) throws OWLOntologyCreationException {
+
+		OWLOntology module = manager.createOntology(parsed.getOntologyID());
+		manager.setOntologyDocumentIRI(module, IRI.create(file));
+		manager.setOntologyFormat(module, parsed.getOWLOntologyManager().getOntologyFormat(parsed));
+
+		List<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
+		for (OWLImportsDeclaration importDeclaration : parsed.getImportsDeclarations()) {
+			changes.add(new AddImport(module, importDeclaration));
+		}
+		for (OWLAnnotation annotation : parsed.getAnnotations()) {
+			changes.add(new AddOntologyAnnotation(module, annotation));
+		}
+		for (OWLAxiom axiom : parsed.getAxioms()) {
+			changes.add(new AddAxiom(module, axiom));
+		}
+		manager.applyChanges(changes);
+
+		return module;
+	}
+
+	/**
+	 * Orders the scanned modules so that each module comes after the modules it imports, and records the import cycles (the strongly connected components
+	 * of the import graph having more than one module, or a module importing itself). The modules in import cycles come after the other modules they import.
+	 */
+	private List<File> getImportOrder(Map<File, OntologyScan> scans) {
+
+		Map<String, File> filesByIRI = new HashMap<String, File>();
+		for (Map.Entry<File, OntologyScan> scan : scans.entrySet()) {
+			if (scan.getValue().getOntologyIRI() != null) {
+				filesByIRI.put(scan.getValue().getOntologyIRI(), scan.getKey());
+			}
+		}
+
+		Map<File, Set<File>> imported = new LinkedHashMap<File, Set<File>>();
+		for (Map.Entry<File, OntologyScan> scan : scans.entrySet()) {
+			Set<File> importedFiles = new LinkedHashSet<File>();
+			for (String importIRI : scan.getValue().getImports()) {
+				if (filesByIRI.containsKey(importIRI)) {
+					importedFiles.add(filesByIRI.get(importIRI));
+				}
+			}
+			imported.put(scan.getKey(), importedFiles);
+		}
+
+		//Tarjan's algorithm (recursive, since import graphs are shallow) gives the strongly connected components with the imported components before the importing ones
+		List<File> order = new ArrayList<File>();
+		Map<File, Integer> index = new HashMap<File, Integer>();
+		Map<File, Integer> lowLink = new HashMap<File, Integer>();
+		Deque<File> stack = new ArrayDeque<File>();
+		Set<File> onStack = new LinkedHashSet<File>();
+
+		for (File file : imported.keySet()) {
+			if (!index.containsKey(file)) {
+				visit(file, imported, index, lowLink, stack, onStack, order);
+			}
+		}
+
+		return order;
+	}
+
+	private void visit(File file, Map<File, Set<File>> imported, Map<File, Integer> index, Map<File, Integer> lowLink, Deque<File> stack, Set<File> onStack, List<File> order) {
+
+		index.put(file, index.size());
+		lowLink.put(file, index.get(file));
+		stack.push(file);
+		onStack.add(file);
+
+		for (File importedFile : imported.get(file)) {
+			if (!index.containsKey(importedFile)) {
+				visit(importedFile, imported, index, lowLink, stack, onStack, order);
+				lowLink.put(file, Math.min(lowLink.get(file), lowLink.get(importedFile)));
+			} else if (onStack.contains(importedFile)) {
+				lowLink.put(file, Math.min(lowLink.get(file), index.get(importedFile)));
+			}
+		}
+
+		if (lowLink.get(file).equals(index.get(file))) {
+			List<File> component = new ArrayList<File>();
+			File member;
+			do {
+				member = stack.pop();
+				onStack.remove(member);
+				component.add(0, member);
+			} while (!member.equals(file));
+
+			if (component.size() > 1 || imported.get(file).contains(file)) {
+				importCycles.add(component);
+			}
+			order.addAll(component);
+		}
+	}
+
+}
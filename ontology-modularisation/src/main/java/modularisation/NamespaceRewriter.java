@@ -0,0 +1,63 @@
+package modularisation;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.util.OWLObjectDuplicator;
+
+/**
+ * Moves all entities of a set of axioms into the namespace of an ontology module. All IRIs are computed up front and every axiom is copied exactly once,
+ * instead of rewriting the axioms referencing each entity with a separate OWLEntityRenamer call.
+ * @author audunvennesland
+ *
+ */
+public class NamespaceRewriter {
+
+	/**
+	 * Computes the new IRI of every entity in the signature of a set of axioms, that is, ontologyIRI#fragment
+	 * @param axioms The axioms whose entities will be renamed
+	 * @param ontologyIRI The IRI of the ontology module (e.g. http://www.project-best.eu/owl/airm-mod/aircraft.owl)
+	 * @return A map where the key is an entity and the value is its new IRI
+	 */
+	public static Map<OWLEntity, IRI> getIRIMap(Set<OWLAxiom> axioms, IRI ontologyIRI) {
+
+		Map<OWLEntity, IRI> iriMap = new HashMap<OWLEntity, IRI>();
+		String namespace = ontologyIRI.toString() + "#";
+
+		for (OWLAxiom axiom : axioms) {
+			for (OWLEntity e : axiom.getSignature()) {
+				if (!iriMap.containsKey(e)) {
+					iriMap.put(e, IRI.create(namespace + e.getIRI().getFragment()));
+				}
+			}
+		}
+
+		return iriMap;
+	}
+
+	/**
+	 * Copies a set of axioms with all entities moved to the namespace of an ontology module
+	 * @param axioms The axioms to rewrite
+	 * @param ontologyIRI The IRI of the ontology module
+	 * @param df The data factory used for creating the rewritten axioms
+	 * @return The rewritten axioms
+	 */
+	public static Set<OWLAxiom> rewrite(Set<OWLAxiom> axioms, IRI ontologyIRI, OWLDataFactory df) {
+
+		OWLObjectDuplicator duplicator = new OWLObjectDuplicator(getIRIMap(axioms, ontologyIRI), df);
+
+		Set<OWLAxiom> rewritten = new HashSet<OWLAxiom>();
+		for (OWLAxiom axiom : axioms) {
+			rewritten.add(duplicator.duplicateObject(axiom));
+		}
+
+		return rewritten;
+	}
+
+}
@@ -0,0 +1,319 @@
+package modularisation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+/**
+ * Coupling and cohesion metrics of the modules in an ontology network, computed from the outlier classes and owning modules in the index of the network
+ * (ModuleNetworkIndex). Each outlier class of a module that another module owns couples the module to the owner (the owner the dependency manager
+ * resolves the class to), and the outlier classes no module in the network owns are classes outside the network. For each module the metrics are:
+ * - the number of classes the module owns (counted by class name) and the number of outlier classes it pulls in
+ * - the cohesion, the share of the classes of the module that it owns: owned / (owned + outliers)
+ * - the coupling to each owning module, the number of outlier classes resolved to it, making up the coupling matrix of the network
+ * - the efferent coupling (the number of modules it depends on), the afferent coupling (the number of modules depending on it), and the instability
+ *   efferent / (efferent + afferent)
+ * - the number of its outlier classes outside the network
+ * The metrics of a module are only computed again when the module, or the owners of its outlier classes, change (update()), as reported by the index.
+ * The metrics can be stored as JSON and CSV in the network folder.
+ * @author audunvennesland
+ *
+ */
+public class NetworkMetrics {
+
+	static final String jsonFile = "network.metrics.json";
+	static final String csvFile = "network.metrics.csv";
+	static final String couplingFile = "network.coupling.csv";
+
+	private final ModuleNetworkIndex index;
+
+	//the metrics of each module, by module file
+	private final Map<File, ModuleRow> rows = new TreeMap<File, ModuleRow>();
+
+	/**
+	 * Computes the metrics of all modules in the network
+	 * @param index The index of the ontology network
+	 * @throws OWLOntologyCreationException
+	 */
+	public NetworkMetrics(ModuleNetworkIndex index) throws OWLOntologyCreationException {
+		this.index = index;
+		update(index.getModuleFiles());
+	}
+
+	/**
+	 * Computes the metrics of a set of modules again, after the index has been updated for changed, added or removed module files. The modules removed
+	 * from the network are dropped from the metrics.
+	 * @param moduleFiles The owl files of the changed, added or removed modules, and of the modules returned by ModuleNetworkIndex.update()
+	 * @throws OWLOntologyCreationException
+	 */
+	public void update(Collection<File> moduleFiles) throws OWLOntologyCreationException {
+
+		for (File moduleFile : moduleFiles) {
+
+			File file = moduleFile.getAbsoluteFile();
+
+			if (!index.contains(file)) {
+				rows.remove(file);
+				continue;
+			}
+
+			ModuleRow row = new ModuleRow();
+			row.ownedClasses = index.getOwnedClassCount(file);
+
+			for (OWLClass cls : index.getOutliers(file)) {
+				String name = cls.getIRI().getFragment();
+				List<File> ownerFiles = index.getOwnerFiles(name, file);
+				if (ownerFiles.isEmpty()) {
+					row.outsideClasses.add(name);
+				} else {
+					Integer coupling = row.coupling.get(ownerFiles.get(0));
+					row.coupling.put(ownerFiles.get(0), coupling == null ? 1 : coupling + 1);
+				}
+				row.outlierClasses++;
+			}
+
+			rows.put(file, row);
+		}
+	}
+
+	/**
+	 * Returns the modules of the network having metrics
+	 * @return The module files, in the order of their paths
+	 */
+	public Set<File> getModules() {
+		return rows.keySet();
+	}
+
+	/**
+	 * Returns the number of outlier classes of a module resolved to another module
+	 * @param from The owl file of the module having the outlier classes
+	 * @param to The owl file of the owning module
+	 * @return The number of outlier classes, 0 if the modules are not coupled
+	 */
+	public int getCoupling(File from, File to) {
+		ModuleRow row = rows.get(from.getAbsoluteFile());
+		Integer coupling = row == null ? null : row.coupling.get(to.getAbsoluteFile());
+		return coupling == null ? 0 : coupling;
+	}
+
+	/**
+	 * Returns the cohesion of a module, the share of its classes that it owns
+	 * @param moduleFile The owl file of the module
+	 * @return The cohesion, from 0 to 1, and 1 for a module without classes
+	 */
+	public double getCohesion(File moduleFile) {
+		ModuleRow row = rows.get(moduleFile.getAbsoluteFile());
+		return row == null || row.ownedClasses + row.outlierClasses == 0 ? 1 : (double) row.ownedClasses / (row.ownedClasses + row.outlierClasses);
+	}
+
+	/**
+	 * Returns the number of modules a module depends on, through the outlier classes they own
+	 * @param moduleFile The owl file of the module
+	 * @return The efferent coupling
+	 */
+	public int getEfferentCoupling(File moduleFile) {
+		ModuleRow row = rows.get(moduleFile.getAbsoluteFile());
+		return row == null ? 0 : row.coupling.size();
+	}
+
+	/**
+	 * Returns the number of modules depending on a module, through outlier classes it owns
+	 * @param moduleFile The owl file of the module
+	 * @return The afferent coupling
+	 */
+	public int getAfferentCoupling(File moduleFile) {
+		File file = moduleFile.getAbsoluteFile();
+		int afferent = 0;
+		for (ModuleRow row : rows.values()) {
+			if (row.coupling.containsKey(file)) {
+				afferent++;
+			}
+		}
+		return afferent;
+	}
+
+	/**
+	 * Returns the instability of a module, efferent / (efferent + afferent) coupling
+	 * @param moduleFile The owl file of the module
+	 * @return The instability, from 0 (only depended on) to 1 (only depending on other modules), and 0 for a module not coupled to other modules
+	 */
+	public double getInstability(File moduleFile) {
+		int efferent = getEfferentCoupling(moduleFile);
+		int afferent = getAfferentCoupling(moduleFile);
+		return efferent + afferent == 0 ? 0 : (double) efferent / (efferent + afferent);
+	}
+
+	/**
+	 * Returns the number of outlier classes of a module that no module in the network owns
+	 * @param moduleFile The owl file of the module
+	 * @return The number of classes outside the network
+	 */
+	public int getOutsideClassCount(File moduleFile) {
+		ModuleRow row = rows.get(moduleFile.getAbsoluteFile());
+		return row == null ? 0 : row.outsideClasses.size();
+	}
+
+	/**
+	 * Returns the names of the classes outside the network, pulled in as outlier classes by any module
+	 * @return The class names
+	 */
+	public Set<String> getOutsideClasses() {
+		Set<String> outsideClasses = new TreeSet<String>();
+		for (ModuleRow row : rows.values()) {
+			outsideClasses.addAll(row.outsideClasses);
+		}
+		return outsideClasses;
+	}
+
+	/**
+	 * Returns the metrics of the modules and the coupling between them as a JSON object
+	 * @return The JSON string
+	 */
+	public String toJSON() {
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\n");
+		json.append("  \"modules\": [");
+
+		boolean first = true;
+		for (Map.Entry<File, ModuleRow> module : rows.entrySet()) {
+			File file = module.getKey();
+			ModuleRow row = module.getValue();
+			json.append(first ? "\n" : ",\n");
+			json.append("    {\"module\": \"" + StringEscapeUtils.escapeJson(file.getName()) + "\", \"ontologyIRI\": " + toJSON(index.getOntologyIRI(file))
+					+ ", \"ownedClasses\": " + row.ownedClasses + ", \"outlierClasses\": " + row.outlierClasses + ", \"outsideClasses\": " + row.outsideClasses.size()
+					+ ", \"cohesion\": " + String.format(Locale.ROOT, "%.4f", getCohesion(file)) + ", \"efferentCoupling\": " + getEfferentCoupling(file)
+					+ ", \"afferentCoupling\": " + getAfferentCoupling(file) + ", \"instability\": " + String.format(Locale.ROOT, "%.4f", getInstability(file)) + "}");
+			first = false;
+		}
+
+		json.append("\n  ],\n");
+		json.append("  \"coupling\": [");
+
+		first = true;
+		for (Map.Entry<File, ModuleRow> module : rows.entrySet()) {
+			for (Map.Entry<File, Integer> edge : module.getValue().coupling.entrySet()) {
+				json.append(first ? "\n" : ",\n");
+				json.append("    {\"from\": \"" + StringEscapeUtils.escapeJson(module.getKey().getName()) + "\", \"to\": \"" + StringEscapeUtils.escapeJson(edge.getKey().getName())
+						+ "\", \"classes\": " + edge.getValue() + "}");
+				first = false;
+			}
+		}
+
+		json.append("\n  ],\n");
+		json.append("  \"outsideClasses\": [");
+
+		first = true;
+		for (String name : getOutsideClasses()) {
+			json.append(first ? "" : ", ");
+			json.append("\"" + StringEscapeUtils.escapeJson(name) + "\"");
+			first = false;
+		}
+
+		json.append("]\n");
+		json.append("}\n");
+
+		return json.toString();
+	}
+
+	private static String toJSON(String s) {
+		return s == null ? "null" : "\"" + StringEscapeUtils.escapeJson(s) + "\"";
+	}
+
+	/**
+	 * Returns the metrics of the modules as CSV, one line per module
+	 * @return The CSV string
+	 */
+	public String toCSV() {
+
+		StringBuilder csv = new StringBuilder();
+		csv.append("module,ontologyIRI,ownedClasses,outlierClasses,outsideClasses,cohesion,efferentCoupling,afferentCoupling,instability\n");
+
+		for (Map.Entry<File, ModuleRow> module : rows.entrySet()) {
+			File file = module.getKey();
+			ModuleRow row = module.getValue();
+			String ontologyIRI = index.getOntologyIRI(file);
+			csv.append(StringEscapeUtils.escapeCsv(file.getName()) + "," + (ontologyIRI == null ? "" : StringEscapeUtils.escapeCsv(ontologyIRI)) + ","
+					+ row.ownedClasses + "," + row.outlierClasses + "," + row.outsideClasses.size() + "," + String.format(Locale.ROOT, "%.4f", getCohesion(file)) + ","
+					+ getEfferentCoupling(file) + "," + getAfferentCoupling(file) + "," + String.format(Locale.ROOT, "%.4f", getInstability(file)) + "\n");
+		}
+
+		return csv.toString();
+	}
+
+	/**
+	 * Returns the coupling matrix of the network as CSV: a line per module having outlier classes, and a column per owning module, holding the number of
+	 * outlier classes resolved to the owner
+	 * @return The CSV string
+	 */
+	public String toCouplingCSV() {
+
+		StringBuilder csv = new StringBuilder();
+		csv.append("module");
+		for (File to : rows.keySet()) {
+			csv.append("," + StringEscapeUtils.escapeCsv(to.getName()));
+		}
+		csv.append("\n");
+
+		for (File from : rows.keySet()) {
+			csv.append(StringEscapeUtils.escapeCsv(from.getName()));
+			for (File to : rows.keySet()) {
+				csv.append("," + getCoupling(from, to));
+			}
+			csv.append("\n");
+		}
+
+		return csv.toString();
+	}
+
+	/**
+	 * Saves the metrics as network.metrics.json, network.metrics.csv and network.coupling.csv in a folder
+	 * @param folder The folder, normally the network folder
+	 * @throws IOException
+	 */
+	public void save(File folder) throws IOException {
+		write(new File(folder, jsonFile), toJSON());
+		write(new File(folder, csvFile), toCSV());
+		write(new File(folder, couplingFile), toCouplingCSV());
+	}
+
+	private static void write(File file, String content) throws IOException {
+
+		//not a PrintWriter, which would hide a failed write and leave the file truncated
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * The classes a module owns and pulls in, and the modules owning its outlier classes
+	 */
+	private static class ModuleRow {
+
+		int ownedClasses;
+		int outlierClasses;
+
+		//the names of the outlier classes no module in the network owns
+		final Set<String> outsideClasses = new TreeSet<String>();
+
+		//the number of outlier classes resolved to each owning module
+		final Map<File, Integer> coupling = new TreeMap<File, Integer>();
+	}
+
+}
@@ -0,0 +1,322 @@
+package modularisation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import misc.OntologyScan;
+import misc.StringDictionary;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+
+/**
+ * Finds the outlier classes of an ontology module (the classes having owl:Thing as direct superclass and not having a name starting with "_") from the
+ * asserted axioms, without creating a reasoner. One pass over the SubClassOf and EquivalentClasses axioms of the imports closure builds a child-to-parent
+ * index of class IDs, in which the named superclasses (and named conjuncts of superclass intersections) are the parents of a class. The index can also be
+ * built from scans of the module file and its imports (OntologyScan), so that the module does not need to be loaded.
+ * The result is the same as the direct superclasses given by the OWL API StructuralReasoner: classes in a subclass cycle are equivalent, a class (or cycle)
+ * without parents outside itself is a direct subclass of owl:Thing, except for a class that is only a subclass of itself, and classes equivalent to
+ * owl:Thing have no superclasses.
+ * @author audunvennesland
+ *
+ */
+public class OutlierDetector {
+
+	//the class IRIs
+	private final StringDictionary dictionary;
+
+	//the dictionary ID of each class by its local ID (owl:Thing is local ID 0), and the local ID of each dictionary ID (-1 if not a class here)
+	private int[] classes = new int[256];
+	private int classCount = 0;
+	private int[] localIDs = new int[0];
+
+	//the local class ID and parent class ID of each subclass pair, one pair after another
+	private int[] pairs = new int[512];
+	private int pairCount = 0;
+
+	//the parent class IDs of each class ID, as the range parentStart[id] to parentStart[id + 1] of the parent array
+	private int[] parentStart;
+	private int[] parents;
+
+	//the ID of the strongly connected component (set of equivalent classes) of each class ID
+	private int[] components;
+
+	private OutlierDetector(StringDictionary dictionary) {
+		this.dictionary = dictionary;
+		getID(dictionary.getID(OWLRDFVocabulary.OWL_THING.getIRI().toString()));
+	}
+
+	/**
+	 * Retrieves the set of outlier classes for an input ontology and returns them in a set
+	 * @param inputOntology The ontology for which a set of outlier classes are retrieved
+	 * @return A set<OWLClass> of outlier classes
+	 */
+	public static Set<OWLClass> findOutliers(OWLOntology inputOntology) {
+
+		OutlierDetector detector = new OutlierDetector(new StringDictionary());
+
+		for (OWLOntology ont : inputOntology.getImportsClosure()) {
+
+			for (OWLSubClassOfAxiom ax : ont.getAxioms(AxiomType.SUBCLASS_OF)) {
+				if (!ax.getSubClass().isAnonymous()) {
+					detector.addParents(ax.getSubClass().asOWLClass(), ax.getSuperClass());
+				}
+			}
+
+			for (OWLEquivalentClassesAxiom ax : ont.getAxioms(AxiomType.EQUIVALENT_CLASSES)) {
+				//getNamedClasses() leaves out owl:Thing, which must be included for classes equivalent to owl:Thing
+				for (OWLClassExpression cls : ax.getClassExpressions()) {
+					if (!cls.isAnonymous()) {
+						for (OWLClassExpression ce : ax.getClassExpressions()) {
+							if (!ce.equals(cls)) {
+								detector.addParents(cls.asOWLClass(), ce);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		Set<OWLClass> classesInSignature = inputOntology.getClassesInSignature();
+		int[] signature = new int[classesInSignature.size()];
+		OWLClass[] signatureClasses = new OWLClass[signature.length];
+		int i = 0;
+		for (OWLClass cls : classesInSignature) {
+			signatureClasses[i] = cls;
+			signature[i++] = detector.dictionary.getID(cls.getIRI().toString());
+		}
+
+		//the outliers are a subset of the signature, in the same order
+		Set<OWLClass> outlierList = new HashSet<OWLClass>();
+		int[] outliers = detector.getOutliers(signature);
+		for (int j = 0, k = 0; j < outliers.length; k++) {
+			if (signature[k] == outliers[j]) {
+				outlierList.add(signatureClasses[k]);
+				j++;
+			}
+		}
+
+		return outlierList;
+	}
+
+	/**
+	 * Retrieves the set of outlier classes for an ontology module from the scans of the module file and the files of the modules it imports
+	 * (directly or indirectly)
+	 * @param moduleScan The scan of the module file
+	 * @param importsClosure The scans of the module file and the files of the imported modules
+	 * @return The IDs of the outlier classes in the dictionary of the module scan
+	 */
+	public static int[] findOutliers(OntologyScan moduleScan, Collection<OntologyScan> importsClosure) {
+
+		StringDictionary dictionary = moduleScan.getDictionary();
+		OutlierDetector detector = new OutlierDetector(dictionary);
+
+		for (OntologyScan scan : importsClosure) {
+			int[] parentIDs = scan.getParentIDs();
+			for (int i = 0; i < parentIDs.length; i += 2) {
+				if (scan.getDictionary() == dictionary) {
+					detector.addParent(parentIDs[i], parentIDs[i + 1]);
+				} else {
+					//a scan with a dictionary of its own
+					detector.addParent(dictionary.getID(scan.getDictionary().get(parentIDs[i])), dictionary.getID(scan.getDictionary().get(parentIDs[i + 1])));
+				}
+			}
+		}
+
+		return detector.getOutliers(moduleScan.getClassIDs());
+	}
+
+	private void addParents(OWLClass child, OWLClassExpression superClass) {
+		for (OWLClassExpression conjunct : superClass.asConjunctSet()) {
+			if (!conjunct.isAnonymous()) {
+				addParent(dictionary.getID(child.getIRI().toString()), dictionary.getID(conjunct.asOWLClass().getIRI().toString()));
+			}
+		}
+	}
+
+	private void addParent(int child, int parent) {
+		if (pairCount + 2 > pairs.length) {
+			pairs = Arrays.copyOf(pairs, pairs.length * 2);
+		}
+		pairs[pairCount++] = getID(child);
+		pairs[pairCount++] = getID(parent);
+	}
+
+	/**
+	 * Returns the local ID of a class given by its dictionary ID
+	 */
+	private int getID(int cls) {
+
+		if (cls >= localIDs.length) {
+			int oldLength = localIDs.length;
+			localIDs = Arrays.copyOf(localIDs, Math.max(cls + 1, dictionary.size()));
+			Arrays.fill(localIDs, oldLength, localIDs.length, -1);
+		}
+
+		if (localIDs[cls] == -1) {
+			if (classCount == classes.length) {
+				classes = Arrays.copyOf(classes, classes.length * 2);
+			}
+			localIDs[cls] = classCount;
+			classes[classCount++] = cls;
+		}
+
+		return localIDs[cls];
+	}
+
+	/**
+	 * Builds the compact child-to-parent index from the subclass pairs
+	 */
+	private void indexParents() {
+
+		parentStart = new int[classCount + 1];
+		for (int i = 0; i < pairCount; i += 2) {
+			parentStart[pairs[i] + 1]++;
+		}
+		for (int i = 0; i < classCount; i++) {
+			parentStart[i + 1] += parentStart[i];
+		}
+
+		parents = new int[pairCount / 2];
+		int[] next = Arrays.copyOf(parentStart, classCount);
+		for (int i = 0; i < pairCount; i += 2) {
+			parents[next[pairs[i]]++] = pairs[i + 1];
+		}
+	}
+
+	/**
+	 * Computes the strongly connected components of the child-to-parent graph (Tarjan's algorithm, without recursion so that deep hierarchies do not overflow the stack)
+	 */
+	private void computeComponents() {
+
+		int n = classCount;
+		components = new int[n];
+		int[] index = new int[n];
+		int[] lowLink = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int stackSize = 0;
+
+		//the call stack of the depth-first search: the class ID and the position of the next parent to visit
+		int[] callClass = new int[n];
+		int[] callParent = new int[n];
+
+		Arrays.fill(index, -1);
+		int nextIndex = 0;
+		int nextComponent = 0;
+
+		for (int root = 0; root < n; root++) {
+			if (index[root] != -1) {
+				continue;
+			}
+
+			int depth = 0;
+			callClass[0] = root;
+			callParent[0] = parentStart[root];
+			index[root] = lowLink[root] = nextIndex++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+
+			while (depth >= 0) {
+				int cls = callClass[depth];
+
+				if (callParent[depth] < parentStart[cls + 1]) {
+					int parent = parents[callParent[depth]++];
+					if (index[parent] == -1) {
+						index[parent] = lowLink[parent] = nextIndex++;
+						stack[stackSize++] = parent;
+						onStack[parent] = true;
+						depth++;
+						callClass[depth] = parent;
+						callParent[depth] = parentStart[parent];
+					} else if (onStack[parent]) {
+						lowLink[cls] = Math.min(lowLink[cls], index[parent]);
+					}
+				} else {
+					if (lowLink[cls] == index[cls]) {
+						int member;
+						do {
+							member = stack[--stackSize];
+							onStack[member] = false;
+							components[member] = nextComponent;
+						} while (member != cls);
+						nextComponent++;
+					}
+					depth--;
+					if (depth >= 0) {
+						int child = callClass[depth];
+						lowLink[child] = Math.min(lowLink[child], lowLink[cls]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the classes of the ontology being direct subclasses of owl:Thing and not having a name starting with "_"
+	 * @param signature The dictionary IDs of the classes of the ontology
+	 * @return The dictionary IDs of the outlier classes, in the order of the signature
+	 */
+	private int[] getOutliers(int[] signature) {
+
+		for (int cls : signature) {
+			getID(cls);
+		}
+
+		indexParents();
+		computeComponents();
+
+		int n = classCount;
+		int thingComponent = components[0];
+
+		//for each component, whether owl:Thing (or a class equivalent to it) is a parent, whether a class outside the component is a parent,
+		//and the size of the component
+		boolean[] thingParent = new boolean[n];
+		boolean[] outsideParent = new boolean[n];
+		int[] size = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			size[components[i]]++;
+			for (int j = parentStart[i]; j < parentStart[i + 1]; j++) {
+				int parent = parents[j];
+				if (components[parent] != components[i]) {
+					outsideParent[components[i]] = true;
+					if (components[parent] == thingComponent) {
+						thingParent[components[i]] = true;
+					}
+				}
+			}
+		}
+
+		int[] outliers = new int[signature.length];
+		int outlierCount = 0;
+
+		for (int cls : signature) {
+
+			int id = localIDs[cls];
+			int component = components[id];
+
+			if (component == thingComponent) {
+				continue;
+			}
+
+			//a class being only a subclass of itself is not placed under owl:Thing
+			boolean selfCycle = size[component] == 1 && parentStart[id + 1] > parentStart[id] && !outsideParent[component];
+
+			if ((thingParent[component] || (!outsideParent[component] && !selfCycle)) && !IRI.create(dictionary.get(cls)).getFragment().startsWith("_")) {
+				outliers[outlierCount++] = cls;
+			}
+		}
+
+		return Arrays.copyOf(outliers, outlierCount);
+	}
+
+}
@@ -0,0 +1,152 @@
+package modularisation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDataProperty;
+import org.semanticweb.owlapi.model.OWLDataPropertyDomainAxiom;
+import org.semanticweb.owlapi.model.OWLDataPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLDataRange;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLObjectPropertyDomainAxiom;
+import org.semanticweb.owlapi.model.OWLObjectPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/**
+ * An inverted index from domain classes to the object and data properties having them as domain, together with the domains and ranges of each property.
+ * The index is built in one pass over the domain and range axioms of a source ontology and can be reused for enriching any number of modules extracted from that ontology.
+ * The ontology is only read while the index is built, holding the lock of the ontology (as ModuleExtractor does for other reads of a shared ontology),
+ * and the index is not modified after it is built, so it can be shared among concurrent extractions without reading the ontology again.
+ * @author audunvennesland
+ *
+ */
+public class PropertyDomainIndex {
+
+	private final Map<OWLClassExpression, Set<OWLObjectProperty>> objectPropertiesByDomain = new HashMap<OWLClassExpression, Set<OWLObjectProperty>>();
+	private final Map<OWLClassExpression, Set<OWLDataProperty>> dataPropertiesByDomain = new HashMap<OWLClassExpression, Set<OWLDataProperty>>();
+
+	private final Map<OWLObjectProperty, Set<OWLClassExpression>> objectPropertyDomains = new HashMap<OWLObjectProperty, Set<OWLClassExpression>>();
+	private final Map<OWLObjectProperty, Set<OWLClassExpression>> objectPropertyRanges = new HashMap<OWLObjectProperty, Set<OWLClassExpression>>();
+	private final Map<OWLDataProperty, Set<OWLClassExpression>> dataPropertyDomains = new HashMap<OWLDataProperty, Set<OWLClassExpression>>();
+	private final Map<OWLDataProperty, Set<OWLDataRange>> dataPropertyRanges = new HashMap<OWLDataProperty, Set<OWLDataRange>>();
+
+	/**
+	 * Builds the index from the domain and range axioms of an ontology
+	 * @param onto The (source) ontology to index
+	 */
+	public PropertyDomainIndex(OWLOntology onto) {
+
+		//the OWL API builds some of the indexes of the ontology lazily, so the ontology is read while holding its lock, as modules may be extracted from it
+		//on other threads at the same time
+		synchronized (onto) {
+			index(onto);
+		}
+	}
+
+	private void index(OWLOntology onto) {
+
+		for (OWLObjectPropertyDomainAxiom op : onto.getAxioms(AxiomType.OBJECT_PROPERTY_DOMAIN)) {
+			for (OWLObjectProperty oop : op.getObjectPropertiesInSignature()) {
+				put(objectPropertiesByDomain, op.getDomain(), oop);
+			}
+			if (!op.getProperty().isAnonymous()) {
+				put(objectPropertyDomains, op.getProperty().asOWLObjectProperty(), op.getDomain());
+			}
+		}
+
+		for (OWLObjectPropertyRangeAxiom op : onto.getAxioms(AxiomType.OBJECT_PROPERTY_RANGE)) {
+			if (!op.getProperty().isAnonymous()) {
+				put(objectPropertyRanges, op.getProperty().asOWLObjectProperty(), op.getRange());
+			}
+		}
+
+		for (OWLDataPropertyDomainAxiom dp : onto.getAxioms(AxiomType.DATA_PROPERTY_DOMAIN)) {
+			for (OWLDataProperty odp : dp.getDataPropertiesInSignature()) {
+				put(dataPropertiesByDomain, dp.getDomain(), odp);
+			}
+			put(dataPropertyDomains, dp.getProperty().asOWLDataProperty(), dp.getDomain());
+		}
+
+		for (OWLDataPropertyRangeAxiom dp : onto.getAxioms(AxiomType.DATA_PROPERTY_RANGE)) {
+			put(dataPropertyRanges, dp.getProperty().asOWLDataProperty(), dp.getRange());
+		}
+	}
+
+	/**
+	 * Retrieves all object properties that has OWLClass cls as domain.
+	 * @param cls The OWL class being the domain of the object properties retrieved
+	 * @return A set of object properties
+	 */
+	public Set<OWLObjectProperty> getObjectProperties(OWLClass cls) {
+		return get(objectPropertiesByDomain, cls);
+	}
+
+	/**
+	 * Retrieves all data properties that has OWLClass cls as domain.
+	 * @param cls The OWL class being the domain of the data properties retrieved
+	 * @return A set of data properties
+	 */
+	public Set<OWLDataProperty> getDataProperties(OWLClass cls) {
+		return get(dataPropertiesByDomain, cls);
+	}
+
+	/**
+	 * Creates the domain and range axioms of all object properties and data properties that has one of the classes as domain.
+	 * @param classes The classes (typically the classes of a module) for which the property axioms are created
+	 * @param df The data factory used for creating the axioms
+	 * @return The set of domain and range axioms
+	 */
+	public Set<OWLAxiom> getEnrichmentAxioms(Set<OWLClass> classes, OWLDataFactory df) {
+
+		Set<OWLAxiom> axioms = new HashSet<OWLAxiom>();
+
+		for (OWLClass c : classes) {
+
+			for (OWLObjectProperty o : getObjectProperties(c)) {
+				for (OWLClassExpression oce : get(objectPropertyDomains, o)) {
+					axioms.add(df.getOWLObjectPropertyDomainAxiom(o, oce));
+				}
+				for (OWLClassExpression oce2 : get(objectPropertyRanges, o)) {
+					axioms.add(df.getOWLObjectPropertyRangeAxiom(o, oce2));
+				}
+			}
+
+			for (OWLDataProperty d : getDataProperties(c)) {
+				for (OWLClassExpression oce : get(dataPropertyDomains, d)) {
+					axioms.add(df.getOWLDataPropertyDomainAxiom(d, oce));
+				}
+				for (OWLDataRange oce2 : get(dataPropertyRanges, d)) {
+					axioms.add(df.getOWLDataPropertyRangeAxiom(d, oce2));
+				}
+			}
+		}
+
+		return axioms;
+	}
+
+	private static <K, V> void put(Map<K, Set<V>> map, K key, V value) {
+		Set<V> values = map.get(key);
+		if (values == null) {
+			values = new HashSet<V>();
+			map.put(key, values);
+		}
+		values.add(value);
+	}
+
+	private static <K, V> Set<V> get(Map<K, Set<V>> map, K key) {
+		Set<V> values = map.get(key);
+		if (values == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(values);
+	}
+
+}
@@ -5,9 +5,21 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 //Alignment API classes
 import org.semanticweb.owl.align.Alignment;
@@ -18,32 +30,39 @@ import org.semanticweb.owl.align.Cell;
 import org.semanticweb.owl.align.Evaluator;
 
 import misc.ISubMatcher;
+import misc.OntologyCache;
 import fr.inrialpes.exmo.align.cli.GroupEval;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
+import fr.inrialpes.exmo.align.impl.Extensions;
 import fr.inrialpes.exmo.align.impl.eval.PRecEvaluator;
 
 import fr.inrialpes.exmo.align.impl.renderer.RDFRendererVisitor;
 import fr.inrialpes.exmo.align.parser.AlignmentParser;
+import fr.inrialpes.exmo.ontowrap.LoadedOntology;
+import fr.inrialpes.exmo.ontowrap.OntowrapException;
+import misc.FileUtils;
 import misc.StringUtils;
 
 /**
  * The RedundancyReportGenerator checks for redundancy (duplicate classes) in a set of modules. If there are duplicates, these are printed to screen and an alignment file including those duplicates is 
  * stored to "alignmentFolderName". 
+ * When the pairs of modules are matched, each module is loaded once and shared by the matchers of its pairs (OntologyCache), as long as the modules fit
+ * in the capacity of the cache, beyond which the least recently used modules are loaded again when needed.
+ * The generator keeps no state between runs, so it can be run from several threads. The modules (or pairs of modules) can also be matched in parallel:
+ * each task loads its own ontologies and uses its own matcher and renderer, the number of tasks running (and so of ontologies being loaded) is bounded
+ * by the parallelism, and the result of each pair is printed and stored as soon as the pairs before it are done, in the order of the pairs, so the output
+ * is the same as when run sequentially. The duplicates of a pair are printed and stored in the order of the IRIs of their classes.
  * @author audunvennesland
  * Feb 8, 2018
  */
 public class RedundancyReportGenerator {
 
-	static final double threshold = 1.0;
-	static File outputAlignment = null;
-	static File[] filesInDir = null;
+	//the ISub score of two classes from which they are duplicates
+	static double threshold = Double.parseDouble(System.getProperty("modularisation.redundancythreshold", "1.0"));
 	static final String prefix = "file:";
-	static Properties params = new Properties();
-	static PrintWriter writer = null;
-	static String alignmentFileName = null;
-	static String module1 = null;
-	static String module2 = null;
-	static AlignmentVisitor renderer = null;
+
+	//the total size (in bytes) of the files of the modules kept loaded while the pairs of modules are matched
+	static long cacheCapacity = Long.getLong("modularisation.redundancycache", 256L * 1024 * 1024);
 
 	/**
 	 * Test method
@@ -62,7 +81,8 @@ public class RedundancyReportGenerator {
 	}
 
 	/**
-	 * Finds duplicate classes in a set of modules. 
+	 * Finds duplicate classes in a set of modules. As only classes with the same normalised name are duplicates at the threshold of 1.0, the classes of
+	 * all modules are matched in one pass (DuplicateClassIndex), each module being loaded once, instead of matching each pair of modules with ISubMatcher.
 	 * @param alignmentFolderName The folder to which alignments holding duplicate classes are stored in.
 	 * @param ontologyModuleDir The folder holding modules to be checked for redundancy (duplicate classes)
 	 * @throws AlignmentException
@@ -70,61 +90,337 @@ public class RedundancyReportGenerator {
 	 * @throws IOException
 	 */
 	public static void findDuplicates(String alignmentFolderName, String ontologyModuleDir) throws AlignmentException, URISyntaxException, IOException {
+		findDuplicates(alignmentFolderName, ontologyModuleDir, 1);
+	}
 
-		final File ontologyDir = new File(ontologyModuleDir);
-		filesInDir = ontologyDir.listFiles();
+	/**
+	 * Finds duplicate classes in a set of modules, loading the modules (or matching the pairs of modules) in parallel
+	 * @param alignmentFolderName The folder to which alignments holding duplicate classes are stored in.
+	 * @param ontologyModuleDir The folder holding modules to be checked for redundancy (duplicate classes)
+	 * @param parallelism The number of modules being loaded (or pairs of modules being matched) at the same time
+	 * @throws AlignmentException
+	 * @throws URISyntaxException
+	 * @throws IOException
+	 */
+	public static void findDuplicates(String alignmentFolderName, String ontologyModuleDir, int parallelism) throws AlignmentException, URISyntaxException, IOException {
+
+		if (threshold < 1.0) {
+			findDuplicatesPairwise(alignmentFolderName, ontologyModuleDir, parallelism);
+			return;
+		}
+
+		final File[] filesInDir = FileUtils.listOntologyFiles(new File(ontologyModuleDir));
 
 		System.out.println("Running Redundancy Report Generator...");
+
+		//load each module once
+		List<Callable<Object>> loads = new ArrayList<Callable<Object>>();
+		for (final File moduleFile : filesInDir) {
+			loads.add(new Callable<Object>() {
+				public Object call() throws Exception {
+					return ISubMatcher.loadOntology(getURI(moduleFile));
+				}
+			});
+		}
+		List<Object> modules = run(loads, parallelism);
+
+		//and index them in the order of the files
+		DuplicateClassIndex index = new DuplicateClassIndex();
+		for (int i = 0; i < filesInDir.length; i++) {
+			try {
+				index.addModule((LoadedOntology<?>) modules.get(i));
+			} catch (OntowrapException e) {
+				throw new AlignmentException("Cannot read the classes of " + filesInDir[i], e);
+			}
+		}
+
 		for (int i = 0; i < filesInDir.length; i++) {
 			for (int j = i+1; j < filesInDir.length; j++) {
 
-				module1 = StringUtils.stripOntologyName(filesInDir[i].toString());
-				module2 = StringUtils.stripOntologyName(filesInDir[j].toString());
+				List<Object[]> duplicates = index.getDuplicates(i, j);
 
-				if (filesInDir[i].isFile() && filesInDir[j].isFile() && i!=j) {
+				//only produce alignments when there are duplicates
+				if (!duplicates.isEmpty()) {
 
 					AlignmentProcess a = new ISubMatcher();
-					a.init( new URI(prefix.concat(filesInDir[i].toString().substring(2))), new URI(prefix.concat(filesInDir[j].toString().substring(2))));
-					params = new Properties();
-					params.setProperty("", "");
-					a.align((Alignment)null, params);
+					a.init(modules.get(i), modules.get(j));
+					for (Object[] duplicate : duplicates) {
+						a.addAlignCell(duplicate[0], duplicate[1], "=", 1.0);
+					}
+
+					//cloned as the alignments of the pairwise matching are, so that the stored alignments are the same
+					new PairDuplicates(filesInDir[i], filesInDir[j], (BasicAlignment)(a.clone())).store(alignmentFolderName);
+				}
+			}
+		}
+
+		System.out.println("\nRedundancy Report Generator completed!");
+	}
+
+	/**
+	 * Finds duplicate classes in a set of modules by matching each pair of modules with ISubMatcher and keeping the matches scoring at least the threshold.
+	 * The matcher is given the threshold, so it only scores the pairs of classes that can reach it.
+	 * @param alignmentFolderName The folder to which alignments holding duplicate classes are stored in.
+	 * @param ontologyModuleDir The folder holding modules to be checked for redundancy (duplicate classes)
+	 * @param parallelism The number of pairs of modules being matched at the same time
+	 * @throws AlignmentException
+	 * @throws URISyntaxException
+	 * @throws IOException
+	 */
+	public static void findDuplicatesPairwise(String alignmentFolderName, String ontologyModuleDir, int parallelism) throws AlignmentException, URISyntaxException, IOException {
 
-					BasicAlignment a2 = (BasicAlignment)(a.clone());
-					a2.cut(threshold);
+		File[] filesInDir = FileUtils.listOntologyFiles(new File(ontologyModuleDir));
 
-					int numDuplicates = a2.nbCells();
+		System.out.println("Running Redundancy Report Generator...");
 
-					//only produce alignments when there are duplicates
-					if (numDuplicates > 0) {
+		final OntologyCache cache = new OntologyCache(cacheCapacity);
+		final double minScore = threshold;
 
-						System.out.println("\n" + module1 + 
-								" and " + module2 + " contain " + a2.nbCells() + " duplicates, and the duplicates are:");
+		List<Callable<PairDuplicates>> pairs = new ArrayList<Callable<PairDuplicates>>();
+		for (int i = 0; i < filesInDir.length; i++) {
+			for (int j = i+1; j < filesInDir.length; j++) {
 
-						for (Cell c : a2) {
-							System.out.println(c.getObject1() + " - " + c.getObject2());
-						}
+				final File file1 = filesInDir[i];
+				final File file2 = filesInDir[j];
 
-						//storing the alignment file
-						alignmentFileName = alignmentFolderName + "/" + module1 + 
-								"-" + module2 + ".rdf";
+				pairs.add(new Callable<PairDuplicates>() {
+					public PairDuplicates call() throws Exception {
 
-						outputAlignment = new File(alignmentFileName);
+						AlignmentProcess a = new ISubMatcher();
+						a.init(cache.get(getURI(file1)), cache.get(getURI(file2)));
+						Properties params = new Properties();
+						params.setProperty("threshold", Double.toString(minScore));
+						a.align((Alignment)null, params);
 
-						writer = new PrintWriter(
-								new BufferedWriter(
-										new FileWriter(outputAlignment)), true); 
-						renderer = new RDFRendererVisitor(writer);
+						BasicAlignment a2 = (BasicAlignment)(a.clone());
+						a2.cut(minScore);
 
-						a2.render(renderer);
-						writer.flush();
-						writer.close();
+						return new PairDuplicates(file1, file2, a2);
 					}
+				});
+			}
+		}
 
+		final String alignmentFolder = alignmentFolderName;
+		run(pairs, parallelism, new ResultHandler<PairDuplicates>() {
+			public void handle(PairDuplicates duplicates) throws IOException {
+				//only produce alignments when there are duplicates
+				if (duplicates.numDuplicates > 0) {
+					duplicates.store(alignmentFolder);
 				}
 			}
-		}
+		});
 
 		System.out.println("\nRedundancy Report Generator completed!");
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Sets the ISub score of two classes from which they are duplicates. Below 1.0 the pairs of modules are matched by ISubMatcher, scoring only the
+	 * pairs of classes that can reach the threshold.
+	 * @param minScore The threshold, from 0 to 1
+	 */
+	public static void setThreshold(double minScore) {
+		threshold = minScore;
+	}
+
+	/**
+	 * Sets the total size of the files of the modules kept loaded while the pairs of modules are matched
+	 * @param capacity The size in bytes
+	 */
+	public static void setCacheCapacity(long capacity) {
+		cacheCapacity = capacity;
+	}
+
+	/**
+	 * Returns the URI of a module file as given to the Alignment API, relative to the working folder
+	 */
+	private static URI getURI(File moduleFile) throws URISyntaxException {
+		return new URI(prefix.concat(moduleFile.toString().substring(2)));
+	}
+
+	/**
+	 * Handles the result of a task
+	 */
+	private interface ResultHandler<T> {
+		void handle(T result) throws IOException;
+	}
+
+	/**
+	 * Runs a list of tasks, in parallel if requested, and returns their results in the order of the tasks
+	 */
+	private static <T> List<T> run(List<Callable<T>> tasks, int parallelism) throws AlignmentException, URISyntaxException, IOException {
+
+		final List<T> results = new ArrayList<T>();
+
+		run(tasks, parallelism, new ResultHandler<T>() {
+			public void handle(T result) {
+				results.add(result);
+			}
+		});
+
+		return results;
+	}
+
+	/**
+	 * Runs a list of tasks, in parallel if requested, and handles the result of each task as soon as the tasks before it are done, in the order of the tasks
+	 */
+	private static <T> void run(List<Callable<T>> tasks, int parallelism, ResultHandler<T> handler) throws AlignmentException, URISyntaxException, IOException {
+
+		ExecutorService executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+
+		try {
+			if (executor == null) {
+				for (Callable<T> task : tasks) {
+					T result;
+					try {
+						result = task.call();
+					} catch (Exception e) {
+						throw getFailure(e);
+					}
+					handler.handle(result);
+				}
+			} else {
+				List<Future<T>> futures = new ArrayList<Future<T>>();
+				for (Callable<T> task : tasks) {
+					futures.add(executor.submit(task));
+				}
+				for (int i = 0; i < futures.size(); i++) {
+					T result;
+					try {
+						result = futures.get(i).get();
+					} catch (ExecutionException e) {
+						throw getFailure(e.getCause());
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new RuntimeException("The redundancy report was interrupted", e);
+					}
+					//the result is let go once handled, so that the results of the tasks are not all kept until the end
+					futures.set(i, null);
+					handler.handle(result);
+				}
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Throws the failure of a task as it is if it is an error, an unchecked exception or one of the checked exceptions of the generator, and otherwise
+	 * returns it wrapped in an AlignmentException to be thrown
+	 */
+	private static AlignmentException getFailure(Throwable cause) throws AlignmentException, URISyntaxException, IOException {
+
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof AlignmentException) {
+			throw (AlignmentException) cause;
+		}
+		if (cause instanceof URISyntaxException) {
+			throw (URISyntaxException) cause;
+		}
+		if (cause instanceof IOException) {
+			throw (IOException) cause;
+		}
+
+		//a throwable that is neither an error nor an exception is wrapped as well
+		return new AlignmentException("Matching of the modules failed", cause instanceof Exception ? (Exception) cause : new Exception(cause));
+	}
+
+	/**
+	 * The duplicates of a pair of modules, with the alignment holding them rendered as RDF by the thread matching the modules. The cells are sorted by the
+	 * IRIs of their classes into a new alignment, so that the duplicates are printed and rendered in the same order on every run.
+	 */
+	private static class PairDuplicates {
+
+		final String module1;
+		final String module2;
+		final int numDuplicates;
+		final String duplicates;
+		final String rdf;
+
+		PairDuplicates(File file1, File file2, BasicAlignment a2) throws AlignmentException {
+
+			module1 = StringUtils.stripOntologyName(file1.toString());
+			module2 = StringUtils.stripOntologyName(file2.toString());
+			numDuplicates = a2.nbCells();
+
+			List<Cell> sortedCells = getSortedCells(a2);
+
+			//the alignment renders its cells in the order of its hash tables, which depends on the order the cells are added in
+			BasicAlignment sorted = (BasicAlignment) a2.clone();
+			sorted.deleteAllCells();
+			//the clone records itself as made by cloning, the new alignment keeps the method of the matcher
+			sorted.setExtensions((Extensions) a2.getExtensionsObject().clone());
+			for (Cell c : sortedCells) {
+				sorted.addAlignCell(c.getId(), c.getObject1(), c.getObject2(), c.getRelation(), c.getStrength());
+			}
+
+			StringBuilder cells = new StringBuilder();
+			for (Cell c : sortedCells) {
+				cells.append(c.getObject1() + " - " + c.getObject2() + "\n");
+			}
+			duplicates = cells.toString();
+
+			//only alignments holding duplicates are stored
+			StringWriter rdfWriter = new StringWriter();
+			if (numDuplicates > 0) {
+				PrintWriter writer = new PrintWriter(rdfWriter);
+				AlignmentVisitor renderer = new RDFRendererVisitor(writer);
+				sorted.render(renderer);
+				writer.flush();
+			}
+			rdf = rdfWriter.toString();
+		}
+
+		/**
+		 * Returns the cells of an alignment sorted by the IRI of their first class, then by the IRI of their second class
+		 */
+		private static List<Cell> getSortedCells(BasicAlignment a2) throws AlignmentException {
+
+			final Map<Cell, String[]> iris = new HashMap<Cell, String[]>();
+			for (Cell c : a2) {
+				iris.put(c, new String[] { c.getObject1AsURI(a2).toString(), c.getObject2AsURI(a2).toString() });
+			}
+
+			List<Cell> cells = new ArrayList<Cell>(iris.keySet());
+			Collections.sort(cells, new Comparator<Cell>() {
+				public int compare(Cell c1, Cell c2) {
+					int order = iris.get(c1)[0].compareTo(iris.get(c2)[0]);
+					return order != 0 ? order : iris.get(c1)[1].compareTo(iris.get(c2)[1]);
+				}
+			});
+
+			return cells;
+		}
+
+		/**
+		 * Prints the duplicates and stores the alignment holding them as module1-module2.rdf in the alignment folder
+		 */
+		void store(String alignmentFolderName) throws IOException {
+
+			System.out.println("\n" + module1 + 
+					" and " + module2 + " contain " + numDuplicates + " duplicates, and the duplicates are:");
+
+			System.out.print(duplicates);
+
+			//storing the alignment file
+			String alignmentFileName = alignmentFolderName + "/" + module1 + 
+					"-" + module2 + ".rdf";
+
+			PrintWriter writer = new PrintWriter(
+					new BufferedWriter(
+							new FileWriter(new File(alignmentFileName))), true); 
+
+			writer.print(rdf);
+			writer.flush();
+			writer.close();
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package ui;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+
+import modularisation.ModuleExtractor;
+
+/**
+ * Command-line user interface for creating a set of modules from a "monolithic" ontology in one run. The modules and their seed signatures are listed in a manifest file.
+ * @author audunvennesland
+ *
+ */
+public class BatchModuleExtractorUI {
+
+	public static void main(String[] args) throws OWLOntologyCreationException, OWLOntologyStorageException, IOException {
+
+		Scanner scanner = new Scanner(System.in);
+
+		System.out.print("Enter path to (monolithic) ontology file: ");
+		String ontoFileName = scanner.next();
+
+		System.out.print("Enter path to folder where the ontology modules will be stored: ");
+		String storageFolder = scanner.next();
+
+		System.out.print("Enter path to manifest listing the modules to create (one 'moduleName = seed1, seed2' per line): ");
+		String manifestFileName = scanner.next();
+
+		System.out.print("Enter number of modules to extract in parallel: ");
+		int parallelism = scanner.nextInt();
+
+		Map<String, Set<String>> manifest = ModuleExtractor.readManifest(manifestFileName);
+
+		ModuleExtractor.modulariseAll(ontoFileName, storageFolder, manifest, parallelism);
+
+		scanner.close();
+	}
+
+}
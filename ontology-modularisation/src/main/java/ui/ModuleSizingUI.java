@@ -0,0 +1,83 @@
+package ui;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Scanner;
+import java.util.Set;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import misc.OntologySnapshot;
+import modularisation.AtomicDecomposition;
+import modularisation.ClassHierarchy;
+import modularisation.ModuleExtractor;
+import uk.ac.manchester.cs.owlapi.modularity.ModuleType;
+
+/**
+ * Command-line user interface for trying out seed signatures before creating modules. The ontology and its atomic decomposition are loaded once, after which
+ * the size of the (locality-based) module for each entered seed signature is printed without writing anything to disk.
+ * @author audunvennesland
+ *
+ */
+public class ModuleSizingUI {
+
+	public static void main(String[] args) throws OWLOntologyCreationException {
+
+		Scanner scanner = new Scanner(System.in);
+
+		System.out.print("Enter path to (monolithic) ontology file: ");
+		File ontoFile = new File(scanner.nextLine().trim());
+
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		OWLOntology onto = OntologySnapshot.load(manager, ontoFile);
+
+		long start = System.currentTimeMillis();
+		ClassHierarchy hierarchy = ClassHierarchy.load(ontoFile, onto, false);
+		AtomicDecomposition decomposition = AtomicDecomposition.load(ontoFile, onto, ModuleType.STAR);
+		System.out.println("Loaded " + decomposition.getNumAtoms() + " atoms in " + (System.currentTimeMillis() - start) + " ms");
+
+		while (true) {
+
+			System.out.print("\nEnter signatures to create module from, separated by commas (empty line to quit): ");
+			if (!scanner.hasNextLine()) {
+				break;
+			}
+
+			String line = scanner.nextLine().trim();
+			if (line.isEmpty()) {
+				break;
+			}
+
+			Set<String> seedSignature = new LinkedHashSet<String>();
+			for (String seed : line.split(",")) {
+				if (!seed.trim().isEmpty()) {
+					seedSignature.add(seed.trim());
+				}
+			}
+
+			start = System.nanoTime();
+			Set<OWLEntity> seedSig = ModuleExtractor.expandSeedSignature(onto, hierarchy, seedSignature);
+			Set<OWLAxiom> moduleAxioms = decomposition.extract(seedSig);
+			long time = System.nanoTime() - start;
+
+			Set<OWLClass> classes = new LinkedHashSet<OWLClass>();
+			for (OWLAxiom axiom : moduleAxioms) {
+				classes.addAll(axiom.getClassesInSignature());
+			}
+
+			System.out.println("Seed signature size: " + seedSig.size());
+			System.out.println("Number of classes: " + classes.size());
+			System.out.println("Number of axioms: " + moduleAxioms.size());
+			System.out.println("Time: " + String.format("%.1f", time / 1e6) + " ms");
+		}
+
+		scanner.close();
+	}
+
+}
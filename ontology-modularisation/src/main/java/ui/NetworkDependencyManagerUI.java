@@ -0,0 +1,46 @@
+package ui;
+
+import java.io.IOException;
+import java.util.Scanner;
+
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+
+import modularisation.ModuleNetworkDependencyManager;
+
+/**
+ * Command-line user interface for resolving the dependencies (imports) of all ontology modules in an ontology network in one run.
+ * @author audunvennesland
+ *
+ */
+public class NetworkDependencyManagerUI {
+
+	public static void main(String[] args) throws OWLOntologyCreationException, OWLOntologyStorageException, IOException, InterruptedException {
+
+		Scanner scanner = new Scanner(System.in);
+
+		System.out.print("Enter path to folder where the modules in the network resides: ");
+		String ontologyModuleNetworkFolder = scanner.next();
+
+		System.out.print("Enter number of modules to load in parallel: ");
+		int parallelism = scanner.nextInt();
+
+		System.out.print("Drop the imports a module gets through its other imports (y/n): ");
+		ModuleNetworkDependencyManager.setMinimiseImports(scanner.next().equalsIgnoreCase("y"));
+
+		System.out.print("Store coupling and cohesion metrics of the network in the folder (y/n): ");
+		ModuleNetworkDependencyManager.setWriteMetrics(scanner.next().equalsIgnoreCase("y"));
+
+		System.out.print("Keep watching the folder for changes to the modules (y/n): ");
+		boolean watch = scanner.next().equalsIgnoreCase("y");
+
+		if (watch) {
+			ModuleNetworkDependencyManager.watchDependencies(ontologyModuleNetworkFolder, parallelism);
+		} else {
+			ModuleNetworkDependencyManager.createAllDependencies(ontologyModuleNetworkFolder, parallelism);
+		}
+
+		scanner.close();
+	}
+
+}
@@ -0,0 +1,35 @@
+package ui;
+
+import java.util.Scanner;
+
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyStorageException;
+
+import modularisation.ModuleExtractor;
+
+/**
+ * Command-line user interface for partitioning a "monolithic" ontology into a network of modules, one for each top-level subject-area class (e.g. _Stakeholders_).
+ * @author audunvennesland
+ *
+ */
+public class PartitionModuleExtractorUI {
+
+	public static void main(String[] args) throws OWLOntologyCreationException, OWLOntologyStorageException {
+
+		Scanner scanner = new Scanner(System.in);
+
+		System.out.print("Enter path to (monolithic) ontology file: ");
+		String ontoFileName = scanner.next();
+
+		System.out.print("Enter path to folder where the ontology module network will be stored: ");
+		String storageFolder = scanner.next();
+
+		System.out.print("Enter number of modules to extract in parallel: ");
+		int parallelism = scanner.nextInt();
+
+		ModuleExtractor.modularisePartition(ontoFileName, storageFolder, parallelism);
+
+		scanner.close();
+	}
+
+}
@@ -27,7 +27,10 @@ public class RedundancyReportUI {
 		System.out.print("Enter path to folder where the alignments holding duplicate classes will be stored: ");
 		String alignmentFolder = scanner.next();
 
-		RedundancyReportGenerator.findDuplicates(alignmentFolder, ontologyModules);
+		System.out.print("Enter number of modules to load in parallel: ");
+		int parallelism = scanner.nextInt();
+
+		RedundancyReportGenerator.findDuplicates(alignmentFolder, ontologyModules, parallelism);
 		
 		scanner.close();
 	}